@@ -0,0 +1,32 @@
+package com.redpantssoft;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Percentage#test()} drives every random decision of the AI
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=10, time=1)
+@Fork(3)
+public class PercentageBenchmark
+{
+	private final Percentage percentage=new Percentage(50);
+	private final RandomSource rand=new RandomSource(1);
+
+	@Benchmark
+	public boolean test()
+	{
+		return percentage.test(rand);
+	}
+
+	@Benchmark
+	public boolean testAdjusted()
+	{
+		return percentage.test(rand,10);
+	}
+}
@@ -0,0 +1,208 @@
+package com.redpantssoft.hhfootball;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Merges the results of a JMH run into benchmark/baseline.json, entry by
+ * entry, so that a change only updates the benchmarks it ran.
+ * <p/>
+ * Run the affected benchmarks to a results file of their own, then merge it:
+ * <pre>
+ *   java -cp "out/benchmark:$JMH/*" org.openjdk.jmh.Main -rf json -rff out/run.json DefenseSearchBenchmark
+ *   java -cp out/benchmark com.redpantssoft.hhfootball.BaselineMerge benchmark/baseline.json out/run.json
+ * </pre>
+ * An entry is identified by its benchmark and its parameters. Entries of the
+ * run replace the matching baseline entries or are added, every other entry
+ * is left as it was. Each replaced entry is printed with its old and new
+ * score, and flagged when it regressed by more than both scoreErrors, see
+ * {@link BenchmarkFixtures}. The entries are kept in JMH's own formatting.
+ */
+public class BaselineMerge
+{
+	/**
+	 * A benchmark result, the text of one object of the JMH results array
+	 */
+	private static final class Entry
+	{
+		final String text;
+		final String key;
+
+		Entry(String text)
+		{
+			this.text=text;
+			String params=objectAfter(text,"\"params\"");
+			key=stringAfter(text,"\"benchmark\"")+(params == null ? "" : " "+params.replaceAll("\\s+",""));
+		}
+
+		double score() { return numberAfter(text,"\"score\""); }
+		double scoreError() { return numberAfter(text,"\"scoreError\""); }
+		String unit() { return stringAfter(text,"\"scoreUnit\""); }
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length != 2)
+		{
+			System.err.println("usage: BaselineMerge <baseline.json> <results.json>");
+			System.exit(2);
+		}
+
+		List<Entry> baseline=entries(read(args[0]));
+		for (Entry entry : entries(read(args[1])))
+		{
+			int i=indexOf(baseline,entry.key);
+			if (i < 0)
+			{
+				System.out.printf("%s  new %.3f +- %.3f %s%n",entry.key,entry.score(),entry.scoreError(),entry.unit());
+				baseline.add(entry);
+				continue;
+			}
+
+			Entry old=baseline.get(i);
+			boolean regressed=entry.score() > old.score()+old.scoreError()+entry.scoreError();
+			System.out.printf("%s  %.3f +- %.3f -> %.3f +- %.3f %s%s%n",entry.key,old.score(),old.scoreError(),
+					entry.score(),entry.scoreError(),entry.unit(),regressed ? "  REGRESSED" : "");
+			baseline.set(i,entry);
+		}
+
+		Collections.sort(baseline,new Comparator<Entry>()
+		{
+			public int compare(Entry a, Entry b) { return a.key.compareTo(b.key); }
+		});
+
+		StringBuilder out=new StringBuilder("[\n    ");
+		for (int i=0;i < baseline.size();i++)
+		{
+			if (i > 0)
+				out.append(",\n    ");
+			out.append(baseline.get(i).text);
+		}
+		out.append("\n]\n\n\n");
+
+		Writer writer=new OutputStreamWriter(new FileOutputStream(args[0]),"UTF-8");
+		try
+		{
+			writer.write(out.toString());
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	private static int indexOf(List<Entry> entries, String key)
+	{
+		for (int i=0;i < entries.size();i++)
+		{
+			if (entries.get(i).key.equals(key))
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the top level objects of a JSON array, as text
+	 */
+	private static List<Entry> entries(String json)
+	{
+		List<Entry> entries=new ArrayList<Entry>();
+		int start=json.indexOf('[')+1;
+		while (true)
+		{
+			start=json.indexOf('{',start);
+			if (start < 0)
+				return entries;
+			int end=objectEnd(json,start);
+			entries.add(new Entry(json.substring(start,end)));
+			start=end;
+		}
+	}
+
+	/**
+	 * @return the index just past the object that starts at start
+	 */
+	private static int objectEnd(String json, int start)
+	{
+		int depth=0;
+		boolean inString=false;
+		for (int i=start;i < json.length();i++)
+		{
+			char c=json.charAt(i);
+			if (inString)
+			{
+				if (c == '\\')
+					i++;
+				else if (c == '"')
+					inString=false;
+			}
+			else if (c == '"')
+				inString=true;
+			else if (c == '{')
+				depth++;
+			else if (c == '}' && --depth == 0)
+				return i+1;
+		}
+		throw new IllegalArgumentException("unterminated object");
+	}
+
+	/**
+	 * @return the index of the value of the first occurrence of a key, or -1
+	 */
+	private static int valueOf(String json, String name)
+	{
+		int i=json.indexOf(name+" :");
+		if (i < 0)
+			i=json.indexOf(name+":");
+		if (i < 0)
+			return -1;
+		i=json.indexOf(':',i)+1;
+		while (Character.isWhitespace(json.charAt(i)))
+			i++;
+		return i;
+	}
+
+	private static String stringAfter(String json, String name)
+	{
+		int i=valueOf(json,name);
+		return json.substring(i+1,json.indexOf('"',i+1));
+	}
+
+	private static String objectAfter(String json, String name)
+	{
+		int i=valueOf(json,name);
+		return (i < 0) ? null : json.substring(i,objectEnd(json,i));
+	}
+
+	private static double numberAfter(String json, String name)
+	{
+		int i=valueOf(json,name);
+		// JMH quotes the values that are not finite, such as "NaN"
+		if (json.charAt(i) == '"')
+			return Double.parseDouble(stringAfter(json,name));
+		int end=i;
+		while (end < json.length() && "+-.0123456789eE".indexOf(json.charAt(end)) >= 0)
+			end++;
+		return Double.parseDouble(json.substring(i,end));
+	}
+
+	private static String read(String path) throws IOException
+	{
+		Reader reader=new InputStreamReader(new FileInputStream(path),"UTF-8");
+		try
+		{
+			StringBuilder text=new StringBuilder();
+			char[] buf=new char[8192];
+			for (int n;(n=reader.read(buf)) > 0;)
+				text.append(buf,0,n);
+			return text.toString();
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+}
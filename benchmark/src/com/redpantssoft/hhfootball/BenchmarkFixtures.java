@@ -0,0 +1,129 @@
+package com.redpantssoft.hhfootball;
+
+import com.redpantssoft.hhfootball.GameClock.Period;
+import com.redpantssoft.hhfootball.GameEngine.Difficulty;
+import com.redpantssoft.hhfootball.GameEngine.Info;
+import com.redpantssoft.hhfootball.GameEngine.Input;
+import com.redpantssoft.hhfootball.GameEngine.Sfx;
+import com.redpantssoft.hhfootball.GameEngine.State;
+
+/**
+ * Shared set up for the JMH benchmarks of the engine and view hot paths.
+ * <p/>
+ * The benchmarks run on a desktop JVM against the android-free engine and
+ * view model sources. From the project root, with the JMH jars (jmh-core,
+ * jmh-generator-annprocess, jopt-simple, commons-math3) in $JMH:
+ * <pre>
+ *   javac -cp "$JMH/*" -d out/benchmark src/com/redpantssoft/{Coordinate,Metrics,Percentage,RandomSource,TimerWheel}.java \
+ *       src/com/redpantssoft/hhfootball/{GameEngine,GameClock,Team,Player,InputLog,GameSnapshot,TileGrid,DefenseSearch,DistanceField,FieldSize}.java \
+ *       $(find benchmark/src -name '*.java')
+ *   java -cp "out/benchmark:$JMH/*" org.openjdk.jmh.Main -rf json -rff out/run.json [pattern]
+ *   java -cp out/benchmark com.redpantssoft.hhfootball.BaselineMerge benchmark/baseline.json out/run.json
+ * </pre>
+ * benchmark/baseline.json holds the results of the last accepted run of
+ * each benchmark. A change only updates the entries of the benchmarks it
+ * affects: run them on their own by passing a benchmark name pattern, such
+ * as DefenseSearchBenchmark, and merge the results with {@link BaselineMerge},
+ * which leaves the other entries untouched and flags regressions. Say in the
+ * commit why each updated entry moved.
+ * <p/>
+ * Every benchmark runs 3 forks of 10 one second iterations, as a single
+ * fork of a few iterations moved by 30-70% between runs. Each entry keeps
+ * its score and scoreError, the 99.9% confidence half-width over all the
+ * iterations. A rerun is only a regression when its score is above the
+ * baseline score plus both scoreErrors, where the two intervals stop
+ * overlapping; anything closer is noise.
+ */
+class BenchmarkFixtures
+{
+	/**
+	 * Ignores every event, the benchmarks only measure the engine
+	 */
+	static class NullEventHandler implements GameEngine.GameEventHandler
+	{
+		public void playSfx(Sfx sfx, boolean loop) {}
+		public void stopSfx(Sfx sfx) {}
+		public void releaseSfx() {}
+		public void vibrate() {}
+		public void showInfo(Info info, boolean autoClear) {}
+		public void clearInfo() {}
+		public void enableKickMeter(int minPower, int maxPower) {}
+		public void updateScoreBoard() {}
+		public void updateDriveStatus() {}
+		public void updateClockDisplay(int tenths, Period period) {}
+		public void updateField(boolean flash) {}
+	}
+
+	/**
+	 * Every benchmark game is played with the same random numbers
+	 */
+	private static final long SEED=1;
+
+	/**
+	 * Power used whenever the kick meter is up
+	 */
+	private static final int KICK_POWER=40;
+
+	/**
+	 * The autopilot presses a button every INPUT_INTERVAL_TICKS ticks
+	 */
+	private static final int INPUT_INTERVAL_TICKS=4;
+
+	/**
+	 * Upper bound on the ticks it takes to reach the first snap
+	 */
+	private static final int MAX_TICKS_TO_SNAP=100000;
+
+	/**
+	 * @return a new game, on hard, with the ball just snapped on the first drive
+	 */
+	static GameEngine liveEngine()
+	{
+		GameEngine engine=new GameEngine(new NullEventHandler(),Difficulty.hard,4,SEED);
+		engine.start();
+
+		for (int ticks=0;ticks<MAX_TICKS_TO_SNAP;ticks++)
+		{
+			if (engine.state() == State.PRE_SNAP)
+			{
+				engine.step(backward(engine));
+				if (engine.state() == State.PLAY_LIVE)
+					return engine;
+			}
+
+			autopilot(engine,ticks);
+		}
+		throw new IllegalStateException("Game never reached the snap, state "+engine.state());
+	}
+
+	/**
+	 * Plays one tick of the game, kicking whenever the meter is up and running
+	 * the ball carrier forward every few ticks
+	 *
+	 * @param engine  game to advance
+	 * @param ticks  number of ticks played so far
+	 */
+	static void autopilot(GameEngine engine, int ticks)
+	{
+		engine.tick();
+		if (ticks % INPUT_INTERVAL_TICKS != 0)
+			return;
+
+		if (engine.isKickMeterEnabled())
+			engine.kick(KICK_POWER);
+		else if (engine.state() == State.PRE_SNAP)
+			engine.step(backward(engine));
+		else
+			engine.step(forward(engine));
+	}
+
+	static Input forward(GameEngine engine)
+	{
+		return (engine.offense().orientation() == Team.ORIENTATION_RIGHT)?Input.RIGHT:Input.LEFT;
+	}
+
+	static Input backward(GameEngine engine)
+	{
+		return (engine.offense().orientation() == Team.ORIENTATION_RIGHT)?Input.LEFT:Input.RIGHT;
+	}
+}
@@ -0,0 +1,74 @@
+package com.redpantssoft.hhfootball;
+
+import com.redpantssoft.hhfootball.GameEngine.Difficulty;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the defense's search for one AI update, at each difficulty, over
+ * positions taken from a played game
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=10, time=1)
+@Fork(3)
+public class DefenseSearchBenchmark
+{
+	/**
+	 * Number of positions searched in turn
+	 */
+	private static final int POSITIONS=64;
+
+	/**
+	 * A position is kept every POSITION_INTERVAL_TICKS ticks of live play
+	 */
+	private static final int POSITION_INTERVAL_TICKS=10;
+
+	/**
+	 * Name of the difficulty, JMH can only set public types
+	 */
+	@Param({"easy", "medium", "hard"})
+	public String difficultyName;
+
+	private Difficulty difficulty;
+
+	private final GameEngine[] positions=new GameEngine[POSITIONS];
+	private DefenseSearch search;
+	private int next;
+
+	@Setup
+	public void setUp()
+	{
+		difficulty=Difficulty.valueOf(difficultyName);
+
+		GameEngine engine=BenchmarkFixtures.liveEngine();
+		int count=0;
+		for (int ticks=0;count < POSITIONS;ticks++)
+		{
+			if (engine.isGameOver())
+				engine=BenchmarkFixtures.liveEngine();
+
+			BenchmarkFixtures.autopilot(engine,ticks);
+			if (engine.state() == GameEngine.State.PLAY_LIVE && ticks % POSITION_INTERVAL_TICKS == 0)
+				positions[count++]=GameSnapshot.decode(GameSnapshot.encode(engine,0)).engine();
+		}
+
+		search=new DefenseSearch(engine.field(),GameEngine.DEFENSE_TABLE_BITS);
+		next=0;
+	}
+
+	/**
+	 * One search of the next position, as an AI update of the defense makes
+	 */
+	@Benchmark
+	public int search()
+	{
+		GameEngine position=positions[next];
+		next=(next+1)%POSITIONS;
+		return search.search(position.offense(),position.defense(),position.yardsToGoal(),
+				difficulty.searchDepth(),difficulty.searchBudgetNodes());
+	}
+}
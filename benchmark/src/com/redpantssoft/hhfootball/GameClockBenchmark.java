@@ -0,0 +1,56 @@
+package com.redpantssoft.hhfootball;
+
+import com.redpantssoft.hhfootball.GameClock.Period;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GameClock#tick(int)} runs every engine tick, including the display
+ * callback when the tenths of a second displayed change
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=10, time=1)
+@Fork(3)
+public class GameClockBenchmark implements GameClock.GameClockHandler
+{
+	/**
+	 * Long enough that the clock rarely expires during a measurement
+	 */
+	private static final long PERIOD_LENGTH_SECS=100000;
+
+	private GameClock clock;
+	private int displayed;
+
+	@Setup
+	public void setUp()
+	{
+		newClock();
+	}
+
+	private void newClock()
+	{
+		clock=new GameClock(PERIOD_LENGTH_SECS,this);
+		clock.start();
+	}
+
+	@Benchmark
+	public int tick()
+	{
+		if (clock.expired())
+			newClock();
+
+		clock.tick(GameEngine.TICK_MILLIS);
+		return displayed;
+	}
+
+	public void updateClockDisplay(int tenths, Period period)
+	{
+		displayed=tenths;
+	}
+
+	public void handleClockExpired() {}
+}
@@ -0,0 +1,80 @@
+package com.redpantssoft.hhfootball;
+
+import com.redpantssoft.hhfootball.GameEngine.Difficulty;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defensive AI and per tick cost of the engine
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=10, time=1)
+@Fork(3)
+public class GameEngineBenchmark
+{
+	private GameEngine liveEngine;
+	private Player defender;
+	private int defenderX;
+	private int defenderY;
+
+	private GameEngine playedEngine;
+	private int ticks;
+
+	@Setup
+	public void setUp()
+	{
+		liveEngine=BenchmarkFixtures.liveEngine();
+		defender=liveEngine.defense().getPlayer(0);
+		defenderX=defender.pos().x;
+		defenderY=defender.pos().y;
+
+		playedEngine=BenchmarkFixtures.liveEngine();
+		ticks=0;
+	}
+
+	/**
+	 * Moves a defender a step towards the ball carrier, then puts it back so
+	 * every invocation sees the same field
+	 */
+	@Benchmark
+	public Player movePlayerRelativePosition()
+	{
+		Player ballCarrier=liveEngine.offense().quarterback();
+		liveEngine.movePlayerRelativePosition(defender,ballCarrier.pos().x,ballCarrier.pos().y);
+		defender.set(defenderX,defenderY);
+		return defender;
+	}
+
+	/**
+	 * One AI update of the defense on hard, from the position just after the
+	 * snap. Every search starts with an empty transposition table
+	 */
+	@Benchmark
+	public int searchDefense()
+	{
+		Difficulty difficulty=Difficulty.hard;
+		return liveEngine.defenseSearch().search(liveEngine.offense(),liveEngine.defense(),liveEngine.yardsToGoal(),
+				difficulty.searchDepth(),difficulty.searchBudgetNodes());
+	}
+
+	/**
+	 * One {@link GameEngine#tick()} of a game driven by the autopilot, averaged
+	 * over whole games so it includes the game refresh and AI updates
+	 */
+	@Benchmark
+	public int tick()
+	{
+		if (playedEngine.isGameOver())
+		{
+			playedEngine=BenchmarkFixtures.liveEngine();
+			ticks=0;
+		}
+
+		BenchmarkFixtures.autopilot(playedEngine,ticks++);
+		return playedEngine.homeScore();
+	}
+}
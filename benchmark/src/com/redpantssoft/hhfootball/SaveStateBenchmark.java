@@ -0,0 +1,43 @@
+package com.redpantssoft.hhfootball;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of the game state through Game.onSaveInstanceState and
+ * Game.restoreState, which store the game as a single {@link GameSnapshot}
+ * byte[].
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=10, time=1)
+@Fork(3)
+public class SaveStateBenchmark
+{
+	private GameEngine engine;
+	private byte[] saved;
+
+	@Setup
+	public void setUp()
+	{
+		engine=BenchmarkFixtures.liveEngine();
+		saved=save();
+	}
+
+	@Benchmark
+	public byte[] save()
+	{
+		return GameSnapshot.encode(engine,0);
+	}
+
+	@Benchmark
+	public GameEngine restore()
+	{
+		GameEngine restored=GameSnapshot.decode(saved).engine();
+		restored.setHandler(new BenchmarkFixtures.NullEventHandler());
+		return restored;
+	}
+}
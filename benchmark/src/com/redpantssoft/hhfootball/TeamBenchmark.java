@@ -0,0 +1,50 @@
+package com.redpantssoft.hhfootball;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collision lookups, {@link Team#findPlayer(int, int)} is called for every
+ * candidate move of every player.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=10, time=1)
+@Fork(3)
+public class TeamBenchmark
+{
+	private Defense defense;
+	private int hitX;
+	private int hitY;
+
+	@Setup
+	public void setUp()
+	{
+		GameEngine engine=BenchmarkFixtures.liveEngine();
+		defense=engine.defense();
+		Player last=defense.getPlayer(defense.size()-1);
+		hitX=last.pos().x;
+		hitY=last.pos().y;
+	}
+
+	/**
+	 * Worst case hit, the last defender in the team
+	 */
+	@Benchmark
+	public Player findPlayerHit()
+	{
+		return defense.findPlayer(hitX,hitY);
+	}
+
+	/**
+	 * A miss checks every defender
+	 */
+	@Benchmark
+	public Player findPlayerMiss()
+	{
+		return defense.findPlayer(-2,-2);
+	}
+}
@@ -0,0 +1,62 @@
+package com.redpantssoft.hhfootball;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The frame path that composes the field before every invalidate, the
+ * {@link FieldView} tile methods delegate to {@link TileGrid}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=10, time=1)
+@Fork(3)
+public class TileGridBenchmark
+{
+	private static final int HOME_TILE=1;
+	private static final int VISITOR_TILE=3;
+	private static final int FOOTBALL_TILE=5;
+
+	private GameEngine engine;
+	private TileGrid grid;
+	private boolean flash;
+
+	@Setup
+	public void setUp()
+	{
+		engine=BenchmarkFixtures.liveEngine();
+		grid=new TileGrid(engine.getFieldLength(),engine.getFieldWidth());
+	}
+
+	/**
+	 * Same work as Game.updatePlayerTiles followed by placing the ball, as
+	 * done for a pass in flight
+	 */
+	@Benchmark
+	public TileGrid updatePlayerTiles()
+	{
+		flash=!flash;
+		grid.clear();
+		grid.setTeamTiles(engine.offense(),HOME_TILE,flash);
+		grid.setTeamTiles(engine.defense(),VISITOR_TILE,flash);
+		grid.setTile(FOOTBALL_TILE,engine.offense().quarterback().pos().x,engine.offense().quarterback().pos().y);
+		return grid;
+	}
+
+	@Benchmark
+	public TileGrid clearTiles()
+	{
+		grid.clear();
+		return grid;
+	}
+
+	@Benchmark
+	public TileGrid setTile()
+	{
+		grid.setTile(FOOTBALL_TILE,1,1);
+		return grid;
+	}
+}
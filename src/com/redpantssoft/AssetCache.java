@@ -0,0 +1,203 @@
+package com.redpantssoft;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.media.AudioManager;
+import android.media.SoundPool;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process wide cache of decoded drawables and sound effects, so that they
+ * are loaded once, ahead of time, rather than by every activity that uses
+ * them.
+ * <p/>
+ * {@link #preload(int[], int[])} decodes assets on a background thread, so
+ * that it can be started from a splash screen while it animates. An asset
+ * that is asked for before the preload has got to it is loaded on the
+ * calling thread instead. A caller only ever waits on the preload for the
+ * sound effect it is decoding at the time.
+ * <p/>
+ * Drawables are kept as their constant state, each {@link #getDrawable(int)}
+ * returns a new Drawable sharing the decoded bitmap. Sound effects are
+ * decoded in to a single SoundPool, which lives as long as the process and
+ * must not be released by its users.
+ */
+public class AssetCache {
+    /**
+     * Logging Tag
+     */
+    private static final String TAG = "AssetCache";
+
+    /**
+     * Maximum number of pooled effects playing at the same time, the
+     * oldest is stopped to play another
+     */
+    private static final int MAX_STREAMS = 4;
+
+    private static AssetCache sInstance;
+
+    /**
+     * @return the process wide cache
+     */
+    public static synchronized AssetCache getInstance(Context context) {
+        if (sInstance == null)
+            sInstance = new AssetCache(context.getApplicationContext());
+        return sInstance;
+    }
+
+    private final Context context;
+
+    /**
+     * Decoded drawables and pooled sounds, by resource id. Guarded by the cache
+     */
+    private final Map<Integer, Drawable.ConstantState> drawables = new HashMap<Integer, Drawable.ConstantState>();
+    private final Map<Integer, Integer> sounds = new HashMap<Integer, Integer>();
+    private SoundPool soundPool;
+
+    private final ExecutorService loader = Executors.newSingleThreadExecutor();
+
+    /**
+     * Lookup counters, see {@link #dumpStats()}
+     */
+    private int preloaded = 0;
+    private int hits = 0;
+    private int misses = 0;
+
+    private AssetCache(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Starts loading assets in the background, those already cached are skipped
+     *
+     * @param drawableIds resource ids of the drawables to decode
+     * @param soundIds    resource ids of the sound effects to decode in to the pool
+     */
+    public void preload(final int[] drawableIds, final int[] soundIds) {
+        loader.execute(new Runnable() {
+            public void run() {
+                long start = System.nanoTime();
+                for (int resid : drawableIds) {
+                    if (!hasDrawable(resid) && putDrawable(resid) != null)
+                        countPreloaded();
+                }
+                for (int resid : soundIds) {
+                    if (!hasSound(resid)) {
+                        putSound(resid);
+                        countPreloaded();
+                    }
+                }
+                Log.i(TAG, "preloaded in " + (System.nanoTime() - start) / 1000000 + "ms");
+            }
+        });
+    }
+
+    /**
+     * @return a new drawable for the resource, sharing the cached image
+     */
+    public Drawable getDrawable(int resid) {
+        Drawable.ConstantState state;
+        synchronized (this) {
+            state = drawables.get(resid);
+            if (state != null)
+                hits++;
+            else
+                misses++;
+        }
+
+        if (state == null)
+            state = putDrawable(resid);
+        return state != null ? state.newDrawable(context.getResources())
+                : context.getResources().getDrawable(resid);
+    }
+
+    /**
+     * @return the pool the sound effects are decoded in to
+     */
+    public synchronized SoundPool getSoundPool() {
+        if (soundPool == null)
+            soundPool = new SoundPool(MAX_STREAMS, AudioManager.STREAM_MUSIC, 0);
+        return soundPool;
+    }
+
+    /**
+     * @return the id in the pool of the sound effect, see {@link #getSoundPool()}
+     */
+    public int getSound(int resid) {
+        synchronized (this) {
+            Integer soundId = sounds.get(resid);
+            if (soundId != null) {
+                hits++;
+                return soundId;
+            }
+            misses++;
+        }
+        return putSound(resid);
+    }
+
+    /**
+     * Routine that dumps the cache lookup counters to the log
+     */
+    public synchronized void dumpStats() {
+        Log.i(TAG, "preloaded: " + preloaded
+                + ", hits: " + hits
+                + ", misses: " + misses);
+    }
+
+    private synchronized boolean hasDrawable(int resid) {
+        return drawables.containsKey(resid);
+    }
+
+    private synchronized boolean hasSound(int resid) {
+        return sounds.containsKey(resid);
+    }
+
+    private synchronized void countPreloaded() {
+        preloaded++;
+    }
+
+    /**
+     * Decodes a drawable and caches it. Decoding is done outside the lock, if
+     * two threads race to decode the same drawable the first one cached wins
+     *
+     * @return the cached state, or null if the drawable can't be shared
+     */
+    private Drawable.ConstantState putDrawable(int resid) {
+        Drawable.ConstantState state;
+        try {
+            state = context.getResources().getDrawable(resid).getConstantState();
+        } catch (Resources.NotFoundException e) {
+            Log.w(TAG, "Drawable not found: " + resid);
+            return null;
+        }
+        if (state == null)
+            return null;
+
+        synchronized (this) {
+            Drawable.ConstantState cached = drawables.get(resid);
+            if (cached != null)
+                return cached;
+            drawables.put(resid, state);
+        }
+        return state;
+    }
+
+    /**
+     * Decodes a sound effect in to the pool. The lock is held while it loads,
+     * so that an effect is never loaded twice
+     */
+    private synchronized int putSound(int resid) {
+        Integer soundId = sounds.get(resid);
+        if (soundId == null) {
+            soundId = getSoundPool().load(context, resid, 1);
+            sounds.put(resid, soundId);
+        }
+        return soundId;
+    }
+}
@@ -1,7 +1,5 @@
 package com.redpantssoft;
 
-import android.os.Bundle;
-
 /**
  * Represents a coordinate in 2d space
  *
@@ -38,29 +36,6 @@ public class Coordinate {
         this.y = pos.y;
     }
 
-    /**
-     * Deserializing constructor
-     *
-     * @param bundle  Bundle to deserialize the coordinate values
-     */
-    public Coordinate(Bundle bundle) {
-        x = bundle.getInt("x");
-        y = bundle.getInt("y");
-    }
-
-    /**
-     * Serializes the coordinate to the specified Bundle
-     *
-     * @return  the serialized Bundle
-     */
-    public Bundle serialize() {
-        Bundle bundle = new Bundle();
-        bundle.putInt("x", x);
-        bundle.putInt("y", y);
-
-        return bundle;
-    }
-
     /**
      * Test for equality with specified x,y coordinate
      *
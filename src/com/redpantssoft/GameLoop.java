@@ -0,0 +1,210 @@
+package com.redpantssoft;
+
+import android.os.Handler;
+import android.os.Message;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Fixed timestep game loop based on the Android send message/handler api.
+ * <p/>
+ * The loop runs on the thread of the Looper it is created on. Each time
+ * it wakes, the real time elapsed on the monotonic uptime clock is added to
+ * an accumulator, and a fixed step is run for every whole step interval in
+ * the accumulator, so the steps run at an exact average rate however late
+ * the loop is woken and however long the steps take. The next wake up is
+ * scheduled at the absolute time the next step is due, so the loop does not
+ * drift.
+ * <p/>
+ * After a stall the loop catches up by running several steps in a row,
+ * but at most {@code maxCatchUpSteps}, and no more once a step interval of
+ * real time has been spent running them. Any time still owed after that is
+ * dropped, the loop falls behind real time rather than spiralling further
+ * behind.
+ * <p/>
+ * A user implements the GameLoop.StepHandler interface, which takes care of
+ * running a step and of updating anything that only needs doing once per
+ * wake up, after the steps.
+ */
+public class GameLoop extends Handler {
+    /**
+     * Logging Tag
+     */
+    private static final String TAG = "GameLoop";
+
+    /**
+     * Represents a global message ID for game loop messages
+     */
+    private static final int LOOP_MESSAGE_ID = 1025;
+
+    /**
+     * Interface to run the steps of the game loop
+     */
+    public interface StepHandler {
+        /**
+         * Called to run a single fixed step
+         *
+         * @return true to keep the loop running
+         */
+        public boolean handleStep();
+
+        /**
+         * Called once per wake up of the loop, after the steps that were due
+         */
+        public void handleFrame();
+    }
+
+    /**
+     * Fixed interval of a step, in milliseconds
+     */
+    private final int stepMillis;
+
+    /**
+     * Maximum number of steps run in one wake up of the loop
+     */
+    private final int maxCatchUpSteps;
+
+    /**
+     * Reference to the step handler, set at creation
+     */
+    private final StepHandler handler;
+
+    /**
+     * Flag that indicates whether or not the loop is running
+     */
+    private boolean running = false;
+
+    /**
+     * Uptime, in milliseconds, the accumulator was last advanced to
+     */
+    private long lastMillis;
+
+    /**
+     * Real time elapsed that steps have not yet been run for, in milliseconds
+     */
+    private long accumulator;
+
+    /**
+     * Per step timing, reported and reset by {@link #dumpStepCost()}
+     */
+    private int frames = 0;
+    private int steps = 0;
+    private int catchUpFrames = 0;
+    private long droppedMillis = 0;
+    private long stepNanos = 0;
+    private long maxStepNanos = 0;
+
+    /**
+     * The same step timing, in the metrics registry, shared by every loop
+     */
+    private static final Metrics.Histogram STEP = Metrics.histogram("loop.step");
+    private static final Metrics.Counter CATCH_UP_FRAMES = Metrics.counter("loop.catchUpFrames");
+    private static final Metrics.Counter DROPPED_MILLIS = Metrics.counter("loop.droppedMillis");
+
+    /**
+     * Constructor
+     *
+     * @param stepMillis      fixed interval of a step, in milliseconds
+     * @param maxCatchUpSteps maximum number of steps run in one wake up of the loop
+     * @param handler         reference to the step handler
+     */
+    public GameLoop(int stepMillis, int maxCatchUpSteps, StepHandler handler) {
+        this.stepMillis = stepMillis;
+        this.maxCatchUpSteps = maxCatchUpSteps;
+        this.handler = handler;
+    }
+
+    /**
+     * Starts the loop, the first step is run one step interval from now.
+     * Time that passed while the loop was stopped is not caught up.
+     */
+    public void start() {
+        running = true;
+        lastMillis = SystemClock.uptimeMillis();
+        accumulator = 0;
+        removeMessages(LOOP_MESSAGE_ID, this);
+        sendMessageAtTime(obtainMessage(LOOP_MESSAGE_ID, this), lastMillis + stepMillis);
+    }
+
+    /**
+     * Stops the loop
+     */
+    public void stop() {
+        running = false;
+        removeMessages(LOOP_MESSAGE_ID, this);
+    }
+
+    /**
+     * Implementation of the android.handler.handleMessage method. This
+     * is called to handle messages delivered to the looper message queue.
+     *
+     * @param msg message being delivered from looper thread
+     */
+    @Override
+    public void handleMessage(Message msg) {
+        if (!running || (msg.what != LOOP_MESSAGE_ID) || (msg.obj != this))
+            return;
+
+        long now = SystemClock.uptimeMillis();
+        accumulator += now - lastMillis;
+        lastMillis = now;
+
+        int ran = 0;
+        while (running && accumulator >= stepMillis && ran < maxCatchUpSteps) {
+            long start = System.nanoTime();
+            running = handler.handleStep();
+            long elapsed = System.nanoTime() - start;
+
+            accumulator -= stepMillis;
+            ran++;
+            steps++;
+            stepNanos += elapsed;
+            if (elapsed > maxStepNanos)
+                maxStepNanos = elapsed;
+            STEP.record(elapsed);
+
+            // Don't keep catching up past the time the next step is due
+            if (SystemClock.uptimeMillis() - now >= stepMillis)
+                break;
+        }
+
+        if (ran > 1) {
+            catchUpFrames++;
+            CATCH_UP_FRAMES.increment();
+        }
+        if (accumulator >= stepMillis) {
+            long dropped = accumulator - accumulator % stepMillis;
+            droppedMillis += dropped;
+            DROPPED_MILLIS.add(dropped);
+            accumulator %= stepMillis;
+        }
+
+        frames++;
+        handler.handleFrame();
+
+        if (running)
+            sendMessageAtTime(obtainMessage(LOOP_MESSAGE_ID, this), now + stepMillis - accumulator);
+    }
+
+    /**
+     * Routine that dumps the cost of the steps run so far and how often the
+     * loop had to catch up, and resets the counters.
+     */
+    public void dumpStepCost() {
+        if (steps > 0) {
+            Log.i(TAG, "steps: " + steps
+                    + ", frames: " + frames
+                    + ", catch up frames: " + catchUpFrames
+                    + ", dropped ms: " + droppedMillis
+                    + ", us/step: " + stepNanos / steps / 1000
+                    + ", max us/step: " + maxStepNanos / 1000);
+        }
+
+        frames = 0;
+        steps = 0;
+        catchUpFrames = 0;
+        droppedMillis = 0;
+        stepNanos = 0;
+        maxStepNanos = 0;
+    }
+}
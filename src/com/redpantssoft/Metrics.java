@@ -0,0 +1,243 @@
+package com.redpantssoft;
+
+import java.util.ArrayList;
+
+/**
+ * Registry of the performance counters and latency histograms of the
+ * application.
+ * <p/>
+ * Metrics are registered once by name, typically into a static final field
+ * of the class that records them, and recording one afterwards is a few
+ * field updates, with no allocation and no locking. A metric is meant to be
+ * recorded from a single thread. It can be read from any thread, but a read
+ * racing a record may see that record half applied, which is good enough
+ * for a debug overlay.
+ * <p/>
+ * Histograms have fixed power of two buckets of microseconds, the first
+ * holding samples under 1us and the last everything from about a quarter of
+ * a second up, so a percentile is only known to within a factor of two.
+ * A histogram of an operation on a hot path can be sampled, only one in
+ * every few operations reads the clock, and its count is then the number of
+ * samples.
+ * <p/>
+ * The registry has no android dependencies, the owner of the display
+ * decides where {@link #format(StringBuilder)} goes.
+ */
+public final class Metrics {
+    /**
+     * Number of buckets of a histogram
+     */
+    public static final int BUCKETS = 20;
+
+    /**
+     * A count of events, or a running total
+     */
+    public static final class Counter {
+        private final String name;
+        private long count = 0;
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public void increment() {
+            count++;
+        }
+
+        public void add(long n) {
+            count += n;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        private void reset() {
+            count = 0;
+        }
+    }
+
+    /**
+     * Distribution of the durations of an operation
+     */
+    public static final class Histogram {
+        /**
+         * Start time of an operation that is not sampled
+         */
+        private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+        private final String name;
+        private final int sampleMask;
+        private int operations = 0;
+        private final int[] buckets = new int[BUCKETS];
+        private long count = 0;
+        private long sumNanos = 0;
+        private long maxNanos = 0;
+
+        private Histogram(String name, int sampleEvery) {
+            this.name = name;
+            this.sampleMask = sampleEvery - 1;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * @return the start time of an operation, to pass to {@link #stop(long)},
+         *         the clock is not read if the operation is not sampled
+         */
+        public long start() {
+            if ((operations++ & sampleMask) != 0)
+                return NOT_SAMPLED;
+            return System.nanoTime();
+        }
+
+        /**
+         * Records the duration of an operation that began at start, if it was sampled
+         */
+        public void stop(long start) {
+            if (start != NOT_SAMPLED)
+                record(System.nanoTime() - start);
+        }
+
+        public void record(long nanos) {
+            int bucket = 64 - Long.numberOfLeadingZeros(nanos / 1000);
+            buckets[bucket < BUCKETS ? bucket : BUCKETS - 1]++;
+            count++;
+            sumNanos += nanos;
+            if (nanos > maxNanos)
+                maxNanos = nanos;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long meanMicros() {
+            return count > 0 ? sumNanos / count / 1000 : 0;
+        }
+
+        public long maxMicros() {
+            return maxNanos / 1000;
+        }
+
+        /**
+         * @param percent percentage of the samples, 0 to 100
+         * @return the upper bound, in microseconds, of the bucket that the
+         *         given percentage of the samples fall in or under, or the
+         *         maximum if that is lower, 0 if nothing has been recorded
+         */
+        public long percentileMicros(int percent) {
+            long rank = (count * percent + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < BUCKETS && count > 0; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0)
+                    return i < BUCKETS - 1 ? Math.min(1L << i, maxMicros()) : maxMicros();
+            }
+            return 0;
+        }
+
+        private void reset() {
+            for (int i = 0; i < BUCKETS; i++)
+                buckets[i] = 0;
+            count = 0;
+            sumNanos = 0;
+            maxNanos = 0;
+        }
+    }
+
+    /**
+     * Every metric registered so far, in order of registration. Guarded by
+     * the class, only while registering, formatting and resetting
+     */
+    private static final ArrayList<Counter> counters = new ArrayList<Counter>();
+    private static final ArrayList<Histogram> histograms = new ArrayList<Histogram>();
+
+    private Metrics() {
+    }
+
+    /**
+     * @return the counter registered under name, registering it if there is none
+     */
+    public static synchronized Counter counter(String name) {
+        for (int i = 0; i < counters.size(); i++) {
+            if (counters.get(i).name.equals(name))
+                return counters.get(i);
+        }
+        Counter counter = new Counter(name);
+        counters.add(counter);
+        return counter;
+    }
+
+    /**
+     * @return the histogram registered under name, registering it if there is none
+     */
+    public static Histogram histogram(String name) {
+        return histogram(name, 1);
+    }
+
+    /**
+     * @param sampleEvery the histogram times one in this many operations, a
+     *                    power of two. It only applies when the histogram
+     *                    is registered
+     * @return the histogram registered under name, registering it if there is none
+     */
+    public static synchronized Histogram histogram(String name, int sampleEvery) {
+        if (sampleEvery <= 0 || (sampleEvery & (sampleEvery - 1)) != 0)
+            throw new IllegalArgumentException("sampleEvery must be a power of two: " + sampleEvery);
+
+        for (int i = 0; i < histograms.size(); i++) {
+            if (histograms.get(i).name.equals(name))
+                return histograms.get(i);
+        }
+        Histogram histogram = new Histogram(name, sampleEvery);
+        histograms.add(histogram);
+        return histogram;
+    }
+
+    /**
+     * Appends a line per metric that has been recorded since the last reset,
+     * histograms first, as
+     * <pre>
+     *   name n=count mean=us p50&lt;=us p99&lt;=us max=us
+     *   name count
+     * </pre>
+     */
+    public static synchronized void format(StringBuilder out) {
+        for (int i = 0; i < histograms.size(); i++) {
+            Histogram h = histograms.get(i);
+            if (h.count() == 0)
+                continue;
+            out.append(h.name)
+                    .append(" n=").append(h.count())
+                    .append(" mean=").append(h.meanMicros())
+                    .append("us p50<=").append(h.percentileMicros(50))
+                    .append("us p99<=").append(h.percentileMicros(99))
+                    .append("us max=").append(h.maxMicros())
+                    .append("us\n");
+        }
+        for (int i = 0; i < counters.size(); i++) {
+            Counter c = counters.get(i);
+            if (c.count() == 0)
+                continue;
+            out.append(c.name).append(' ').append(c.count()).append('\n');
+        }
+    }
+
+    /**
+     * Zeroes every metric. Records made at the same time on other threads may
+     * survive the reset.
+     */
+    public static synchronized void reset() {
+        for (int i = 0; i < histograms.size(); i++)
+            histograms.get(i).reset();
+        for (int i = 0; i < counters.size(); i++)
+            counters.get(i).reset();
+    }
+}
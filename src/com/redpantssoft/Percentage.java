@@ -1,7 +1,5 @@
 package com.redpantssoft;
 
-import java.util.Random;
-
 /**
  * Represents a percentage test.
  *
@@ -10,13 +8,11 @@ import java.util.Random;
  * with an approximate frequency of the specified percentage.
  * For instance, a Percentage object set to 50% should return
  * true from test half of the times it is called.
+ *
+ * The random numbers are drawn from the {@link RandomSource}
+ * passed to the test, so that a Percentage can be shared.
  */
 public class Percentage {
-    /**
-     * Random number generator
-     */
-    private final Random rand = new Random();
-
     /**
      * Specified percentage value
      */
@@ -46,9 +42,10 @@ public class Percentage {
      * Test method, should return true at a frequency
      * equal to the specified percentage
      *
+     * @param rand source of the random number
      * @return boolean representing hit or miss
      */
-    public boolean test() {
+    public boolean test(RandomSource rand) {
         return (rand.nextInt(100) < percentage);
     }
 
@@ -56,11 +53,12 @@ public class Percentage {
      * Test method that allows for a temporary tweak of the
      * specified percentage for that test only.
      *
+     * @param rand source of the random number
      * @param adjust percentage adjustment to apply, can
      * be a positive or negative number
      * @return boolean representing hir or miss
      */
-    public boolean test(int adjust) {
+    public boolean test(RandomSource rand, int adjust) {
         int percentage = this.percentage + adjust;
         if (percentage > 100)
             percentage = 100;
@@ -0,0 +1,99 @@
+package com.redpantssoft;
+
+/**
+ * Seedable source of random numbers.
+ *
+ * All of the random decisions made for a game should be drawn from a
+ * single RandomSource, so that the same seed and the same inputs always
+ * produce the same game.
+ *
+ * The generator is the 48 bit linear congruential generator of
+ * java.util.Random, and produces the same sequences for the same seed,
+ * but its state is accessible so that it can be saved and restored
+ * with the rest of the game.
+ */
+public class RandomSource {
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    /**
+     * Seed the generator was created with
+     */
+    private final long seed;
+
+    /**
+     * Current state of the generator
+     */
+    private long state;
+
+    /**
+     * Constructor
+     *
+     * @param seed seed for the generator
+     */
+    public RandomSource(long seed) {
+        this.seed = seed;
+        this.state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    /**
+     * Constructor, restores a generator saved part way through its sequence
+     *
+     * @param seed  seed the generator was created with
+     * @param state state of the generator, from {@link #state()}
+     */
+    public RandomSource(long seed, long state) {
+        this.seed = seed;
+        this.state = state & MASK;
+    }
+
+    /**
+     * Accessor for the seed the generator was created with
+     *
+     * @return seed value
+     */
+    public final long seed() {
+        return seed;
+    }
+
+    /**
+     * Accessor for the current state of the generator
+     *
+     * @return state value
+     */
+    public final long state() {
+        return state;
+    }
+
+    private int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * @param n upper bound, exclusive, must be positive
+     * @return uniformly distributed value between 0 and n-1
+     */
+    public int nextInt(int n) {
+        if (n <= 0)
+            throw new IllegalArgumentException("n must be positive");
+
+        if ((n & -n) == n)
+            return (int) ((n * (long) next(31)) >> 31);
+
+        int bits, val;
+        do {
+            bits = next(31);
+            val = bits % n;
+        } while (bits - val + (n - 1) < 0);
+        return val;
+    }
+
+    /**
+     * @return uniformly distributed boolean value
+     */
+    public boolean nextBoolean() {
+        return next(1) != 0;
+    }
+}
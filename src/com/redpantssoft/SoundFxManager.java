@@ -13,9 +13,11 @@ import java.util.Map;
 /**
  * Class to simplify handling of sound effects that use the MediaPlayer interface
  * <p/>
- * A SoundFxManager object is initialized with the context of the current activity and
- * handles interactions with the AudioManager on the context's behalf, including getting
- * the correct media volume
+ * A SoundFxManager object is initialized with the current activity and handles
+ * interactions with the AudioManager on the application's behalf, including getting
+ * the correct media volume. It only keeps the application context, so it can
+ * outlive the activity, for example to be handed to the activity recreated
+ * after a rotation.
  * <p/>
  * It maintains a table of sound effects, that can be added to and removed from dynamically.
  * All sound effects are stored in the project as raw resources and are added via their
@@ -30,6 +32,11 @@ public class SoundFxManager {
      */
     private static final String TAG = "SoundFxManager";
 
+    /**
+     * Latency of playing a streamed effect, which prepares its MediaPlayer
+     */
+    private static final Metrics.Histogram PLAY_STREAMED = Metrics.histogram("audio.playSfx.streamed");
+
     /**
      * Class to represent a specific sound effect in the the sound effect
      * table. Each effect can have a specific volume and can be paused. The
@@ -98,7 +105,7 @@ public class SoundFxManager {
     }
 
     /**
-     * Current context of the owning activity
+     * Context of the application, not the activity, so the manager can outlive it
      */
     private final Context context;
 
@@ -134,7 +141,7 @@ public class SoundFxManager {
      * @param activity reference to the current owning activity
      */
     public SoundFxManager(Activity activity) {
-        this.context = activity;
+        this.context = activity.getApplicationContext();
         initialize(activity);
     }
 
@@ -161,7 +168,7 @@ public class SoundFxManager {
      *
      * @return current system volume as a percentage of the maximum volume
      */
-    private float getSystemVolume() {
+    protected float getSystemVolume() {
         if (mute)
             return 0;
 
@@ -202,6 +209,27 @@ public class SoundFxManager {
         Log.i(TAG, String.format("Added new sfx: %d", stream.resid));
     }
 
+    /**
+     * Adds a sound effect that is streamed from its resource as it plays,
+     * rather than decoded in to memory, suited to long or looping effects.
+     * All effects are streamed by this manager, so this is the same as
+     * {@link #addSfx(int, int)}.
+     *
+     * @param key   desired key to reference this effect
+     * @param resid resource id of the sound file to load
+     */
+    public void addStreamedSfx(int key, int resid) {
+        addSfx(key, resid);
+    }
+
+    /**
+     * @param key key of the effect
+     * @return true if an effect has been added with the key
+     */
+    protected boolean hasSfx(int key) {
+        return sfxTable.containsKey(key);
+    }
+
     /**
      * Configures the volume for a specific effect.
      * <p/>
@@ -239,7 +267,13 @@ public class SoundFxManager {
      * @see #stopSfx(int)
      */
     public boolean playSfx(int key, boolean loop) {
+        long start = PLAY_STREAMED.start();
+        boolean played = playStreamedSfx(key, loop);
+        PLAY_STREAMED.stop(start);
+        return played;
+    }
 
+    private boolean playStreamedSfx(int key, boolean loop) {
         if (!sfxTable.containsKey(key)) {
             Log.e(TAG, String.format("Undefined sfx key '%s' in 'playSfx'", key));
             return false;
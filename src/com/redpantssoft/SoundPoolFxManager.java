@@ -0,0 +1,257 @@
+package com.redpantssoft;
+
+import android.app.Activity;
+import android.media.SoundPool;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SoundFxManager that decodes short sound effects once in to a SoundPool,
+ * so that they can be triggered with next to no latency and without
+ * preparing a MediaPlayer on the calling thread. The pool and the decoded
+ * effects come from an {@link AssetCache}, so they outlive the manager and
+ * are shared with the next one.
+ * <p/>
+ * Effects added with {@link #addSfx(int, int)} are played from the pool.
+ * Long or looping effects, which would take too much memory decoded (the
+ * pool truncates a sample over about 1MB decoded), should be added with
+ * {@link #addStreamedSfx(int, int)} and are streamed by a MediaPlayer as in
+ * {@link SoundFxManager}. Both kinds of effect are referenced by key through
+ * the same methods.
+ * <p/>
+ * The pool loads effects asynchronously, an effect played before it has
+ * finished loading is not heard. Effects preloaded by the cache are usually
+ * ready by the time they are added.
+ */
+public class SoundPoolFxManager extends SoundFxManager {
+    /**
+     * Logging Tag
+     */
+    private static final String TAG = "SoundPoolFxManager";
+
+    /**
+     * Latency of playing a pooled effect
+     */
+    private static final Metrics.Histogram PLAY_POOLED = Metrics.histogram("audio.playSfx.pooled");
+
+    /**
+     * Class to represent a sound effect decoded in to the pool
+     */
+    private class PooledEffect {
+        /**
+         * Resource id of the sound resource played by the effect
+         */
+        final int resid;
+
+        /**
+         * Id of the decoded sound in the pool
+         */
+        final int soundId;
+
+        /**
+         * Volume of the effect, as a percentage of the system volume
+         */
+        float volume = 1;
+
+        /**
+         * Id of the stream last started for the effect, 0 if none
+         */
+        int streamId = 0;
+
+        /**
+         * Flag to indicate whether that stream loops
+         */
+        boolean looping = false;
+
+        PooledEffect(int resid, int soundId) {
+            this.resid = resid;
+            this.soundId = soundId;
+        }
+    }
+
+    /**
+     * Cache the effects are decoded in to
+     */
+    private final AssetCache assets;
+
+    /**
+     * Pool of decoded effects, shared through the cache
+     */
+    private final SoundPool soundPool;
+
+    /**
+     * Table that maps an integer key to a pooled effect
+     */
+    private final Map<Integer, PooledEffect> poolTable = new HashMap<Integer, PooledEffect>();
+
+    /**
+     * Flag to indicate if the pooled effects are paused
+     */
+    private boolean paused = false;
+
+    /**
+     * @param activity reference to the current owning activity
+     * @param assets   cache the effects are decoded in to
+     */
+    public SoundPoolFxManager(Activity activity, AssetCache assets) {
+        super(activity);
+        this.assets = assets;
+        this.soundPool = assets.getSoundPool();
+    }
+
+    /**
+     * Adds a short sound effect, decoded in to the pool.
+     * <p/>
+     * If an effect with the same key already exists, that effect
+     * will be replaced with the new sound file.
+     *
+     * @param key   desired key to reference this effect
+     * @param resid resource id of the sound file to load
+     */
+    @Override
+    public void addSfx(int key, int resid) {
+        PooledEffect effect = poolTable.get(key);
+        if (effect != null) {
+            if (effect.resid == resid)
+                return;
+            release(key);
+        } else if (super.hasSfx(key)) {
+            super.release(key);
+        }
+
+        effect = new PooledEffect(resid, assets.getSound(resid));
+        poolTable.put(key, effect);
+
+        Log.i(TAG, String.format("Added new pooled sfx: %d", resid));
+    }
+
+    /**
+     * Adds a sound effect that is streamed by a MediaPlayer, for long or
+     * looping effects.
+     *
+     * @param key   desired key to reference this effect
+     * @param resid resource id of the sound file to load
+     */
+    @Override
+    public void addStreamedSfx(int key, int resid) {
+        if (poolTable.containsKey(key))
+            release(key);
+
+        super.addSfx(key, resid);
+    }
+
+    @Override
+    public boolean setSfxVolume(int key, float volume) {
+        PooledEffect effect = poolTable.get(key);
+        if (effect == null)
+            return super.setSfxVolume(key, volume);
+
+        assert (volume >= 0 && volume <= 1);
+        effect.volume = volume;
+        return true;
+    }
+
+    /**
+     * Plays a specific sound effect. A pooled effect is started on a new
+     * stream, another play of the same effect is left to finish, unless it
+     * loops. A looping stream is stopped first, as it would never finish and
+     * could not be stopped once its stream id is replaced.
+     *
+     * @param key  key of effect to play
+     * @param loop flag to indicate whether the effect should be played once or looped
+     * @return true if the operation succeeded, false otherwise. All errors are logged.
+     */
+    @Override
+    public boolean playSfx(int key, boolean loop) {
+        PooledEffect effect = poolTable.get(key);
+        if (effect == null)
+            return super.playSfx(key, loop);
+
+        if (effect.looping && effect.streamId != 0)
+            soundPool.stop(effect.streamId);
+
+        long start = PLAY_POOLED.start();
+        float vol = getSystemVolume() * effect.volume;
+        effect.streamId = soundPool.play(effect.soundId, vol, vol, 1, loop ? -1 : 0, 1f);
+        effect.looping = loop;
+        PLAY_POOLED.stop(start);
+        return true;
+    }
+
+    @Override
+    public boolean stopSfx(int key) {
+        PooledEffect effect = poolTable.get(key);
+        if (effect == null)
+            return super.stopSfx(key);
+
+        if (effect.streamId != 0) {
+            soundPool.stop(effect.streamId);
+            effect.streamId = 0;
+            effect.looping = false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean release(int key) {
+        PooledEffect effect = poolTable.remove(key);
+        if (effect == null)
+            return super.release(key);
+
+        // The decoded effect stays in the cache for the next manager
+        if (effect.streamId != 0)
+            soundPool.stop(effect.streamId);
+        return true;
+    }
+
+    @Override
+    public void release() {
+        super.release();
+
+        for (PooledEffect effect : poolTable.values()) {
+            if (effect.streamId != 0)
+                soundPool.stop(effect.streamId);
+        }
+        poolTable.clear();
+    }
+
+    @Override
+    public void setMute(boolean mute) {
+        super.setMute(mute);
+
+        for (PooledEffect effect : poolTable.values()) {
+            if (effect.streamId != 0) {
+                float vol = getSystemVolume() * effect.volume;
+                soundPool.setVolume(effect.streamId, vol, vol);
+            }
+        }
+    }
+
+    @Override
+    public void pause() {
+        super.pause();
+
+        if (!paused) {
+            paused = true;
+            for (PooledEffect effect : poolTable.values()) {
+                if (effect.streamId != 0)
+                    soundPool.pause(effect.streamId);
+            }
+        }
+    }
+
+    @Override
+    public void resume() {
+        super.resume();
+
+        if (paused) {
+            paused = false;
+            for (PooledEffect effect : poolTable.values()) {
+                if (effect.streamId != 0)
+                    soundPool.resume(effect.streamId);
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.redpantssoft;
 
+import android.os.SystemClock;
 import android.view.animation.Animation;
 import android.widget.TextView;
 
@@ -13,7 +14,8 @@ import java.util.Queue;
  * This class wraps a text view and provides animations for drawing
  * and clearing the text.  The Text can automatically clear after
  * a set period of milliseconds, are be manually cleared. The delay for
- * automatically clearing is implemented on a UI Timer.
+ * automatically clearing is scheduled on a {@link TimerWheel} the owner
+ * advances on the UI thread, with the uptime clock.
  * <p/>
  * It also implements a queue of text strings if numerous setText requests
  * are made. A text string will remain visible until manually cleared, or
@@ -22,7 +24,7 @@ import java.util.Queue;
  *
  * @author Jeff clyne
  */
-public class TextViewAnimator implements Animation.AnimationListener, Timer.TimerHandler {
+public class TextViewAnimator implements Animation.AnimationListener {
     /**
      * TextView that is wrapped and animated
      */
@@ -46,9 +48,19 @@ public class TextViewAnimator implements Animation.AnimationListener, Timer.Time
      */
     private int backgroundColor = 0x50000000;
     /**
-     * Timer to handle automatic clearing of the animated text
+     * Timer wheel the automatic clearing of the animated text is scheduled on
      */
-    private final Timer timer;
+    private final TimerWheel timers;
+
+    /**
+     * Event to handle automatic clearing of the animated text
+     */
+    private final TimerWheel.Event clearEvent = new TimerWheel.Event(0) {
+        @Override
+        protected void onExpired() {
+            clearText();
+        }
+    };
 
     /**
      * Flag that indicates whether or not an animation is active
@@ -111,8 +123,10 @@ public class TextViewAnimator implements Animation.AnimationListener, Timer.Time
      * @param textView specifies an existing text view to wrap
      * @param inAnim   animation to be used to display the text in the view
      * @param outAnim  animation to be used to to clear the text in the view
+     * @param timers   timer wheel, advanced with {@link SystemClock#uptimeMillis()},
+     *                 to schedule the automatic clearing on
      */
-    public TextViewAnimator(TextView textView, Animation inAnim, Animation outAnim) {
+    public TextViewAnimator(TextView textView, Animation inAnim, Animation outAnim, TimerWheel timers) {
         this.textView = textView;
         this.inAnim = inAnim;
         this.outAnim = outAnim;
@@ -121,10 +135,9 @@ public class TextViewAnimator implements Animation.AnimationListener, Timer.Time
         textQueue = new LinkedList<TextDisplay>();
 
         // This object acts as the listener for the animation events
-        // as well as the timer events
         this.inAnim.setAnimationListener(this);
         this.outAnim.setAnimationListener(this);
-        timer = new Timer(this);
+        this.timers = timers;
     }
 
     /**
@@ -169,7 +182,7 @@ public class TextViewAnimator implements Animation.AnimationListener, Timer.Time
     public void clearText() {
         if (!active) return;
 
-        timer.stop();
+        timers.cancel(clearEvent);
         textView.startAnimation(outAnim);
         textView.invalidate();
     }
@@ -249,22 +262,10 @@ public class TextViewAnimator implements Animation.AnimationListener, Timer.Time
                 textView.setBackgroundColor(backgroundColor);
                 textView.setText(d.getText());
                 if (d.getDisplayMillis() > 0)
-                    timer.start(d.getDisplayMillis());
+                    timers.schedule(clearEvent, SystemClock.uptimeMillis() + d.getDisplayMillis());
             } catch (NoSuchElementException e) {
                 animation.cancel();
             }
         }
     }
-
-    /**
-     * Auto clear timer handler
-     * This just automates calling clearText
-     *
-     * @return boolean to indicate if the timer should re-armed
-     */
-    @Override
-    public boolean HandleTimer() {
-        clearText();
-        return false;
-    }
 }
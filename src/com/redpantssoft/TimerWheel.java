@@ -0,0 +1,297 @@
+package com.redpantssoft;
+
+/**
+ * Hierarchical timer wheel, schedules one-shot and repeating events with
+ * constant time insert and cancel.
+ * <p/>
+ * The wheel is externally driven, {@link #advanceTo(long)} is called with
+ * the current time and runs every event that has come due, so any number of
+ * events are multiplexed onto whatever drives the wheel, a single Handler
+ * message or a game tick. Times are in milliseconds, on whatever clock the
+ * owner advances the wheel with, and are rounded up to the resolution of
+ * the wheel.
+ * <p/>
+ * Events are kept in {@link #LEVELS} levels of {@link #SLOTS} slots. The
+ * first level holds the events due within the next {@link #SLOTS} ticks,
+ * one slot per tick, and each further level covers {@link #SLOTS} times the
+ * range of the one below at that coarser granularity. Each time a level
+ * wraps around, the events in the next slot of the level above are
+ * cascaded down. Events further ahead than the wheel covers are parked at
+ * its horizon until they are in range.
+ * <p/>
+ * Events that come due on the same tick run in order of their priority,
+ * lowest first, regardless of the order they were scheduled in.
+ */
+public class TimerWheel {
+    private static final int SLOT_BITS = 6;
+    public static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    public static final int LEVELS = 4;
+
+    /**
+     * Furthest ahead an event can be placed in the wheel, in ticks
+     */
+    private static final long HORIZON = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    /**
+     * An event that can be scheduled on a wheel. An event can only be
+     * scheduled once at a time, scheduling it again moves it.
+     */
+    public static abstract class Event {
+        /**
+         * Order the event runs in, relative to the events due on the same tick
+         */
+        private final int priority;
+
+        /**
+         * Links of the slot list the event is in
+         */
+        private Event prev = this;
+        private Event next = this;
+
+        private boolean scheduled = false;
+        private long dueTick;
+        private long dueMillis = -1;
+        private long periodTicks = 0;
+
+        /**
+         * @param priority order the event runs in, relative to the events due
+         *                 on the same tick, lowest first
+         */
+        protected Event(int priority) {
+            this.priority = priority;
+        }
+
+        /**
+         * @return true if the event is waiting to run
+         */
+        public final boolean isScheduled() {
+            return scheduled;
+        }
+
+        /**
+         * @return time the event is next due, in milliseconds, or -1 if it
+         *         is not scheduled
+         */
+        public final long dueMillis() {
+            return scheduled ? dueMillis : -1;
+        }
+
+        /**
+         * Called from {@link TimerWheel#advanceTo(long)} when the event comes
+         * due. A repeating event has already been rescheduled, and can be
+         * cancelled from here.
+         */
+        protected abstract void onExpired();
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = this;
+            next = this;
+        }
+
+        private void linkBefore(Event other) {
+            prev = other.prev;
+            next = other;
+            other.prev.next = this;
+            other.prev = this;
+        }
+    }
+
+    /**
+     * Head of a list of events, never scheduled itself
+     */
+    private static final class Head extends Event {
+        Head() {
+            super(Integer.MIN_VALUE);
+        }
+
+        @Override
+        protected void onExpired() {
+        }
+    }
+
+    /**
+     * Length of a tick of the wheel, in milliseconds
+     */
+    private final int resolutionMillis;
+
+    /**
+     * Slot lists of each level, created as they are first used
+     */
+    private final Event[][] slots = new Event[LEVELS][SLOTS];
+
+    /**
+     * Events that are due on the tick being run, in priority order
+     */
+    private final Event due = new Head();
+
+    /**
+     * Last tick the wheel was advanced to
+     */
+    private long currentTick;
+
+    /**
+     * Number of events scheduled
+     */
+    private int size = 0;
+
+    /**
+     * @param resolutionMillis length of a tick of the wheel, in milliseconds
+     * @param nowMillis        current time, in milliseconds
+     */
+    public TimerWheel(int resolutionMillis, long nowMillis) {
+        this.resolutionMillis = resolutionMillis;
+        this.currentTick = nowMillis / resolutionMillis;
+    }
+
+    /**
+     * @return number of events scheduled
+     */
+    public final int size() {
+        return size;
+    }
+
+    /**
+     * @return time the wheel was last advanced to, rounded down to the resolution
+     */
+    public final long nowMillis() {
+        return currentTick * resolutionMillis;
+    }
+
+    /**
+     * Schedules a one-shot event. An event due at or before the current
+     * time runs on the next tick.
+     *
+     * @param event     event to schedule
+     * @param dueMillis time the event is due, in milliseconds
+     */
+    public void schedule(Event event, long dueMillis) {
+        scheduleRepeating(event, dueMillis, 0);
+    }
+
+    /**
+     * Schedules a repeating event, it stays scheduled until it is cancelled
+     *
+     * @param event        event to schedule
+     * @param dueMillis    time the event is first due, in milliseconds
+     * @param periodMillis time between each run of the event, in milliseconds,
+     *                     0 for a one-shot event
+     */
+    public void scheduleRepeating(Event event, long dueMillis, int periodMillis) {
+        cancel(event);
+
+        event.dueTick = Math.max((dueMillis + resolutionMillis - 1) / resolutionMillis, currentTick + 1);
+        event.periodTicks = (periodMillis + resolutionMillis - 1) / resolutionMillis;
+        if (periodMillis > 0 && event.periodTicks == 0)
+            event.periodTicks = 1;
+        event.scheduled = true;
+        size++;
+        insert(event);
+    }
+
+    /**
+     * Cancels an event, nothing is done if it is not scheduled
+     *
+     * @param event event to cancel
+     */
+    public void cancel(Event event) {
+        if (event.scheduled) {
+            event.unlink();
+            event.scheduled = false;
+            size--;
+        }
+    }
+
+    /**
+     * Advances the wheel to the current time, running every event that
+     * comes due on the way
+     *
+     * @param nowMillis current time, in milliseconds
+     */
+    public void advanceTo(long nowMillis) {
+        final long target = nowMillis / resolutionMillis;
+        while (currentTick < target) {
+            if (size == 0) {
+                currentTick = target;
+                return;
+            }
+            currentTick++;
+            runTick();
+        }
+    }
+
+    private void runTick() {
+        final int idx = (int) (currentTick & SLOT_MASK);
+        if (idx == 0) {
+            for (int level = 1; level < LEVELS; level++) {
+                int levelIdx = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+                Event slot = slots[level][levelIdx];
+                if (slot != null)
+                    cascade(slot);
+                if (levelIdx != 0)
+                    break;
+            }
+        }
+
+        // Everything in the first level slot is due now, order it by priority
+        Event slot = slots[0][idx];
+        while (slot != null && slot.next != slot) {
+            Event event = slot.next;
+            event.unlink();
+
+            Event after = due.prev;
+            while (after != due && after.priority > event.priority)
+                after = after.prev;
+            event.linkBefore(after.next);
+        }
+
+        while (due.next != due) {
+            Event event = due.next;
+            event.unlink();
+            if (event.periodTicks > 0) {
+                event.dueTick += event.periodTicks;
+                insert(event);
+            } else {
+                event.scheduled = false;
+                size--;
+            }
+            event.onExpired();
+        }
+    }
+
+    /**
+     * Moves the events in a slot of an upper level down to where they now belong
+     */
+    private void cascade(Event slot) {
+        Event event = slot.next;
+        slot.prev = slot;
+        slot.next = slot;
+        while (event != slot) {
+            Event next = event.next;
+            insert(event);
+            event = next;
+        }
+    }
+
+    private void insert(Event event) {
+        long tick = event.dueTick;
+        long delta = tick - currentTick;
+        if (delta > HORIZON) {
+            delta = HORIZON;
+            tick = currentTick + HORIZON;
+        }
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1))))
+            level++;
+
+        final int idx = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        if (slots[level][idx] == null)
+            slots[level][idx] = new Head();
+
+        event.dueMillis = event.dueTick * resolutionMillis;
+        event.linkBefore(slots[level][idx]);
+    }
+}
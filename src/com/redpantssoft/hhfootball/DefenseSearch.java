@@ -0,0 +1,658 @@
+package com.redpantssoft.hhfootball;
+
+import java.util.Random;
+
+/**
+ * Chooses the defense's move for an AI update by expectimax search.
+ * <p/>
+ * Each ply of the search is a defense move, one defender stepping to a free
+ * neighbouring tile or making a tackle, followed by a chance node for the ball
+ * carrier, who is assumed to run forward, sideways or stay put with fixed odds
+ * before the next update. Leaves are scored on the yards left to the goal and
+ * on how well the defenders close in on and get ahead of the ball carrier.
+ * Only the defenders nearest the ball carrier are moved in the search, the
+ * others are obstacles. Nearness is measured along paths around the other
+ * players, from a {@link DistanceField} computed once per search from the ball
+ * carrier's tile, so defenders blocked behind a teammate are not counted as
+ * close. Deeper in the search the path from a defender's tile is estimated
+ * from that field, less how far the ball carrier has moved since, but never
+ * less than the straight distance.
+ * <p/>
+ * The search deepens one ply at a time up to the requested depth, and gives up
+ * once it has searched its budget of positions, playing the best move of the deepest search
+ * that completed. Positions are hashed with Zobrist keys into a transposition
+ * table. Coordinates are mirrored so the offense always runs towards higher x,
+ * so positions are shared by both directions of play. An entry is only used
+ * by the search that stored it, for exactly the depth it was stored at. Every
+ * visit counts against the budget, table hits included, so the positions a
+ * search visits, where the budget cuts it off, and the move chosen only depend
+ * on the position and the budget, not on earlier searches. The budget is
+ * counted in positions rather than time so that a replayed or restored game
+ * makes the same moves as the original.
+ */
+class DefenseSearch
+{
+	private static final int MAX_YARDS=100;
+	private static final int MAX_DEPTH=63;
+
+	/**
+	 * Number of defenders, nearest the ball carrier first, moved in the search
+	 */
+	private static final int CANDIDATES=3;
+
+	/**
+	 * Defender steps: forward, back, up, down, relative to the offense's direction
+	 */
+	private static final int[] STEP_X={1,-1,0,0};
+	private static final int[] STEP_Y={0,0,-1,1};
+
+	/**
+	 * Odds of each ball carrier move: stay, forward, up and down. Running back
+	 * is never worth it, so it is left out.
+	 */
+	private static final int[] CARRIER_X={0,1,0,0};
+	private static final int[] CARRIER_Y={0,0,-1,1};
+	private static final int[] CARRIER_WEIGHT={1,3,1,1};
+
+	/**
+	 * Scoring, from the defense's point of view
+	 */
+	private static final int TOUCHDOWN_SCORE=-100000;
+	private static final int TACKLE_SCORE=100000;
+	private static final int YARD_WEIGHT=16;
+	private static final int NEAREST_WEIGHT=6;
+	private static final int SECOND_WEIGHT=2;
+	private static final int AHEAD_WEIGHT=4;
+	private static final int MOBILITY_WEIGHT=3;
+	private static final int AHEAD_RANGE=3;
+
+	/**
+	 * Path distances are only searched this far from the ball carrier, plus
+	 * the search depth, so a search costs the same however big the field is.
+	 * Defenders further away are ranked by straight distance, beyond the range.
+	 */
+	private static final int PURSUIT_RANGE=8;
+
+	/**
+	 * Zobrist keys, the same for every search of a field size
+	 */
+	private static final long ZOBRIST_SEED=0x4848464c4f4f5241L;
+	private static final long SEARCH_KEY_STEP=0x9e3779b97f4a7c15L;
+	private long[] mZDefender;
+	private long[] mZCarrier;
+	private long[] mZReceiver;
+	private long[] mZYards;
+	private long[] mZDepth;
+
+	/**
+	 * Transposition table, direct mapped on the low bits of the key.
+	 * Entries hold the expectimax value of a position, with the defense to
+	 * move, for one search depth, which is mixed into the key. The key of
+	 * the search is mixed in too, which empties the table for each search
+	 * without clearing it. It is only allocated by the first search, along
+	 * with the keys and the other tables sized by the field, so restoring a
+	 * game stays cheap.
+	 */
+	private final int mTableMask;
+	private long[] mTableKeys;
+	private int[] mTableValues;
+	private long mSearchKey;
+
+	private final FieldSize mFieldSize;
+	private final int mFieldLength;
+	private final int mFieldWidth;
+
+	/**
+	 * Position being searched. Tiles are indexed as FieldSize.tileIndex, in
+	 * coordinates mirrored so the offense runs towards higher x, -1 is off
+	 * the field. The map marks the defenders as DistanceField targets and the
+	 * receiver as an obstacle, it is a uniform grid index of the players so
+	 * every occupancy test is a single lookup
+	 */
+	private final int[] mDefenders;
+	private final int mDefenderCount;
+	private byte[] mMap;
+	private int mCarrier;
+	private int mReceiver;
+	private int mYards;
+	private long mHash;
+	private boolean mMirrored;
+
+	/**
+	 * Path distances from the ball carrier's tile at the root of the search
+	 */
+	private DistanceField mDistances;
+	private int mRootCarrier;
+
+	/**
+	 * Scratch candidate list for each ply
+	 */
+	private int[][] mCandidates;
+
+	private long mNodeLimit;
+	private boolean mAborted;
+
+	/**
+	 * Result of the last search
+	 */
+	private boolean mTackle;
+	private int mTargetX;
+	private int mTargetY;
+	private int mDepthReached;
+
+	/**
+	 * Search counters, since the search was created
+	 */
+	private long mSearches=0;
+	private long mNodes=0;
+	private long mTableHits=0;
+	private long mBudgetExceeded=0;
+
+	/**
+	 * @param field  size of the field, and of the defense
+	 * @param tableBits  log2 of the number of transposition table entries
+	 */
+	DefenseSearch(FieldSize field, int tableBits)
+	{
+		mFieldSize=field;
+		mFieldLength=field.length();
+		mFieldWidth=field.width();
+		mDefenders=new int[field.defenders()];
+		mDefenderCount=field.defenders();
+		mTableMask=(1<<tableBits)-1;
+	}
+
+	/**
+	 * Searches for the defense's next move. Defenders that are off the field
+	 * are left where they are
+	 *
+	 * @param offense  offense, its quarterback is the ball carrier
+	 * @param defense  defense to move
+	 * @param yardsToGoal  yards the ball carrier has left to the goal line
+	 * @param maxDepth  number of defense moves to look ahead
+	 * @param maxNodes  number of positions the search may visit
+	 * @return index of the defender to move, or -1 if none can move. See
+	 *         isTackle, targetX and targetY for the move
+	 */
+	int search(Offense offense, Defense defense, int yardsToGoal, int maxDepth, int maxNodes)
+	{
+		if (mTableKeys == null)
+			allocate();
+
+		mSearches++;
+		mSearchKey=mSearches*SEARCH_KEY_STEP;
+		mNodeLimit=mNodes+maxNodes;
+		mAborted=false;
+		mDepthReached=0;
+		load(offense,defense,yardsToGoal);
+		if (mCarrier < 0)
+			return -1;
+
+		int tackler=findTackler();
+		if (tackler >= 0)
+		{
+			mTackle=true;
+			return tackler;
+		}
+
+		mTackle=false;
+		int bestMove=-1;
+		maxDepth=Math.min(maxDepth,MAX_DEPTH);
+		mRootCarrier=mCarrier;
+		mDistances.compute(mCarrier,mMap,Integer.MAX_VALUE,PURSUIT_RANGE+maxDepth);
+		for (int depth=1;depth<=maxDepth;depth++)
+		{
+			int move=searchRoot(depth);
+			if (mAborted)
+			{
+				mBudgetExceeded++;
+				break;
+			}
+			bestMove=move;
+			mDepthReached=depth;
+		}
+
+		// Out of budget before even one ply, the nearest defender closes in
+		if (bestMove < 0)
+			bestMove=fallbackMove();
+		if (bestMove < 0)
+			return -1;
+
+		int defender=bestMove/STEP_X.length;
+		int step=bestMove%STEP_X.length;
+		int tile=mDefenders[defender];
+		mTargetX=unmirror(tileX(tile)+STEP_X[step]);
+		mTargetY=tileY(tile)+STEP_Y[step];
+		return defender;
+	}
+
+	/**
+	 * @return true if the last search found a tackle, made by the defender it returned
+	 */
+	final boolean isTackle() { return mTackle; }
+
+	/**
+	 * @return tile the defender returned by the last search moves to
+	 */
+	final int targetX() { return mTargetX; }
+	final int targetY() { return mTargetY; }
+
+	/**
+	 * @return depth of the deepest search completed by the last search
+	 */
+	final int depthReached() { return mDepthReached; }
+
+	final long searches() { return mSearches; }
+	final long nodes() { return mNodes; }
+	final long tableHits() { return mTableHits; }
+	final long budgetExceeded() { return mBudgetExceeded; }
+
+	private void allocate()
+	{
+		int tiles=mFieldSize.tiles();
+		mZDefender=new long[tiles];
+		mZCarrier=new long[tiles];
+		mZReceiver=new long[tiles];
+		mZYards=new long[MAX_YARDS+1];
+		mZDepth=new long[MAX_DEPTH+1];
+		Random rand=new Random(ZOBRIST_SEED);
+		for (int i=0;i<tiles;i++)
+		{
+			mZDefender[i]=rand.nextLong();
+			mZCarrier[i]=rand.nextLong();
+			mZReceiver[i]=rand.nextLong();
+		}
+		for (int i=0;i<mZYards.length;i++)
+			mZYards[i]=rand.nextLong();
+		for (int i=0;i<mZDepth.length;i++)
+			mZDepth[i]=rand.nextLong();
+
+		mTableKeys=new long[mTableMask+1];
+		mTableValues=new int[mTableMask+1];
+		mCandidates=new int[MAX_DEPTH+1][CANDIDATES];
+		mMap=new byte[tiles];
+		for (int i=0;i<mDefenderCount;i++)
+			mDefenders[i]=-1;
+		mReceiver=-1;
+		mDistances=new DistanceField(mFieldLength,mFieldWidth);
+	}
+
+	private void load(Offense offense, Defense defense, int yardsToGoal)
+	{
+		// Only the tiles marked by the last search need clearing
+		for (int i=0;i<mDefenderCount;i++)
+		{
+			if (mDefenders[i] >= 0)
+				mMap[mDefenders[i]]=DistanceField.FREE;
+		}
+		if (mReceiver >= 0)
+			mMap[mReceiver]=DistanceField.FREE;
+
+		mMirrored=(offense.orientation() == Team.ORIENTATION_LEFT);
+		mYards=Math.max(0,Math.min(yardsToGoal,MAX_YARDS));
+		mHash=mZYards[mYards];
+
+		for (int i=0;i<mDefenderCount;i++)
+		{
+			Player player=defense.getPlayer(i);
+			mDefenders[i]=tile(player.pos().x,player.pos().y);
+			if (mDefenders[i] >= 0)
+			{
+				mMap[mDefenders[i]]=DistanceField.TARGET;
+				mHash^=mZDefender[mDefenders[i]];
+			}
+		}
+
+		Player carrier=offense.quarterback();
+		mCarrier=tile(carrier.pos().x,carrier.pos().y);
+		if (mCarrier >= 0)
+			mHash^=mZCarrier[mCarrier];
+
+		Player receiver=offense.receiver();
+		mReceiver=tile(receiver.pos().x,receiver.pos().y);
+		if (mReceiver >= 0)
+		{
+			mMap[mReceiver]=DistanceField.OBSTACLE;
+			mHash^=mZReceiver[mReceiver];
+		}
+	}
+
+	private int tile(int x, int y)
+	{
+		if (x < 0 || y < 0)
+			return -1;
+		return mFieldSize.tileIndex(mMirrored?mFieldLength-1-x:x,y);
+	}
+
+	private int unmirror(int x)
+	{
+		return mMirrored?mFieldLength-1-x:x;
+	}
+
+	private int searchRoot(int depth)
+	{
+		mNodes++;
+		int[] candidates=mCandidates[0];
+		int count=findCandidates(candidates);
+
+		int best=Integer.MIN_VALUE;
+		int bestMove=-1;
+		for (int c=0;c<count;c++)
+		{
+			int defender=candidates[c];
+			for (int step=0;step<STEP_X.length;step++)
+			{
+				int to=stepTarget(mDefenders[defender],step);
+				if (to < 0)
+					continue;
+
+				moveDefender(defender,to);
+				int value=chanceNode(depth,1);
+				moveDefender(defender,to-stepOffset(step));
+				if (mAborted)
+					return -1;
+
+				if (value > best)
+				{
+					best=value;
+					bestMove=defender*STEP_X.length+step;
+				}
+			}
+		}
+		return bestMove;
+	}
+
+	/**
+	 * @return expectimax value of the position with the defense to move and
+	 *         depth defense moves left
+	 */
+	private int maxNode(int depth, int ply)
+	{
+		if (++mNodes > mNodeLimit)
+			mAborted=true;
+		if (mAborted)
+			return 0;
+
+		if (findTackler() >= 0)
+			return TACKLE_SCORE+YARD_WEIGHT*mYards+depth;
+
+		long key=mHash^mZDepth[depth]^mSearchKey;
+		int slot=(int)key & mTableMask;
+		if (mTableKeys[slot] == key)
+		{
+			mTableHits++;
+			return mTableValues[slot];
+		}
+
+		int[] candidates=mCandidates[ply];
+		int count=findCandidates(candidates);
+
+		int best=Integer.MIN_VALUE;
+		for (int c=0;c<count;c++)
+		{
+			int defender=candidates[c];
+			for (int step=0;step<STEP_X.length;step++)
+			{
+				int to=stepTarget(mDefenders[defender],step);
+				if (to < 0)
+					continue;
+
+				moveDefender(defender,to);
+				int value=chanceNode(depth,ply+1);
+				moveDefender(defender,to-stepOffset(step));
+				if (value > best)
+					best=value;
+			}
+		}
+
+		// Nobody can move, the ball carrier still can
+		if (best == Integer.MIN_VALUE)
+			best=chanceNode(depth,ply+1);
+
+		if (!mAborted)
+		{
+			mTableKeys[slot]=key;
+			mTableValues[slot]=best;
+		}
+		return best;
+	}
+
+	/**
+	 * @return expected value of the position with the ball carrier to move,
+	 *         followed by depth-1 defense moves
+	 */
+	private int chanceNode(int depth, int ply)
+	{
+		int x=tileX(mCarrier);
+		int y=tileY(mCarrier);
+		int from=mCarrier;
+
+		int sum=0;
+		int weight=0;
+		for (int m=0;m<CARRIER_X.length;m++)
+		{
+			int newY=y+CARRIER_Y[m];
+			if (newY < 0 || newY >= mFieldWidth)
+				continue;
+
+			// Running off the end of the field scrolls it, the play continues
+			//  from the other end
+			int newX=(x+CARRIER_X[m])%mFieldLength;
+			int to=mFieldSize.tileIndex(newX,newY);
+			if (m != 0 && mMap[to] == DistanceField.TARGET)
+				continue;
+
+			int gain=CARRIER_X[m];
+			moveCarrier(from,to,gain);
+			int value;
+			if (mYards <= 0)
+				value=TOUCHDOWN_SCORE;
+			else if (depth <= 1)
+				value=evaluate();
+			else
+				value=maxNode(depth-1,ply);
+			moveCarrier(to,from,-gain);
+
+			sum+=CARRIER_WEIGHT[m]*value;
+			weight+=CARRIER_WEIGHT[m];
+		}
+		return sum/weight;
+	}
+
+	/**
+	 * Static score of a position, from the defense's point of view
+	 */
+	private int evaluate()
+	{
+		int cx=tileX(mCarrier);
+		int cy=tileY(mCarrier);
+
+		int nearest=Integer.MAX_VALUE;
+		int second=Integer.MAX_VALUE;
+		int ahead=0;
+		for (int i=0;i<mDefenderCount;i++)
+		{
+			int tile=mDefenders[i];
+			if (tile < 0)
+				continue;
+
+			int dist=pursuitDistance(tile);
+			if (dist < nearest)
+			{
+				second=nearest;
+				nearest=dist;
+			}
+			else if (dist < second)
+				second=dist;
+
+			int dx=tileX(tile)-cx;
+			if (dx > 0 && dx <= AHEAD_RANGE)
+				ahead++;
+		}
+		if (nearest == Integer.MAX_VALUE)
+			nearest=mDistances.unreachable();
+		if (second == Integer.MAX_VALUE)
+			second=mDistances.unreachable();
+
+		int mobility=0;
+		for (int m=1;m<CARRIER_X.length;m++)
+		{
+			int newY=cy+CARRIER_Y[m];
+			if (newY < 0 || newY >= mFieldWidth)
+				continue;
+			int to=mFieldSize.tileIndex((cx+CARRIER_X[m])%mFieldLength,newY);
+			if (mMap[to] != DistanceField.TARGET)
+				mobility++;
+		}
+
+		return YARD_WEIGHT*mYards - NEAREST_WEIGHT*nearest - SECOND_WEIGHT*second
+				+ AHEAD_WEIGHT*ahead - MOBILITY_WEIGHT*mobility;
+	}
+
+	/**
+	 * @return estimated length of the path from a defender's tile to the ball
+	 *         carrier: the path to the ball carrier's tile at the root, less
+	 *         the straight distance it has moved since, and at least the
+	 *         straight distance to it. If the tile is not within the range of
+	 *         the root's path distances, the straight distance past PURSUIT_RANGE
+	 */
+	private int pursuitDistance(int tile)
+	{
+		int straight=Math.abs(tileX(tile)-tileX(mCarrier))+Math.abs(tileY(tile)-tileY(mCarrier));
+		int dist=mDistances.distance(tile);
+		if (dist == mDistances.unreachable())
+			return PURSUIT_RANGE+straight;
+
+		int moved=Math.abs(tileX(mCarrier)-tileX(mRootCarrier))+Math.abs(tileY(mCarrier)-tileY(mRootCarrier));
+		return Math.max(dist-moved,straight);
+	}
+
+	/**
+	 * @return index of a defender next to the ball carrier, or -1. The
+	 *         lowest index is returned if several are
+	 */
+	private int findTackler()
+	{
+		int cx=tileX(mCarrier);
+		int cy=tileY(mCarrier);
+		if ((cx == 0 || mMap[mCarrier-mFieldWidth] != DistanceField.TARGET) &&
+				(cx == mFieldLength-1 || mMap[mCarrier+mFieldWidth] != DistanceField.TARGET) &&
+				(cy == 0 || mMap[mCarrier-1] != DistanceField.TARGET) &&
+				(cy == mFieldWidth-1 || mMap[mCarrier+1] != DistanceField.TARGET))
+			return -1;
+
+		for (int i=0;i<mDefenderCount;i++)
+		{
+			int tile=mDefenders[i];
+			if (tile >= 0 && Math.abs(tileX(tile)-cx)+Math.abs(tileY(tile)-cy) == 1)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Fills candidates with the defenders with the shortest estimated path to
+	 * the ball carrier, around the other players, lowest index first on ties
+	 *
+	 * @return number of candidates
+	 */
+	private int findCandidates(int[] candidates)
+	{
+		int count=0;
+		for (int i=0;i<mDefenderCount;i++)
+		{
+			int tile=mDefenders[i];
+			if (tile < 0)
+				continue;
+
+			int dist=pursuitDistance(tile);
+			int pos=Math.min(count,CANDIDATES);
+			while (pos > 0 && pursuitDistance(mDefenders[candidates[pos-1]]) > dist)
+			{
+				if (pos < CANDIDATES)
+					candidates[pos]=candidates[pos-1];
+				pos--;
+			}
+			if (pos < CANDIDATES)
+			{
+				candidates[pos]=i;
+				if (count < CANDIDATES)
+					count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return tile a defender on from steps to, or -1 if it is off the field or taken
+	 */
+	private int stepTarget(int from, int step)
+	{
+		int x=tileX(from)+STEP_X[step];
+		int y=tileY(from)+STEP_Y[step];
+		int to=mFieldSize.tileIndex(x,y);
+		if (to < 0 || to == mCarrier || mMap[to] != DistanceField.FREE)
+			return -1;
+		return to;
+	}
+
+	private int stepOffset(int step)
+	{
+		return STEP_X[step]*mFieldWidth+STEP_Y[step];
+	}
+
+	private void moveDefender(int defender, int to)
+	{
+		int from=mDefenders[defender];
+		mMap[from]=DistanceField.FREE;
+		mMap[to]=DistanceField.TARGET;
+		mHash^=mZDefender[from]^mZDefender[to];
+		mDefenders[defender]=to;
+	}
+
+	private void moveCarrier(int from, int to, int gain)
+	{
+		mHash^=mZCarrier[from]^mZCarrier[to]^mZYards[mYards];
+		mCarrier=to;
+		mYards-=gain;
+		mHash^=mZYards[mYards];
+	}
+
+	private int tileX(int tile) { return tile/mFieldWidth; }
+	private int tileY(int tile) { return tile%mFieldWidth; }
+
+	/**
+	 * @return the first step of the defender nearest the ball carrier along
+	 *         its path, or straight towards it if it is out of range, or -1
+	 *         if it can't get closer
+	 */
+	private int fallbackMove()
+	{
+		int[] candidates=mCandidates[0];
+		if (findCandidates(candidates) == 0)
+			return -1;
+
+		int defender=candidates[0];
+		int from=mDefenders[defender];
+		int best=-1;
+		if (mDistances.distance(from) != mDistances.unreachable())
+		{
+			int to=mDistances.bestStep(from,mMap);
+			for (int step=0;step<STEP_X.length && to >= 0;step++)
+			{
+				if (to-from == stepOffset(step))
+					best=step;
+			}
+		}
+		else
+		{
+			// Out of range, close the longer of the gaps to the ball carrier
+			int dx=tileX(mCarrier)-tileX(from);
+			int dy=tileY(mCarrier)-tileY(from);
+			int step=(Math.abs(dx) >= Math.abs(dy)) ? ((dx > 0) ? 0 : 1) : ((dy < 0) ? 2 : 3);
+			if (stepTarget(from,step) >= 0)
+				best=step;
+		}
+		return (best < 0) ? -1 : defender*STEP_X.length+best;
+	}
+}
@@ -0,0 +1,178 @@
+package com.redpantssoft.hhfootball;
+
+/**
+ * Number of steps from one tile of the field to every other, going around
+ * obstacles.
+ * <p/>
+ * The field is filled in by a single breadth first search from the source
+ * tile, over a map giving the kind of each tile. Obstacle tiles are given a
+ * distance, so a player standing on one can read how far away it is, but
+ * paths do not pass through them. Once it is computed, every player reads its
+ * distance and its best next step in constant time, so the cost of the field
+ * does not grow with the number of players using it. Tiles are indexed as
+ * FieldSize.tileIndex.
+ */
+class DistanceField
+{
+	/**
+	 * Kinds of tile in a map. Targets are obstacles the search is looking for
+	 */
+	static final byte FREE=0;
+	static final byte OBSTACLE=1;
+	static final byte TARGET=2;
+
+	private final int mLength;
+	private final int mWidth;
+
+	/**
+	 * Distance of each tile, only valid if its stamp is the current generation,
+	 * otherwise no path to it has been found
+	 */
+	private final int[] mDist;
+	private final int[] mStamp;
+	private int mGeneration=0;
+	private final int mUnreachable;
+
+	/**
+	 * Search queue, a tile is queued at most once
+	 */
+	private final int[] mQueue;
+	private int mTail;
+
+	/**
+	 * Search in progress
+	 */
+	private byte[] mMap;
+	private int mTargetsLeft;
+	private int mMaxDistance;
+
+	/**
+	 * @param length  number of tiles long the field is
+	 * @param width  number of tiles wide the field is
+	 */
+	DistanceField(int length, int width)
+	{
+		mLength=length;
+		mWidth=width;
+		mDist=new int[length*width];
+		mStamp=new int[length*width];
+		mQueue=new int[length*width];
+		mUnreachable=length*width;
+	}
+
+	/**
+	 * @return distance given to tiles that can't be reached, longer than any path
+	 */
+	final int unreachable() { return mUnreachable; }
+
+	/**
+	 * Fills in the distance of the tiles from a source tile, nearest first,
+	 * until enough of the target tiles have been reached or the search is out
+	 * of range. Tiles further away are left unreachable.
+	 *
+	 * @param source  tile the distances are measured from
+	 * @param map  kind of each tile, FREE, OBSTACLE or TARGET
+	 * @param maxTargets  number of targets to reach before stopping
+	 * @param maxDistance  distance beyond which tiles are left unreachable
+	 */
+	void compute(int source, byte[] map, int maxTargets, int maxDistance)
+	{
+		if (++mGeneration == 0)
+		{
+			// Stamps have wrapped around, clear them so none is mistaken as current
+			for (int i=0;i<mStamp.length;i++)
+				mStamp[i]=0;
+			mGeneration=1;
+		}
+
+		mMap=map;
+		mTargetsLeft=maxTargets;
+		mMaxDistance=maxDistance;
+
+		mDist[source]=0;
+		mStamp[source]=mGeneration;
+		mQueue[0]=source;
+		mTail=1;
+		for (int head=0;head<mTail && mTargetsLeft > 0;head++)
+		{
+			int tile=mQueue[head];
+			int dist=mDist[tile]+1;
+			if (dist > mMaxDistance)
+				break;
+
+			int x=tile/mWidth;
+			int y=tile%mWidth;
+
+			if (x > 0)
+				reach(tile-mWidth,dist);
+			if (x < mLength-1)
+				reach(tile+mWidth,dist);
+			if (y > 0)
+				reach(tile-1,dist);
+			if (y < mWidth-1)
+				reach(tile+1,dist);
+		}
+	}
+
+	private void reach(int tile, int dist)
+	{
+		if (mStamp[tile] == mGeneration)
+			return;
+
+		mDist[tile]=dist;
+		mStamp[tile]=mGeneration;
+		if (mMap[tile] == TARGET)
+			mTargetsLeft--;
+		else if (mMap[tile] == FREE)
+			mQueue[mTail++]=tile;
+	}
+
+	/**
+	 * @return steps from the source to a tile, or unreachable()
+	 */
+	final int distance(int tile)
+	{
+		return (mStamp[tile] == mGeneration) ? mDist[tile] : mUnreachable;
+	}
+
+	/**
+	 * @param tile  tile a player is on
+	 * @param map  kind of each tile, the player can only step onto FREE tiles
+	 * @return the free neighbouring tile closest to the source, if it is closer
+	 *         than tile, otherwise -1. Ties go to the first of left, right, up
+	 *         and down
+	 */
+	int bestStep(int tile, byte[] map)
+	{
+		int x=tile/mWidth;
+		int y=tile%mWidth;
+		int best=-1;
+		int bestDist=distance(tile);
+
+		if (x > 0 && closer(tile-mWidth,bestDist,map))
+		{
+			best=tile-mWidth;
+			bestDist=distance(best);
+		}
+		if (x < mLength-1 && closer(tile+mWidth,bestDist,map))
+		{
+			best=tile+mWidth;
+			bestDist=distance(best);
+		}
+		if (y > 0 && closer(tile-1,bestDist,map))
+		{
+			best=tile-1;
+			bestDist=distance(best);
+		}
+		if (y < mWidth-1 && closer(tile+1,bestDist,map))
+			best=tile+1;
+
+		return best;
+	}
+
+	private boolean closer(int tile, int dist, byte[] map)
+	{
+		int d=distance(tile);
+		return d < dist && d > 0 && map[tile] == FREE;
+	}
+}
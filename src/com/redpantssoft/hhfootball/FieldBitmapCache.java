@@ -0,0 +1,253 @@
+package com.redpantssoft.hhfootball;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache of rendered field bitmaps, so the field does not have to be drawn
+ * again on every rotation and every new game.
+ * <p/>
+ * A field bitmap is identified by a key naming its look and its dimensions,
+ * see {@link FieldRenderer}. The most recently used fields, typically one per
+ * orientation, are kept in memory, and every field is saved in the cache
+ * directory as its raw, uncompressed pixels, so a new activity can load it
+ * with a single read and no decoding. Files are written on a background thread
+ * and are named after the version of the app, those of other versions are
+ * deleted when the cache is created.
+ * <p/>
+ * Field bitmaps handed out by the cache are shared and must not be modified.
+ */
+class FieldBitmapCache {
+    // Logging Tag
+    private static final String TAG = "FieldBitmapCache";
+
+    /**
+     * Number of fields kept in memory
+     */
+    private static final int MAX_MEMORY_ENTRIES = 2;
+
+    /**
+     * File header: magic number, width and height
+     */
+    private static final int MAGIC = 0x48484631; // "HHF1"
+    private static final int HEADER_SIZE = 3 * 4;
+
+    private static final String FILE_PREFIX = "field-";
+    private static final String FILE_SUFFIX = ".raw";
+
+    private static FieldBitmapCache sInstance;
+
+    /**
+     * @return the process wide cache
+     */
+    static synchronized FieldBitmapCache getInstance(Context context) {
+        if (sInstance == null) {
+            int version = 0;
+            try {
+                version = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).versionCode;
+            } catch (PackageManager.NameNotFoundException e) {
+                Log.w(TAG, "Package not found, field cache files are not versioned");
+            }
+            sInstance = new FieldBitmapCache(context.getApplicationContext().getCacheDir(), version);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Fields kept in memory, least recently used first
+     */
+    private final LinkedHashMap<String, Bitmap> fields =
+            new LinkedHashMap<String, Bitmap>(MAX_MEMORY_ENTRIES + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bitmap> eldest) {
+                    return size() > MAX_MEMORY_ENTRIES;
+                }
+            };
+
+    private final File dir;
+    private final String filePrefix;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    /**
+     * Lookup counters, see {@link #dumpStats()}
+     */
+    private int memoryHits = 0;
+    private int diskHits = 0;
+    private int misses = 0;
+
+    /**
+     * @param dir     directory the field files are kept in
+     * @param version version of the app, which names the field files
+     */
+    private FieldBitmapCache(File dir, int version) {
+        this.dir = dir;
+        this.filePrefix = FILE_PREFIX + version + "-";
+
+        // Fields drawn by other versions of the app may look different
+        String[] names = dir.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(FILE_PREFIX) && !name.startsWith(filePrefix))
+                    new File(dir, name).delete();
+            }
+        }
+    }
+
+    /**
+     * Looks up a field in memory, then on disk
+     *
+     * @param key    names the look and dimensions of the field
+     * @param width  width of the field bitmap
+     * @param height height of the field bitmap
+     * @return the cached field, or null if it has to be drawn
+     */
+    synchronized Bitmap get(String key, int width, int height) {
+        Bitmap bm = fields.get(key);
+        if (bm != null) {
+            memoryHits++;
+            return bm;
+        }
+
+        bm = read(new File(dir, filePrefix + key + FILE_SUFFIX), width, height);
+        if (bm != null) {
+            diskHits++;
+            fields.put(key, bm);
+            return bm;
+        }
+
+        misses++;
+        return null;
+    }
+
+    /**
+     * Adds a newly drawn field to the cache, it is written to disk in the background
+     *
+     * @param key names the look and dimensions of the field
+     * @param bm  field bitmap, which must not be modified afterwards
+     */
+    synchronized void put(String key, final Bitmap bm) {
+        fields.put(key, bm);
+
+        final File file = new File(dir, filePrefix + key + FILE_SUFFIX);
+        writer.execute(new Runnable() {
+            public void run() {
+                write(file, bm);
+            }
+        });
+    }
+
+    /**
+     * @return fraction of the lookups found in memory or on disk
+     */
+    synchronized float hitRate() {
+        int lookups = memoryHits + diskHits + misses;
+        return lookups == 0 ? 0 : (float) (memoryHits + diskHits) / lookups;
+    }
+
+    /**
+     * Routine that dumps the cache lookup counters to the log
+     */
+    synchronized void dumpStats() {
+        Log.i(TAG, "memory hits: " + memoryHits
+                + ", disk hits: " + diskHits
+                + ", misses: " + misses
+                + ", hit rate: " + hitRate());
+    }
+
+    /**
+     * @return the field stored in a file, or null if it is missing or does not match
+     */
+    private static Bitmap read(File file, int width, int height) {
+        if (!file.exists())
+            return null;
+
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            FileChannel channel = in.getChannel();
+            if (channel.size() != HEADER_SIZE + width * height * 4L)
+                return null;
+
+            ByteBuffer buf = ByteBuffer.allocate((int) channel.size());
+            while (buf.hasRemaining()) {
+                if (channel.read(buf) < 0)
+                    break;
+            }
+            buf.flip();
+            if (buf.remaining() != buf.capacity() || buf.getInt() != MAGIC
+                    || buf.getInt() != width || buf.getInt() != height)
+                return null;
+
+            Bitmap bm = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            bm.copyPixelsFromBuffer(buf);
+            return bm;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read " + file + ": " + e);
+            return null;
+        } catch (OutOfMemoryError e) {
+            Log.w(TAG, "Out of memory reading " + file);
+            return null;
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Writes a field to a temporary file and renames it into place, so a
+     * partly written file is never read
+     */
+    private static void write(File file, Bitmap bm) {
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = null;
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + bm.getRowBytes() * bm.getHeight());
+            buf.putInt(MAGIC);
+            buf.putInt(bm.getWidth());
+            buf.putInt(bm.getHeight());
+            bm.copyPixelsToBuffer(buf);
+            buf.flip();
+
+            out = new FileOutputStream(tmp);
+            FileChannel channel = out.getChannel();
+            while (buf.hasRemaining())
+                channel.write(buf);
+            out.getFD().sync();
+            out.close();
+            out = null;
+
+            if (!tmp.renameTo(file))
+                tmp.delete();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write " + file + ": " + e);
+            tmp.delete();
+        } catch (OutOfMemoryError e) {
+            Log.w(TAG, "Out of memory writing " + file);
+        } finally {
+            close(out);
+        }
+    }
+
+    private static void close(Closeable c) {
+        if (c != null) {
+            try {
+                c.close();
+            } catch (IOException e) {
+                // Nothing to do
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.redpantssoft.hhfootball;
+
+import android.graphics.drawable.Drawable;
+
+/**
+ * FieldDisplay: the operations the game uses to show the field of play. The
+ * game composes each frame by setting tiles on the grid and then calls
+ * {@link #invalidateTiles()} to present it.
+ *
+ * Implemented by {@link FieldView}, drawn on the UI thread, and by
+ * {@link FieldSurfaceView}, drawn on its own render thread.
+ */
+interface FieldDisplay {
+    /**
+     * Returns the number of tiles long (between the end zones) the playing field is
+     */
+    int getFieldLength();
+
+    /**
+     * Returns the number of tiles wide (between the boundaries) the playing field is
+     */
+    int getFieldWidth();
+
+    /**
+     * Sets the number of tiles long and wide the playing field is. The tiles
+     * are cleared, and the field is redrawn to fit the view.
+     */
+    void setFieldSize(int length, int width);
+
+    void setFieldBackground(Drawable drawable);
+
+    void setEndZoneBackground(Drawable homeEndZone, Drawable visitorEndZone);
+
+    /**
+     * Names the look set by the field and end zone backgrounds. Once it is set
+     * the rendered field is cached, per style and size, across rotations and
+     * new games, so it must change whenever the backgrounds do.
+     */
+    void setFieldStyle(String style);
+
+    /**
+     * Resets the internal array of drawables used for drawing the tiles, and sets the
+     * maximum index of tiles to be inserted. This needs to be called before loadTile can be called
+     */
+    void resetTiles(int tilecount);
+
+    /**
+     * Sets the specified Drawable as the tile for a particular integer key.
+     */
+    void loadTile(int key, Drawable tile);
+
+    /**
+     * Sets the horizontally mirrored Drawable as the tile for a particular integer key.
+     * Loading the same Drawable instance under another key shares its scaled image.
+     */
+    void loadTileFlipped(int key, Drawable tile);
+
+    /**
+     * Clears the field of play by setting each tile in the grid to empty
+     */
+    void clearTiles();
+
+    /**
+     * Sets the tile to be drawn at the given x/y coordinates when the frame is presented
+     */
+    void setTile(int tileindex, int x, int y);
+
+    /**
+     * Sets the tile for every player of the team that is on the field, see
+     * {@link TileGrid#setTeamTiles(Team, int, boolean)}
+     */
+    void setTeamTiles(Team team, int tileindex, boolean flash);
+
+    /**
+     * Presents the tiles set since the last call. Nothing is redrawn when the
+     * field has not changed.
+     */
+    void invalidateTiles();
+
+    /**
+     * Marks the frame being composed as reflecting an input made at
+     * eventMillis, on the uptime clock. When the frame is drawn, the time
+     * since the oldest such input is recorded as the input latency. It is
+     * not recorded if the frame turns out not to change the field.
+     */
+    void setInputTime(long eventMillis);
+
+    /**
+     * Dumps the frame cost counters to the log and resets them
+     */
+    void dumpFrameCost();
+}
@@ -0,0 +1,592 @@
+package com.redpantssoft.hhfootball;
+
+import android.graphics.*;
+import android.graphics.Paint.Style;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.redpantssoft.Metrics;
+
+/**
+ * FieldRenderer: draws a hand held football field and the tiles on it into a
+ * canvas. It computes the field geometry for the size of the view, renders the
+ * field into a bitmap and packs the tile images, scaled to fit the grid, into
+ * a single atlas bitmap. Shared by the {@link FieldView} and
+ * {@link FieldSurfaceView} backends, which decide when and on which thread to
+ * draw.
+ */
+class FieldRenderer {
+    // Logging Tag
+    private static final String TAG = "FieldRenderer";
+
+    /**
+     * Stores the square dimension, in pixels, of the tiles. All new tile
+     * bitmaps should be initially saved as 32x32. When the field is resized,
+     * the bitmaps will scaled appropriately
+     */
+    private int mTileSize = 32;
+
+    /**
+     * Represents the dimensions of the field tile grid
+     */
+    private int mXTileCount;
+    private int mYTileCount;
+
+    /**
+     * Size of the view the field was last fitted into, see {@link #setSize(int, int)}
+     */
+    private int mWidth;
+    private int mHeight;
+
+    /**
+     * Represents the bounding rectangle of the field view, represented in
+     * pixels relative the the view coordinates.
+     */
+    private Rect mViewRect;
+
+    /**
+     * Bounding rectangle of the end zones
+     */
+    private Rect mHomeEndzoneRect;
+    private Rect mVistorEndzoneRect;
+
+    /**
+     * Bounding rectangle for the field of play
+     */
+    private Rect mFieldRect;
+
+    /**
+     * Represents the pixel width of the field lines
+     */
+    private static int mFieldLineWidth = 1;
+
+    /**
+     * Bitmap that is holds the current field, scaled for the size of the top level view
+     */
+    private Bitmap mFieldBitmap;
+    private Drawable mFieldBackground;
+    private Drawable mHomeEndzoneBackground;
+    private Drawable mVisitorEndzoneBackground;
+
+    /**
+     * Cache the field bitmap is looked up in before it is drawn, and the name
+     * of the look set by the backgrounds. The field is always drawn if either
+     * is not set.
+     */
+    private FieldBitmapCache mFieldCache;
+    private String mFieldStyle;
+
+    /**
+     * Tile images, specified by the user of the renderer in loadTile, are
+     * packed side by side into one atlas bitmap, scaled to the computed tile
+     * size. A drawable loaded under several keys, such as a tile and its
+     * mirror image, shares one slot of the atlas, mirrored tiles are flipped
+     * as they are drawn rather than stored twice.
+     */
+    private Bitmap mAtlas;
+    private Canvas mAtlasCanvas;
+
+    /**
+     * Square dimension, in pixels, of a slot of the atlas
+     */
+    private int mAtlasSlotSize = 0;
+
+    /**
+     * Drawable held in each slot of the atlas, and whether the slot needs
+     * to be drawn into the atlas before it is next used
+     */
+    private Drawable[] mSlotDrawables = new Drawable[0];
+    private boolean[] mSlotDirty = new boolean[0];
+    private int mSlotCount = 0;
+    private boolean mAtlasDirty = false;
+
+    /**
+     * Atlas slot of each tile key, -1 if the key is not loaded, and whether
+     * the tile is drawn mirrored
+     */
+    private int[] mTileSlots = new int[0];
+    private boolean[] mTileFlipped = new boolean[0];
+
+    /**
+     * Paint used to clear a slot of the atlas before a new tile is drawn into it
+     */
+    private final Paint mClearPaint = new Paint();
+
+    /**
+     * A paint that is used to  dynamically draw the generated field bitmaps
+     */
+    private final Paint mPaint = new Paint();
+
+    /**
+     * Scratch rectangles used while drawing, kept to avoid allocating on every frame
+     */
+    private final Rect mSrcRect = new Rect();
+    private final Rect mDstRect = new Rect();
+    private final Rect mSlotRect = new Rect();
+
+    /**
+     * Frame cost counters, see {@link #dumpFrameCost()}
+     */
+    private long mFramesDrawn = 0;
+    private long mTilesDrawn = 0;
+    private long mPixelsDrawn = 0;
+    private long mDrawNanos = 0;
+
+    /**
+     * Frame cost in the metrics registry, recorded by whichever thread draws
+     */
+    private static final Metrics.Histogram FRAME = Metrics.histogram("render.frame");
+
+    /**
+     * Time from an input event to the end of the first frame drawn that
+     * reflects it, the closest the app gets to the input reaching the screen
+     */
+    private static final Metrics.Histogram INPUT_LATENCY = Metrics.histogram("input.latency");
+
+    /**
+     * Constructor
+     *
+     * @param xTileCount number of tiles long the field of play is
+     * @param yTileCount number of tiles wide the field of play is
+     */
+    FieldRenderer(int xTileCount, int yTileCount) {
+        mXTileCount = xTileCount;
+        mYTileCount = yTileCount;
+        mClearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+    }
+
+    /**
+     * Changes the dimensions of the field tile grid. A field that has been
+     * sized is fitted again into the same view size.
+     *
+     * @param xTileCount number of tiles long the field of play is
+     * @param yTileCount number of tiles wide the field of play is
+     */
+    public void setTileCounts(int xTileCount, int yTileCount) {
+        if (xTileCount == mXTileCount && yTileCount == mYTileCount)
+            return;
+
+        mXTileCount = xTileCount;
+        mYTileCount = yTileCount;
+        if (hasSize())
+            setSize(mWidth, mHeight);
+    }
+
+    /**
+     * Scales the field and the tiles to fit in to the specified view size
+     */
+    public void setSize(int w, int h) {
+        mWidth = w;
+        mHeight = h;
+
+        /*
+           * First calculate the size of the tiles. This is based on the size on
+           * pixel dimensions available and the desired number of tiles. The grid
+           * dimensions only change with setTileCounts
+           */
+        int tilew = (int) Math.floor(w / (mXTileCount + 1)); // We add 1 for the
+        // end zones
+        int tileh = (int) Math.floor(h / mYTileCount);
+        if (tilew < tileh) {
+            mTileSize = tilew;
+        } else {
+            mTileSize = tileh;
+        }
+        // A tile needs at least a pixel inside its field lines, a view too
+        // small for that has the field clipped rather than empty tiles
+        mTileSize = Math.max(mTileSize, mFieldLineWidth * 2 + 1);
+
+        /*
+           * Once the tilesize is known, the bounding rectangle for the entire field
+           * can be computed. This will center the rectangle in the top level view
+           */
+        int mXOffset = ((w - (mTileSize * (mXTileCount + 1))) / 2);
+        int mYOffset = ((h - (mTileSize * mYTileCount)) / 2);
+
+        mViewRect = new Rect(mXOffset, mYOffset, mXOffset + (mXTileCount + 1)
+                * mTileSize, mYOffset + mYTileCount * mTileSize);
+
+        /*
+           * With the fieldview rectangle computed, the endzone and playing field
+           * rectangles are computed. These rectangle coordinates are relative to the
+           * top level view rectangle, mViewRect.
+           */
+        mHomeEndzoneRect = new Rect(1, 0, mTileSize / 2, mViewRect.height() - 1);
+        mFieldRect = new Rect(mHomeEndzoneRect.right, 0, mHomeEndzoneRect.right
+                + (mXTileCount * mTileSize), mViewRect.height() - 1);
+        mVistorEndzoneRect = new Rect(mFieldRect.right, 0, mFieldRect.right
+                + mTileSize / 2, mViewRect.height() - 1);
+
+        /*
+           * Now draw the field into mFieldBitmap, unless it is cached.
+           */
+        loadFieldBitmap();
+        invalidateAtlas();
+
+        dumpFieldDimensions();
+    }
+
+    /**
+     * @return true once the field has been sized with {@link #setSize(int, int)}
+     */
+    public final boolean hasSize() {
+        return mViewRect != null;
+    }
+
+    /**
+     * Computes the bounding rectangle, in view coordinates, of a location in the field of play
+     *
+     * @param x    grid x coordinate
+     * @param y    grid y coordinate
+     * @param rect rectangle to store the result in
+     * @pre hasSize()
+     */
+    public void getTileRect(int x, int y, Rect rect) {
+        int left = mViewRect.left + mFieldRect.left + (x * mTileSize);
+        int top = mViewRect.top + mFieldRect.top + (y * mTileSize);
+        rect.set(left, top, left + mTileSize, top + mTileSize);
+    }
+
+    /**
+     * Blits the part of the field bitmap that lies inside the clip rectangle
+     *
+     * @param canvas Canvas to draw into
+     * @param clip   Rectangle, in view coordinates, that needs to be redrawn
+     * @return false if the clip rectangle does not overlap the field
+     * @pre hasSize()
+     */
+    public boolean drawField(Canvas canvas, Rect clip) {
+        if (!mDstRect.setIntersect(clip, mViewRect))
+            return false;
+
+        if (mAtlasDirty)
+            updateAtlas();
+
+        mSrcRect.set(mDstRect);
+        mSrcRect.offset(-mViewRect.left, -mViewRect.top);
+        canvas.drawBitmap(mFieldBitmap, mSrcRect, mDstRect, mPaint);
+        mPixelsDrawn += mDstRect.width() * mDstRect.height();
+        return true;
+    }
+
+    /**
+     * Draws a tile image into the location of the field of play whose bounding
+     * rectangle, from getTileRect, is tileRect
+     *
+     * @param canvas    Canvas to draw into
+     * @param tileindex Index of the tile image, 0 or a tile that is not loaded draws nothing
+     * @param tileRect  Bounding rectangle of the location
+     * @pre drawField() has been called for the frame
+     */
+    public void drawTile(Canvas canvas, int tileindex, Rect tileRect) {
+        if (tileindex <= 0 || tileindex >= mTileSlots.length || mTileSlots[tileindex] < 0)
+            return;
+
+        getSlotRect(mTileSlots[tileindex], mSlotRect);
+        mDstRect.set(tileRect);
+        mDstRect.inset(mFieldLineWidth, mFieldLineWidth);
+        mDstRect.right = mDstRect.left + mSlotRect.width();
+        mDstRect.bottom = mDstRect.top + mSlotRect.height();
+
+        if (mTileFlipped[tileindex]) {
+            canvas.save();
+            canvas.scale(-1, 1, mDstRect.exactCenterX(), mDstRect.exactCenterY());
+            canvas.drawBitmap(mAtlas, mSlotRect, mDstRect, mPaint);
+            canvas.restore();
+        } else {
+            canvas.drawBitmap(mAtlas, mSlotRect, mDstRect, mPaint);
+        }
+        mTilesDrawn++;
+    }
+
+    /**
+     * Counts a completed frame against the frame cost counters
+     *
+     * @param startNanos System.nanoTime() when drawing of the frame began
+     */
+    public void frameDrawn(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        mFramesDrawn++;
+        mDrawNanos += elapsed;
+        FRAME.record(elapsed);
+    }
+
+    /**
+     * Records the latency of an input reflected in the frame just drawn
+     *
+     * @param eventMillis time of the input event, on the uptime clock
+     */
+    public void inputDrawn(long eventMillis) {
+        INPUT_LATENCY.record((SystemClock.uptimeMillis() - eventMillis) * 1000000L);
+    }
+
+    /**
+     * Sets mFieldBitmap to the field for the current mViewRect size, taken
+     * from the field cache if it has been drawn before
+     *
+     * @pre mViewRect != NULL
+     */
+    private void loadFieldBitmap() {
+        if (mFieldCache == null || mFieldStyle == null) {
+            drawFieldBitmap();
+            return;
+        }
+
+        String key = mFieldStyle + "-" + mXTileCount + "x" + mYTileCount + "-"
+                + mViewRect.width() + "x" + mViewRect.height() + "-" + mFieldLineWidth;
+        mFieldBitmap = mFieldCache.get(key, mViewRect.width(), mViewRect.height());
+        if (mFieldBitmap == null) {
+            drawFieldBitmap();
+            mFieldCache.put(key, mFieldBitmap);
+        }
+    }
+
+    /**
+     * Constructs the mFieldBitmap, according to the mViewRect size, and
+     * an associated canvas to draw into the bitmap. It then calls the drawing
+     * routines that actually draw on the canvas
+     *
+     * @pre mViewRect != NULL
+     * @pre mFieldRect != NULL
+     * @pre mHomeEndzoneRect != NULL
+     * @pre mVistorEndzoneRect != NULL
+     */
+    private void drawFieldBitmap() {
+        mFieldBitmap = Bitmap.createBitmap(mViewRect.width(),
+                mViewRect.height(), Bitmap.Config.ARGB_8888);
+
+        Canvas canvas = new Canvas(mFieldBitmap);
+
+        drawFieldofPlay(canvas, mFieldRect, mFieldBackground);
+
+        // Draw the home end zone
+        drawEndZone(canvas, mHomeEndzoneRect, mHomeEndzoneBackground);
+        drawEndZone(canvas, mVistorEndzoneRect, mVisitorEndzoneBackground);
+
+    }
+
+    /**
+     * Draws the field of play grid onto the supplied canvas
+     *
+     * @param canvas Canvas to draw into
+     * @param rect   Bounding rectangle of the field of play within
+     *               the canvas
+     */
+    private void drawFieldofPlay(Canvas canvas, Rect rect, Drawable background) {
+        Paint paint = new Paint();
+
+        if (background == null) {
+            paint.setARGB(255, 70, 180, 70);
+            paint.setStyle(Style.FILL);
+            canvas.drawRect(rect, paint);
+        } else {
+            background.setBounds(rect);
+            background.draw(canvas);
+        }
+
+        paint.setARGB(255, 255, 255, 255);
+        paint.setStrokeWidth(mFieldLineWidth);
+        paint.setStyle(Style.STROKE);
+        canvas.drawRect(rect, paint);
+
+        for (int x = 0; x <= mXTileCount; x++) {
+            canvas.drawLine(rect.left + x * mTileSize, 0, rect.left + x
+                    * mTileSize, rect.width() - 1, paint);
+            for (int y = 1; y < mYTileCount; y++) {
+                canvas.drawLine(rect.left + (x * mTileSize) - (mTileSize / 4),
+                        rect.top + y * mTileSize, rect.left + (x * mTileSize)
+                        + (mTileSize / 4), rect.top + y * mTileSize,
+                        paint);
+            }
+        }
+    }
+
+    /**
+     * Draws an end zone onto the supplied canvas
+     *
+     * @param canvas Canvas to draw into
+     * @param rect   Bounding rectangle of the field of play within
+     *               the canvas
+     */
+    private void drawEndZone(Canvas canvas, Rect rect, Drawable background) {
+        Paint paint = new Paint();
+
+        if (background == null) {
+            paint.setARGB(255, 255, 0, 0);
+            paint.setStyle(Style.FILL);
+            canvas.drawRect(rect, paint);
+        } else {
+            background.setBounds(rect);
+            background.draw(canvas);
+        }
+
+        paint.setARGB(255, 255, 255, 255);
+        paint.setStrokeWidth(mFieldLineWidth);
+        paint.setStyle(Style.STROKE);
+        canvas.drawRect(rect, paint);
+
+        int linecnt = rect.height() / rect.width();
+        if (linecnt > 0) {
+            for (int y = 0; y < linecnt; y++) {
+                canvas.drawLine(rect.left, y * rect.width(),
+                        rect.left + rect.width(),
+                        y * rect.width() + rect.width(), paint);
+            }
+        }
+    }
+
+    public void setFieldBackground(Drawable drawable) {
+        mFieldBackground = drawable;
+    }
+
+    public void setEndZoneBackground(Drawable homeEndZone, Drawable visitorEndZone) {
+        mHomeEndzoneBackground = homeEndZone;
+        mVisitorEndzoneBackground = visitorEndZone;
+    }
+
+    /**
+     * Caches the rendered field, see {@link FieldDisplay#setFieldStyle(String)}
+     *
+     * @param cache cache to keep the rendered field in
+     * @param style name of the look set by the field and end zone backgrounds
+     */
+    public void setFieldCache(FieldBitmapCache cache, String style) {
+        mFieldCache = cache;
+        mFieldStyle = style;
+    }
+
+    /**
+     * Function to set the specified Drawable as the tile for a particular
+     * integer key. The tile is drawn into its slot of the atlas before the
+     * next frame, a drawable already loaded under another key shares its slot.
+     *
+     * @param key     Key to associated specified drawable to a field of play grid coordinate
+     * @param tile    Drawable associated with specified key
+     * @param flipped true to mirror the drawable horizontally
+     */
+    public void loadTile(int key, Drawable tile, boolean flipped) {
+        int slot = 0;
+        while (slot < mSlotCount && mSlotDrawables[slot] != tile)
+            slot++;
+
+        if (slot == mSlotCount) {
+            mSlotDrawables[slot] = tile;
+            mSlotDirty[slot] = true;
+            mSlotCount++;
+            mAtlasDirty = true;
+        }
+
+        mTileSlots[key] = slot;
+        mTileFlipped[key] = flipped;
+    }
+
+    /**
+     * Resets the internal array of drawables used for drawing the tiles, and sets the
+     * maximum index of tiles to be inserted. The atlas bitmap is kept, tiles loaded
+     * afterwards are drawn over the slots of the previous ones.
+     */
+    public void resetTiles(int tilecount) {
+        if (mTileSlots.length != tilecount) {
+            mTileSlots = new int[tilecount];
+            mTileFlipped = new boolean[tilecount];
+            mSlotDrawables = new Drawable[tilecount];
+            mSlotDirty = new boolean[tilecount];
+        }
+
+        for (int i = 0; i < tilecount; i++) {
+            mTileSlots[i] = -1;
+            mSlotDrawables[i] = null;
+        }
+        mSlotCount = 0;
+    }
+
+    /**
+     * Computes the bounding rectangle, in atlas coordinates, of a slot of the atlas
+     *
+     * @param slot slot index
+     * @param rect rectangle to store the result in
+     */
+    private void getSlotRect(int slot, Rect rect) {
+        rect.set(slot * mAtlasSlotSize, 0, (slot + 1) * mAtlasSlotSize, mAtlasSlotSize);
+    }
+
+    /**
+     * Marks every slot of the atlas to be redrawn at the current tile size
+     */
+    private void invalidateAtlas() {
+        for (int slot = 0; slot < mSlotCount; slot++)
+            mSlotDirty[slot] = true;
+        mAtlasDirty = true;
+    }
+
+    /**
+     * Draws the tiles that have been loaded or rescaled since the last frame
+     * into their slots of the atlas. The atlas bitmap is only reallocated when
+     * the tile size changes or it has too few slots, otherwise only the
+     * changed slots are redrawn.
+     *
+     * @pre hasSize()
+     */
+    private void updateAtlas() {
+        int slotSize = Math.max(mTileSize - mFieldLineWidth * 2, 1);
+        if (mAtlas == null || mAtlasSlotSize != slotSize
+                || mAtlas.getWidth() < mSlotCount * slotSize) {
+            mAtlasSlotSize = slotSize;
+            mAtlas = Bitmap.createBitmap(Math.max(mSlotCount, 1) * slotSize, slotSize,
+                    Bitmap.Config.ARGB_8888);
+            mAtlasCanvas = new Canvas(mAtlas);
+            for (int slot = 0; slot < mSlotCount; slot++)
+                mSlotDirty[slot] = true;
+        }
+
+        for (int slot = 0; slot < mSlotCount; slot++) {
+            if (mSlotDirty[slot]) {
+                getSlotRect(slot, mSlotRect);
+                mAtlasCanvas.drawRect(mSlotRect, mClearPaint);
+                mSlotDrawables[slot].setBounds(mSlotRect);
+                mSlotDrawables[slot].draw(mAtlasCanvas);
+                mSlotDirty[slot] = false;
+            }
+        }
+        mAtlasDirty = false;
+    }
+
+    /**
+     * Routine that dumps the current field dimensions and bounding rectangles to
+     * stdout
+     */
+    public void dumpFieldDimensions() {
+        Log.i(TAG, "mViewRect: " + mViewRect.toShortString());
+        Log.i(TAG, "mHomeEndzoneRect: " + mHomeEndzoneRect.toShortString());
+        Log.i(TAG, "mVistorEndzoneRect: " + mVistorEndzoneRect.toShortString());
+        Log.i(TAG, "mFieldRect: " + mFieldRect.toShortString());
+        Log.i(TAG, "mTileSize: " + mTileSize);
+        Log.i(TAG, "mXTileCount: " + mXTileCount);
+        Log.i(TAG, "mYTileCount: " + mYTileCount);
+        Log.i(TAG, "mFieldLineWidth: " + mFieldLineWidth);
+
+    }
+
+    /**
+     * Routine that dumps the cost of the frames drawn so far, per frame, and
+     * resets the counters. A full frame blits every pixel of the field bitmap
+     * and every occupied tile.
+     */
+    public void dumpFrameCost() {
+        if (mFramesDrawn > 0 && mViewRect != null) {
+            Log.i(TAG, "frames: " + mFramesDrawn
+                    + ", tiles/frame: " + (float) mTilesDrawn / mFramesDrawn
+                    + ", field pixels/frame: " + mPixelsDrawn / mFramesDrawn
+                    + " of " + mViewRect.width() * mViewRect.height()
+                    + ", us/frame: " + mDrawNanos / mFramesDrawn / 1000);
+        }
+        if (mFieldCache != null)
+            mFieldCache.dumpStats();
+
+        mFramesDrawn = 0;
+        mTilesDrawn = 0;
+        mPixelsDrawn = 0;
+        mDrawNanos = 0;
+    }
+}
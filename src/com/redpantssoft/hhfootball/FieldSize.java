@@ -0,0 +1,85 @@
+package com.redpantssoft.hhfootball;
+
+/**
+ * Sizes of the field of play, in tiles, and the teams that play on them.
+ * <p/>
+ * Tiles are indexed column by column, x*width()+y, which is the index used
+ * by the occupancy of the teams and by the defense's search. Formations are
+ * given in tiles from the offense's own end of the field, so they are
+ * mirrored when the offense runs left, see GameEngine.
+ */
+enum FieldSize
+{
+	/**
+	 * The handheld's field, 3 on 6
+	 */
+	classic(10,3,new int[][] {{3,0},{3,1},{3,2},{5,1},{7,0},{9,2}}),
+
+	/**
+	 * A wider field, with a defense of 8
+	 */
+	wide(20,5,new int[][] {{3,1},{3,2},{3,3},{5,2},{6,0},{6,4},{9,1},{12,3}});
+
+	private final int mLength;
+	private final int mWidth;
+	private final int[][] mOffensePreSnap;
+	private final int[][] mOffenseKickoff;
+	private final int[][] mDefensePreSnap;
+	private final int[][] mDefenseKickoff;
+
+	/**
+	 * @param length  number of tiles long the field is
+	 * @param width  number of tiles wide the field is
+	 * @param defensePreSnap  pre-snap formation of the defense, one defender each
+	 */
+	private FieldSize(int length, int width, int[][] defensePreSnap)
+	{
+		mLength=length;
+		mWidth=width;
+
+		int center=width/2;
+		mOffensePreSnap=new int[][] {{2,center},{-1,-1},{-1,-1}};
+		mOffenseKickoff=new int[][] {{2,center},{1,center-1},{1,center+1}};
+		mDefensePreSnap=defensePreSnap;
+		mDefenseKickoff=new int[defensePreSnap.length][];
+		for (int i=0;i<mDefenseKickoff.length;i++)
+			mDefenseKickoff[i]=new int[] {-1,-1};
+	}
+
+	/**
+	 * @return the field size named by a setting, or classic for a name that
+	 *         is no longer offered, such as the removed stadium field
+	 */
+	static FieldSize fromSetting(String name)
+	{
+		for (FieldSize field : values())
+		{
+			if (field.name().equals(name))
+				return field;
+		}
+		return classic;
+	}
+
+	final int length() { return mLength; }
+	final int width() { return mWidth; }
+	final int tiles() { return mLength*mWidth; }
+	final int defenders() { return mDefensePreSnap.length; }
+
+	final int[][] offensePreSnapFormation() { return mOffensePreSnap; }
+	final int[][] offenseKickoffFormation() { return mOffenseKickoff; }
+	final int[][] defensePreSnapFormation() { return mDefensePreSnap; }
+	final int[][] defenseKickoffFormation() { return mDefenseKickoff; }
+
+	/**
+	 * @return index of the tile at x,y, or -1 if it is not on the field
+	 */
+	final int tileIndex(int x, int y)
+	{
+		if (x < 0 || x >= mLength || y < 0 || y >= mWidth)
+			return -1;
+		return x*mWidth + y;
+	}
+
+	final int tileX(int tile) { return tile/mWidth; }
+	final int tileY(int tile) { return tile%mWidth; }
+}
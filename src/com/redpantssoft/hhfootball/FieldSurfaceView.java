@@ -0,0 +1,376 @@
+package com.redpantssoft.hhfootball;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+/**
+ * FieldSurfaceView: a {@link FieldDisplay} backed by a SurfaceView and drawn
+ * on its own render thread, so layout passes, text updates and touch handling
+ * on the UI thread never hold up a field frame.
+ * <p/>
+ * The game composes frames on its own {@link TileGrid}. Presenting a frame
+ * with {@link #invalidateTiles()} publishes a {@link TileFrame} copy of the
+ * grid, and the render thread draws the latest published frame. A frame that
+ * is superseded before the render thread gets to it is skipped. Three frames
+ * are passed around, the one being copied in to, the one published and the
+ * one being drawn, so presenting a frame allocates nothing.
+ */
+public class FieldSurfaceView extends SurfaceView implements FieldDisplay, SurfaceHolder.Callback {
+    // Logging Tag
+    private static final String TAG = "FieldSurfaceView";
+
+    /**
+     * Represents the dimensions of the field tile grid
+     */
+    private int mXTileCount = 10;
+    private int mYTileCount = 3;
+
+    /**
+     * Draws the field and the tiles. It is shared with the render thread, so
+     * it is only accessed while holding its lock.
+     */
+    private final FieldRenderer mRenderer = new FieldRenderer(mXTileCount, mYTileCount);
+
+    /**
+     * The grid the game composes frames on, only touched by the UI thread
+     */
+    private TileGrid mTileGrid = new TileGrid(mXTileCount, mYTileCount);
+
+    /**
+     * Lock guarding the frame handed to the render thread
+     */
+    private final Object mFrameLock = new Object();
+
+    /**
+     * Frame the grid is copied in to, only touched by the UI thread
+     */
+    private TileFrame mBackFrame;
+
+    /**
+     * Latest frame published by the game, and whether the render thread has
+     * yet to take it, guarded by mFrameLock
+     */
+    private TileFrame mFrame;
+    private boolean mNewFrame = false;
+
+    /**
+     * Frame being drawn, only touched by the render thread
+     */
+    private TileFrame mDrawnFrame;
+
+    /**
+     * Set when the surface needs to be redrawn even though no new frame has
+     * been published, guarded by mFrameLock
+     */
+    private boolean mRedraw = false;
+
+    /**
+     * How long the render thread waits before trying again when the surface
+     * can't be locked, while it is being created or destroyed
+     */
+    private static final long LOCK_RETRY_MILLIS = 20;
+
+    /**
+     * Event time of the oldest input reflected in the frame being composed,
+     * only touched by the UI thread, and in the frames published but not yet
+     * drawn, guarded by mFrameLock. 0 if there is none
+     */
+    private long mInputMillis = 0;
+    private long mFrameInputMillis = 0;
+
+    /**
+     * Thread drawing the field onto the surface, exists while the surface does
+     */
+    private RenderThread mRenderThread;
+
+    /**
+     * Constructor
+     *
+     * @param context
+     * @param attrs
+     */
+    public FieldSurfaceView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        setFocusable(true);
+        mBackFrame = new TileFrame(mTileGrid);
+        mFrame = new TileFrame(mTileGrid);
+        mDrawnFrame = new TileFrame(mTileGrid);
+        getHolder().addCallback(this);
+    }
+
+    public void surfaceCreated(SurfaceHolder holder) {
+        mRenderThread = new RenderThread(holder);
+        mRenderThread.start();
+    }
+
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        Log.i(TAG, "surfaceChanged, resizing field dimensions");
+        synchronized (mRenderer) {
+            mRenderer.setSize(width, height);
+        }
+        requestRedraw();
+    }
+
+    /**
+     * The surface must not be touched once this returns, so the render thread
+     * is stopped and joined here
+     */
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        mRenderThread.quit();
+        boolean retry = true;
+        while (retry) {
+            try {
+                mRenderThread.join();
+                retry = false;
+            } catch (InterruptedException e) {
+                // Keep waiting, the surface goes away when we return
+            }
+        }
+        mRenderThread = null;
+    }
+
+    /**
+     * Publishes the grid as the frame to draw, if any tile changed since the
+     * last published frame
+     */
+    public void invalidateTiles() {
+        long inputMillis = mInputMillis;
+        mInputMillis = 0;
+        if (!mTileGrid.isDirty())
+            return;
+
+        mBackFrame.copyFrom(mTileGrid);
+        mTileGrid.setAllDrawn();
+        synchronized (mFrameLock) {
+            publishBackFrame();
+            if (mFrameInputMillis == 0)
+                mFrameInputMillis = inputMillis;
+            mFrameLock.notify();
+        }
+    }
+
+    /**
+     * Swaps the back frame with the published one, which the render thread
+     * has either drawn or skipped. Called with mFrameLock held
+     */
+    private void publishBackFrame() {
+        TileFrame published = mFrame;
+        mFrame = mBackFrame;
+        mBackFrame = published;
+        mNewFrame = true;
+    }
+
+    public void setInputTime(long eventMillis) {
+        if (mInputMillis == 0)
+            mInputMillis = eventMillis;
+    }
+
+    /**
+     * Asks the render thread to redraw the current frame, used when the field
+     * or the tile images change
+     */
+    private void requestRedraw() {
+        synchronized (mFrameLock) {
+            mRedraw = true;
+            mFrameLock.notify();
+        }
+    }
+
+    /**
+     * Thread context that draws each published frame onto the surface
+     */
+    private class RenderThread extends Thread {
+        private final SurfaceHolder mHolder;
+        private boolean mRunning = true;
+        private final Rect mClipRect = new Rect();
+        private final Rect mTileRect = new Rect();
+
+        RenderThread(SurfaceHolder holder) {
+            super(TAG);
+            mHolder = holder;
+        }
+
+        void quit() {
+            synchronized (mFrameLock) {
+                mRunning = false;
+                mFrameLock.notify();
+            }
+        }
+
+        @Override
+        public void run() {
+            long inputMillis = 0;
+            while (true) {
+                synchronized (mFrameLock) {
+                    while (mRunning && !mNewFrame && !mRedraw) {
+                        try {
+                            mFrameLock.wait();
+                        } catch (InterruptedException e) {
+                            // Check whether there is anything to do
+                        }
+                    }
+                    if (!mRunning)
+                        return;
+
+                    if (mNewFrame) {
+                        TileFrame drawn = mDrawnFrame;
+                        mDrawnFrame = mFrame;
+                        mFrame = drawn;
+                        mNewFrame = false;
+                    }
+                    if (mFrameInputMillis != 0 && inputMillis == 0)
+                        inputMillis = mFrameInputMillis;
+                    mFrameInputMillis = 0;
+                    mRedraw = false;
+                }
+
+                Canvas canvas = mHolder.lockCanvas();
+                if (canvas == null) {
+                    // The surface is not ready, try the frame again later
+                    //  rather than spinning on the lock
+                    synchronized (mFrameLock) {
+                        mRedraw = true;
+                        try {
+                            if (mRunning)
+                                mFrameLock.wait(LOCK_RETRY_MILLIS);
+                        } catch (InterruptedException e) {
+                            // Retry now
+                        }
+                    }
+                    continue;
+                }
+
+                try {
+                    synchronized (mRenderer) {
+                        if (mRenderer.hasSize())
+                            draw(canvas, mDrawnFrame);
+                    }
+                } finally {
+                    mHolder.unlockCanvasAndPost(canvas);
+                }
+                if (inputMillis != 0) {
+                    synchronized (mRenderer) {
+                        mRenderer.inputDrawn(inputMillis);
+                    }
+                    inputMillis = 0;
+                }
+            }
+        }
+
+        /**
+         * Draws the whole field, the surface buffers do not keep the previous frame
+         */
+        private void draw(Canvas canvas, TileFrame frame) {
+            long start = System.nanoTime();
+
+            // The surface sits behind the window, so the margins around the
+            //  field can't show the game skin through it
+            mClipRect.set(0, 0, canvas.getWidth(), canvas.getHeight());
+            canvas.drawColor(Color.BLACK);
+            mRenderer.drawField(canvas, mClipRect);
+
+            for (int x = 0; x < frame.getFieldLength(); x++) {
+                for (int y = 0; y < frame.getFieldWidth(); y++) {
+                    mRenderer.getTileRect(x, y, mTileRect);
+                    mRenderer.drawTile(canvas, frame.getTile(x, y), mTileRect);
+                }
+            }
+
+            mRenderer.frameDrawn(start);
+        }
+    }
+
+    public void setFieldBackground(Drawable drawable) {
+        synchronized (mRenderer) {
+            mRenderer.setFieldBackground(drawable);
+        }
+    }
+
+    public void setEndZoneBackground(Drawable homeEndZone, Drawable visitorEndZone) {
+        synchronized (mRenderer) {
+            mRenderer.setEndZoneBackground(homeEndZone, visitorEndZone);
+        }
+    }
+
+    public void setFieldStyle(String style) {
+        FieldBitmapCache cache = FieldBitmapCache.getInstance(getContext());
+        synchronized (mRenderer) {
+            mRenderer.setFieldCache(cache, style);
+        }
+    }
+
+    public void resetTiles(int tilecount) {
+        synchronized (mRenderer) {
+            mRenderer.resetTiles(tilecount);
+        }
+        requestRedraw();
+    }
+
+    public void loadTile(int key, Drawable tile) {
+        synchronized (mRenderer) {
+            mRenderer.loadTile(key, tile, false);
+        }
+        requestRedraw();
+    }
+
+    public void loadTileFlipped(int key, Drawable tile) {
+        synchronized (mRenderer) {
+            mRenderer.loadTile(key, tile, true);
+        }
+        requestRedraw();
+    }
+
+    public void clearTiles() {
+        mTileGrid.clear();
+    }
+
+    public void setTile(int tileindex, int x, int y) {
+        mTileGrid.setTile(tileindex, x, y);
+    }
+
+    public void setTeamTiles(Team team, int tileindex, boolean flash) {
+        mTileGrid.setTeamTiles(team, tileindex, flash);
+    }
+
+    public int getFieldLength() {
+        return mXTileCount;
+    }
+
+    public int getFieldWidth() {
+        return mYTileCount;
+    }
+
+    /**
+     * Publishes an empty frame of the new size along with the resized field
+     */
+    public void setFieldSize(int length, int width) {
+        if (length == mXTileCount && width == mYTileCount)
+            return;
+
+        mXTileCount = length;
+        mYTileCount = width;
+        mTileGrid = new TileGrid(mXTileCount, mYTileCount);
+        synchronized (mRenderer) {
+            mRenderer.setTileCounts(mXTileCount, mYTileCount);
+        }
+        mBackFrame.copyFrom(mTileGrid);
+        synchronized (mFrameLock) {
+            publishBackFrame();
+            mRedraw = true;
+            mFrameLock.notify();
+        }
+    }
+
+    public void dumpFrameCost() {
+        synchronized (mRenderer) {
+            mRenderer.dumpFrameCost();
+        }
+    }
+}
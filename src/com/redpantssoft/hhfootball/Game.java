@@ -8,10 +8,12 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
+import android.content.res.TypedArray;
 import android.graphics.drawable.Drawable;
 import android.media.AudioManager;
 import android.os.Bundle;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.os.Vibrator;
 import android.preference.PreferenceManager;
 import android.util.Log;
@@ -19,63 +21,97 @@ import android.view.Menu;
 import android.view.MenuItem;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.View.OnTouchListener;
 import android.view.animation.AnimationUtils;
 import android.widget.TextView;
+
 import com.redpantssoft.*;
 import com.redpantssoft.hhfootball.GameClock.Period;
+import com.redpantssoft.hhfootball.GameEngine.Difficulty;
+import com.redpantssoft.hhfootball.GameEngine.Info;
+import com.redpantssoft.hhfootball.GameEngine.Input;
+import com.redpantssoft.hhfootball.GameEngine.Sfx;
 
-import java.util.Random;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 
 
 /**
  * 
  */
 public class Game extends Activity implements SharedPreferences.OnSharedPreferenceChangeListener, 
-												GameClock.GameClockHandler
+												GameEngine.GameEventHandler
 {
 	private static String TAG = "HHFootball";
+	
+	/** File, in the application's private storage, the record of the last game is saved to */
+	static final String INPUT_LOG_FILE = "last_game.log";
+	
+	/** File, in the application's private storage, the metrics are dumped to */
+	static final String METRICS_FILE = "metrics.txt";
+	
 	private PowerManager.WakeLock mWakeLock;
 	private Vibrator mVibrator;
 	
 	/** Child view definitions */
-	private FieldView mFieldView;
-	private TextView mClockView;
-	private TextView mPeriodView;
-	private TextView mDriveView;
-	private TextView mFieldPosView;
+	private FieldDisplay mFieldView;
+	private ScoreboardView mScoreboard;
 	private TextViewAnimator mInfoView;
-	private TextView mHomeScoreView;
-	private TextView mVisitorScoreView;
 	private KickMeter mKickMeter;
+	private TextView mMetricsView;
+	
+	/**
+	 * Text of the scoreboard fields, see ScoreboardView
+	 */
+	private HudText mClockText;
+	private HudText mPeriodText;
+	private HudText mDriveText;
+	private HudText mFieldPosText;
+	private HudText mHomeScoreText;
+	private HudText mVisitorScoreText;
+	
+	/**
+	 * Drive status shown during each kicking state, looked up once rather
+	 * than on every update
+	 */
+	private String mKickoffText;
+	private String mPuntText;
+	private String mFreekickText;
+	private String mFieldGoalText;
+	private String mKickReturnText;
+	
+	private static final String[] DOWNS={ "", "1st and", "2nd and", "3rd and", "4th and" };
 
 	/** Menus Items */
 	private static final int MENU_NEW_GAME=0;
 	private static final int MENU_SETTINGS=1;
 	private static final int MENU_QUIT=2;
+	private static final int MENU_METRICS=3;
+	private static final int MENU_DUMP_METRICS=4;
 	
+	/** Sound effects are keyed by the ordinal of GameEngine.Sfx */
 	private SoundFxManager mSoundFxManager;
-	private static final int AUDIO_QUARTERBACK=1;
-	private static final int AUDIO_TACKLE=2;
-	private static final int AUDIO_WHISTLE=3;
-	private static final int AUDIO_CROWD=4;
-	private static final int AUDIO_CROWD_BOO=5;
-	private static final int AUDIO_CROWD_CHEER=6;
-	private static final int AUDIO_TOUCHDOWN=7;
-	private static final int AUDIO_KICK=8;
-	private static final int AUDIO_CATCH=9;
-	private static final int AUDIO_FIRST_DOWN=10;
-	private static final int AUDIO_BUZZER=11;
+	
+	/** Short sound effects, played from the pool: the Sfx ordinal and the resource id */
+	private static final int[][] POOLED_SFX = {
+		{Sfx.CROWD_CHEER.ordinal(), R.raw.crowd_cheer},
+		{Sfx.QUARTERBACK.ordinal(), R.raw.quarterback},
+		{Sfx.TACKLE.ordinal(), R.raw.tackle},
+		{Sfx.WHISTLE.ordinal(), R.raw.whistle},
+		{Sfx.KICK.ordinal(), R.raw.kick},
+		{Sfx.CATCH.ordinal(), R.raw.ball_catch},
+		{Sfx.TOUCHDOWN.ordinal(), R.raw.touchdown},
+		{Sfx.FIRST_DOWN.ordinal(), R.raw.firstdown},
+		{Sfx.BUZZER.ordinal(), R.raw.buzzer}};
+	
+	/** Images and pooled sound effects, shared with the splash screen's preload and other games */
+	private AssetCache mAssets;
 	
 	private static final int VIBRATE_DURATION=100;
-	/** Defines whether the game is paused or not */
 		
-	/** Game States */
-	protected enum State 
-	{ 
-		PLAY_LIVE,PLAY_DEAD,PRE_SNAP,PRE_KICKOFF,KICK,KICK_RECEIVED,PASS,GAME_OVER;
-	}
-
 	/**
 	 * Labels for the drawables that will be loaded into the TileView class
 	 */
@@ -92,125 +128,98 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 	 */
 	private int mPeriodLengthMins=4;
 	
-	private enum Difficulty
-	{
-		easy(25,10,0,90),
-		medium(30,10,15,80),
-		hard(50,10,50,70);
-		
-		private Percentage mDefenderMoves;
-		private Percentage mReceiverMoves;
-		private Percentage mDefenderTackles;
-		private Percentage mFieldGoalIsGood;
-		
-		private Difficulty(int perDefenderMoves, int perReceiverMoves, int perDefenderTackles,int perFieldGoalIsGood)
-		{
-			mDefenderMoves = new Percentage(perDefenderMoves);
-			mReceiverMoves = new Percentage(perReceiverMoves);
-			mDefenderTackles= new Percentage(perDefenderTackles);
-			mFieldGoalIsGood= new Percentage(perFieldGoalIsGood);
-		}
-		
-		public Percentage perDefenderMoves() {  return mDefenderMoves; }
-		public Percentage perReceiverMoves() {  return mReceiverMoves; }
-		public Percentage perDefenderTackles() {  return mDefenderTackles; }
-		public Percentage perFieldGoalIsGood() {  return mFieldGoalIsGood; }
-	}
-	
 	private Difficulty mDifficulty=Difficulty.medium;
+	private FieldSize mFieldSize=FieldSize.classic;
 	private boolean mVibrate=true;
 	
-	private static final int GAME_REFRESH_RATE=100;
-	private Timer mGameUpdater = new Timer(GAME_REFRESH_RATE,new Timer.TimerHandler() {
-		private boolean mFlashToggle=false;
-		public boolean HandleTimer() { 
-			mFlashToggle=!mFlashToggle;
-			Game.this.updateGame(mFlashToggle);
-			return true;
-		} 
+	/**
+	 * Runs the engine ticks at a fixed rate, catching up at most
+	 * MAX_CATCH_UP_TICKS ticks after a stall. Time dropped beyond that is
+	 * lost to the game clock as well as the play, see GameClock
+	 */
+	private static final int MAX_CATCH_UP_TICKS=4;
+	private GameLoop mGameUpdater = new GameLoop(GameEngine.TICK_MILLIS,MAX_CATCH_UP_TICKS,new GameLoop.StepHandler() {
+		public boolean handleStep() {
+			applyInputs();
+			mEngine.tick();
+			return !mEngine.isGameOver() || mUiTimers.size() > 0;
+		}
+
+		public void handleFrame() {
+			long now=SystemClock.uptimeMillis();
+			mUiTimers.advanceTo(now);
+			mKickMeter.update();
+			if (mMetricsView.getVisibility() == View.VISIBLE && now >= mMetricsRefreshMillis)
+			{
+				mMetricsRefreshMillis=now+METRICS_REFRESH_MILLIS;
+				updateMetricsView();
+			}
+		}
 	});
 	
-	private static final int AI_UPDATE_RATE=250;
-	private Timer mAiUpdater = new Timer(AI_UPDATE_RATE,new Timer.TimerHandler() {
-		public boolean HandleTimer() { 			
-			return Game.this.onUpdateGameAI(); 
-		} 
-	});
+	/**
+	 * The metrics overlay is refreshed at most every METRICS_REFRESH_MILLIS,
+	 * with the text composed in mMetricsText
+	 */
+	private static final int METRICS_REFRESH_MILLIS=1000;
+	private long mMetricsRefreshMillis=0;
+	private final StringBuilder mMetricsText=new StringBuilder();
 	
-	private static final int HUDDLE_DELAY=2000;
-	private Timer mHuddleTimer = new Timer(HUDDLE_DELAY,new Timer.TimerHandler() {
-		public boolean HandleTimer() { 			
-			Game.this.initPreSnap(); 
-			return false;
-		} 
-	});
+	/**
+	 * Controller inputs, applied by the game loop between ticks
+	 */
+	private static final int INPUT_QUEUE_SIZE=16;
+	private final InputQueue mInputQueue=new InputQueue(INPUT_QUEUE_SIZE);
+	private static final Input[] INPUTS=Input.values();
 	
-	private static final int mInfoDuration=1500;
+	/**
+	 * Time inputs wait in the queue, inputs refused because the queue was
+	 * full, and inputs that did nothing in the state of play they were
+	 * applied in
+	 */
+	private static final Metrics.Histogram INPUT_WAIT=Metrics.histogram("input.queued");
+	private static final Metrics.Counter INPUTS_DROPPED=Metrics.counter("input.dropped");
+	private static final Metrics.Counter INPUTS_IGNORED=Metrics.counter("input.ignored");
 	
 	/**
-	 * Game settings
+	 * Timed events of the UI, on the uptime clock, advanced by the game loop
 	 */
+	private final TimerWheel mUiTimers = new TimerWheel(GameEngine.TICK_MILLIS,SystemClock.uptimeMillis());
 	
-	private static final int mTouchbackPos=20;
-	private static final int mKickoffPos=30;
-	private static final int mFreeKickPos=20;
-	private static final int mDownsPerSeries=4;
-	private static final int mYardsForFirstDown=10;
-	private static final int mStartingXPos=3;
+	private static final int mInfoDuration=1500;
 	
-	private State mState;
-	private int mHomeScore;
-	private int mVisitorScore;
-	private GameClock mGameClock;
-	private int mPeriod;
-	private int mFieldPos;
-	private int mSeriesDown;
-	private int mLineOfScrimmage;
-	private int mFirstDownPos;
-	private int mKickPower;
-	private Coordinate mBallPos;
+	/**
+	 * The rules, AI and state of the current game
+	 */
+	private GameEngine mEngine;
 	
-	enum GameState
+	/**
+	 * The running game, handed from an instance of the activity being
+	 * destroyed for a configuration change to the one that replaces it, so
+	 * that the game and its loaded audio carry on without being saved and
+	 * restored. The engine is detached from the old activity before it is
+	 * handed over and attached to the new one in onCreate.
+	 */
+	private static final class RetainedGame
 	{
-		KICKOFF,
-		PUNT,
-		KICK_RETURN,
-		DRIVE_IN_PROGRESS,
-		TURNOVER_ON_DOWNS,
-		INCOMPLETE,
-		INTERCEPTION,
-		FUMBLE,
-		TOUCHDOWN,
-		TOUCHBACK,
-		FIELD_GOAL_ATTEMPT,
-		FIELD_GOAL_MAKE,
-		FIELD_GOAL_MISS,
-		SAFETY,
-		FREEKICK;
+		final GameEngine engine;
+		final SoundFxManager soundFxManager;
+		final int kickMeterProgress;
 		
-		public boolean isTurnover()
+		RetainedGame(GameEngine engine, SoundFxManager soundFxManager, int kickMeterProgress)
 		{
-			switch (this)
-			{
-				case TURNOVER_ON_DOWNS:
-				case INTERCEPTION:
-				case FUMBLE:
-					return true;
-				default:
-					return false;
-			}
+			this.engine=engine;
+			this.soundFxManager=soundFxManager;
+			this.kickMeterProgress=kickMeterProgress;
 		}
 	}
 	
-	private GameState mGameState;
-	
 	/**
-	 * mQuarterback: current Player of the Quarterback mReceiver: current
-	 * coordiante of the Wide Reciever mDefense: List of Players for the
-	 * defensive players
+	 * Game retained from the previous instance, between onCreate and
+	 * onPostCreate, and whether this instance is handing its game on
 	 */
-	private Offense mOffense;
-	private Defense mDefense;
+	private RetainedGame mRetainedGame;
+	private boolean mRetaining=false;
 	
     /**
      * Invoked during init to give the Activity a chance to set up its Menu.
@@ -225,10 +234,21 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
         menu.add(0, MENU_NEW_GAME, 0, R.string.menu_new_game);
         menu.add(0, MENU_SETTINGS, 0, R.string.menu_settings);
         menu.add(0, MENU_QUIT, 0, R.string.menu_quit);
+        menu.add(0, MENU_METRICS, 0, R.string.menu_show_metrics);
+        menu.add(0, MENU_DUMP_METRICS, 0, R.string.menu_dump_metrics);
 
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        super.onPrepareOptionsMenu(menu);
+
+        menu.findItem(MENU_METRICS).setTitle(mMetricsView.getVisibility() == View.VISIBLE
+                ? R.string.menu_hide_metrics : R.string.menu_show_metrics);
+        return true;
+    }
+
     /**
      * Invoked when the user selects an item from the Menu.
      * 
@@ -252,6 +272,22 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
             case MENU_QUIT:
             	showDialog(MENU_QUIT);
                 return true;
+                
+            case MENU_METRICS:
+            	if (mMetricsView.getVisibility() == View.VISIBLE)
+            	{
+            		mMetricsView.setVisibility(View.GONE);
+            	}
+            	else
+            	{
+            		updateMetricsView();
+            		mMetricsView.setVisibility(View.VISIBLE);
+            	}
+            	return true;
+            	
+            case MENU_DUMP_METRICS:
+            	dumpMetrics();
+            	return true;
         }
 
         return false;
@@ -304,27 +340,85 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 		View gameLayout = (View)findViewById(R.id.game_layout);
 		if (gameLayout != null)
 		{
-			Resources r = getResources();
-			gameLayout.setBackgroundDrawable(r.obtainTypedArray(R.array.skins).getDrawable(idx));
+			gameLayout.setBackgroundDrawable(mAssets.getDrawable(arrayResourceId(getResources(), R.array.skins, idx)));
 		}
 	}
 	
+	/**
+	 * Returns the field display from the layout, swapped for one drawn on
+	 * its own render thread if that is enabled in the settings. The setting
+	 * takes effect the next time a game is started.
+	 */
+	private FieldDisplay createFieldDisplay()
+	{
+		FieldView fieldView = (FieldView)findViewById(R.id.hhfootballview);
+		SharedPreferences settings = PreferenceManager.getDefaultSharedPreferences(getBaseContext());
+		if (!settings.getBoolean("render_thread", false))
+			return fieldView;
+		
+		FieldSurfaceView surfaceView = new FieldSurfaceView(this, null);
+		surfaceView.setId(R.id.hhfootballview);
+		
+		ViewGroup parent = (ViewGroup)fieldView.getParent();
+		int idx = parent.indexOfChild(fieldView);
+		parent.removeViewAt(idx);
+		parent.addView(surfaceView, idx, fieldView.getLayoutParams());
+		return surfaceView;
+	}
+	
 	private void setPlayerTiles()
 	{
 		SharedPreferences settings = PreferenceManager.getDefaultSharedPreferences(getBaseContext());
 		int val = settings.getInt("uniform", 256);
 		
 		
-		Resources r = getBaseContext().getResources();
-		Drawable home = r.obtainTypedArray(R.array.home_uniform).getDrawable(val&0xff);
-		Drawable visitor = r.obtainTypedArray(R.array.visitor_uniform).getDrawable((val>>8)&0xff);
+		Resources r = getResources();
+		Drawable home = mAssets.getDrawable(arrayResourceId(r, R.array.home_uniform, val&0xff));
+		Drawable visitor = mAssets.getDrawable(arrayResourceId(r, R.array.visitor_uniform, (val>>8)&0xff));
 		
 		mFieldView.resetTiles(6);
 		mFieldView.loadTile(HOME_LEFT, home);
 		mFieldView.loadTileFlipped(HOME_RIGHT, home);
 		mFieldView.loadTile(VISITOR_LEFT, visitor);
 		mFieldView.loadTileFlipped(VISITOR_RIGHT, visitor);
-		mFieldView.loadTile(FOOTBALL, r.getDrawable(R.drawable.football));
+		mFieldView.loadTile(FOOTBALL, mAssets.getDrawable(R.drawable.football));
+	}
+	
+	/**
+	 * @return resource id of an entry of an array resource, such as the skins
+	 */
+	private static int arrayResourceId(Resources r, int arrayId, int idx)
+	{
+		TypedArray array = r.obtainTypedArray(arrayId);
+		int resid = array.getResourceId(idx, 0);
+		array.recycle();
+		return resid;
+	}
+	
+	/**
+	 * Starts decoding the images and sound effects of a game, for the current
+	 * settings, in to the process wide AssetCache. Called by the splash screen
+	 * so that they are ready by the time a game is started.
+	 */
+	static void preloadAssets(Context context)
+	{
+		SharedPreferences settings = PreferenceManager.getDefaultSharedPreferences(context);
+		int uniform = settings.getInt("uniform", 256);
+		Resources r = context.getResources();
+		
+		int[] drawables = {
+				R.drawable.field,
+				R.drawable.endzone,
+				R.drawable.football,
+				arrayResourceId(r, R.array.home_uniform, uniform&0xff),
+				arrayResourceId(r, R.array.visitor_uniform, (uniform>>8)&0xff),
+				arrayResourceId(r, R.array.skins, settings.getInt("skin", 0))};
+		
+		int[] sounds = new int[POOLED_SFX.length];
+		for (int i=0;i<POOLED_SFX.length;i++)
+			sounds[i]=POOLED_SFX[i][1];
+		
+		AssetCache.getInstance(context).preload(drawables, sounds);
 	}
 
 	/**
@@ -336,6 +430,7 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 	public void onCreate(Bundle savedInstanceState)
 	{
 		super.onCreate(savedInstanceState);
+		mAssets = AssetCache.getInstance(this);
 		
 		PowerManager pm = (PowerManager)getSystemService(Context.POWER_SERVICE);
 	    mWakeLock = pm.newWakeLock(PowerManager.SCREEN_BRIGHT_WAKE_LOCK, TAG);
@@ -346,23 +441,32 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 		setContentView(R.layout.game_layout);
 	
 		
-		mFieldView = (FieldView)findViewById(R.id.hhfootballview);		
-		mClockView=(TextView)findViewById(R.id.scoreboard_clock);
-		mPeriodView=(TextView)findViewById(R.id.scoreboard_period);
-		mDriveView = (TextView)findViewById(R.id.drive_view);
-		mFieldPosView = (TextView)findViewById(R.id.fieldpos_view);
-		mHomeScoreView = (TextView)findViewById(R.id.scoreboard_home);
-		mVisitorScoreView = (TextView)findViewById(R.id.scoreboard_visitor);
+		mFieldView = createFieldDisplay();
+
+		mScoreboard = (ScoreboardView)findViewById(R.id.scoreboard);
 		mKickMeter= (KickMeter)findViewById(R.id.kick_meter);
+		mMetricsView = (TextView)findViewById(R.id.metrics_view);
+		mClockText = mScoreboard.field(ScoreboardView.CLOCK);
+		mPeriodText = mScoreboard.field(ScoreboardView.PERIOD);
+		mDriveText = mScoreboard.field(ScoreboardView.DRIVE);
+		mFieldPosText = mScoreboard.field(ScoreboardView.FIELD_POS);
+		mHomeScoreText = mScoreboard.field(ScoreboardView.HOME);
+		mVisitorScoreText = mScoreboard.field(ScoreboardView.VISITOR);
+		mKickoffText = getString(R.string.info_kickoff);
+		mPuntText = getString(R.string.info_punt);
+		mFreekickText = getString(R.string.info_freekick);
+		mFieldGoalText = getString(R.string.info_field_goal);
+		mKickReturnText = getString(R.string.info_kick_return);
 		mInfoView = new TextViewAnimator((TextView)findViewById(R.id.info_view),
 											AnimationUtils.loadAnimation(this, R.anim.scroll_in),
-											AnimationUtils.loadAnimation(this, R.anim.scroll_out));
+											AnimationUtils.loadAnimation(this, R.anim.scroll_out),
+											mUiTimers);
 
 		// Set up the button handlers
 		findViewById(R.id.kick_button).setOnTouchListener( new OnTouchListener (){
 		        public boolean onTouch(View v, MotionEvent event) {
 		            if (event.getAction() == MotionEvent.ACTION_DOWN) {
-		                Game.this.onKick(v);
+		                Game.this.onKick(event);
 		            }
 		            return false;
 		        }
@@ -372,7 +476,7 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 		findViewById(R.id.pass_button).setOnTouchListener( new OnTouchListener (){
 	        public boolean onTouch(View v, MotionEvent event) {
 	            if (event.getAction() == MotionEvent.ACTION_DOWN) {
-	                Game.this.onPass(v);
+	                Game.this.onPass(event);
 	            }
 	            return false;
 	        }
@@ -382,7 +486,7 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 		findViewById(R.id.left_button).setOnTouchListener( new OnTouchListener (){
 	        public boolean onTouch(View v, MotionEvent event) {
 	            if (event.getAction() == MotionEvent.ACTION_DOWN) {
-	                Game.this.onLeft(v);
+	                Game.this.onLeft(event);
 	            }
 	            return false;
 	        }
@@ -392,7 +496,7 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 		findViewById(R.id.right_button).setOnTouchListener( new OnTouchListener (){
 	        public boolean onTouch(View v, MotionEvent event) {
 	            if (event.getAction() == MotionEvent.ACTION_DOWN) {
-	                Game.this.onRight(v);
+	                Game.this.onRight(event);
 	            }
 	            return false;
 	        }
@@ -402,7 +506,7 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 		findViewById(R.id.up_button).setOnTouchListener( new OnTouchListener (){
 	        public boolean onTouch(View v, MotionEvent event) {
 	            if (event.getAction() == MotionEvent.ACTION_DOWN) {
-	                Game.this.onUp(v);
+	                Game.this.onUp(event);
 	            }
 	            return false;
 	        }
@@ -412,7 +516,7 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 		findViewById(R.id.down_button).setOnTouchListener( new OnTouchListener (){
 	        public boolean onTouch(View v, MotionEvent event) {
 	            if (event.getAction() == MotionEvent.ACTION_DOWN) {
-	                Game.this.onDown(v);
+	                Game.this.onDown(event);
 	            }
 	            return false;
 	        }
@@ -420,7 +524,11 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 		});
 		
 		setVolumeControlStream(AudioManager.STREAM_MUSIC);
-		mSoundFxManager =new SoundFxManager(this);
+		mRetainedGame = (RetainedGame)getLastNonConfigurationInstance();
+		if (mRetainedGame != null)
+			mSoundFxManager = mRetainedGame.soundFxManager;
+		else
+			mSoundFxManager = new SoundPoolFxManager(this, mAssets);
 		
 		// Get the current settings values
 		SharedPreferences settings = PreferenceManager.getDefaultSharedPreferences(getBaseContext());
@@ -428,6 +536,7 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 		mVibrate=settings.getBoolean("vibrate", mVibrate);
 		mPeriodLengthMins=Integer.parseInt(settings.getString("period_length", String.valueOf(mPeriodLengthMins)));
 		mDifficulty = Difficulty.valueOf(settings.getString("difficulty", mDifficulty.name()));
+		mFieldSize = FieldSize.fromSetting(settings.getString("field_size", mFieldSize.name()));
 		setGameSkin();
 		
 		settings.registerOnSharedPreferenceChangeListener(this);
@@ -443,20 +552,28 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 		super.onPostCreate(savedInstanceState);
 		Resources r = getBaseContext().getResources();
 
-		mFieldView.setFieldBackground(r.getDrawable(R.drawable.field));
-		mFieldView.setEndZoneBackground(r.getDrawable(R.drawable.endzone),
-										r.getDrawable(R.drawable.endzone) );
+		mFieldView.setFieldBackground(mAssets.getDrawable(R.drawable.field));
+		mFieldView.setEndZoneBackground(mAssets.getDrawable(R.drawable.endzone),
+										mAssets.getDrawable(R.drawable.endzone) );
+		mFieldView.setFieldStyle(r.getResourceEntryName(R.drawable.field)+"-"
+								+r.getResourceEntryName(R.drawable.endzone));
 		
 		setPlayerTiles();
 	
-		if (savedInstanceState != null)
+		if (mRetainedGame != null)
+		{
+			// Recreated for a configuration change, the game is still running
+			attachEngine(mRetainedGame.engine, mRetainedGame.kickMeterProgress);
+			mRetainedGame = null;
+		}
+		else if (savedInstanceState != null)
 		{
 			// We are being restored
-			Bundle map = savedInstanceState.getBundle(TAG);
-			if (map != null)
+			byte[] snapshot = savedInstanceState.getByteArray(TAG);
+			if (snapshot == null || !restoreState(snapshot))
 			{
-                restoreState(map);
-            }
+				startNewGame();
+			}
 		}
 		else
 		{
@@ -465,11 +582,28 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 	}
 
 	
+	/**
+	 * Hands the running game to the instance recreated for a configuration
+	 * change. It is paused and its loop stopped, see onPause, and detached
+	 * so that it doesn't keep this instance alive
+	 */
+	@Override
+	public Object onRetainNonConfigurationInstance()
+	{
+		mRetaining=true;
+		mEngine.setHandler(null);
+		return new RetainedGame(mEngine, mSoundFxManager, mKickMeter.getProgress());
+	}
+	
 	@Override
 	protected void onDestroy() 
 	{
 		mWakeLock.release();
-		mSoundFxManager.release();
+		mGameUpdater.stop();
+		PreferenceManager.getDefaultSharedPreferences(getBaseContext())
+			.unregisterOnSharedPreferenceChangeListener(this);
+		if (!mRetaining)
+			mSoundFxManager.release();
 		super.onDestroy();
 	}
 
@@ -478,10 +612,85 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 	{
 		Log.i(TAG,"Activity Paused");
 		super.onPause();
-		mGameClock.stop();
-		mAiUpdater.stop();
+		mEngine.pause();
 		mGameUpdater.stop();
+		clearInputs();
+		mKickMeter.pause();
+		mGameUpdater.dumpStepCost();
+		mFieldView.dumpFrameCost();
+		mAssets.dumpStats();
 		mSoundFxManager.pause();
+		saveInputLog();
+	}
+
+	private void updateMetricsView()
+	{
+		mMetricsText.setLength(0);
+		Metrics.format(mMetricsText);
+		mMetricsView.setText(mMetricsText);
+	}
+	
+	/**
+	 * Dumps the metrics recorded since the last dump to the log and to
+	 * METRICS_FILE, replacing the previous dump, and resets them
+	 */
+	private void dumpMetrics()
+	{
+		StringBuilder text = new StringBuilder();
+		Metrics.format(text);
+		Metrics.reset();
+		
+		int start = 0;
+		for (int end = text.indexOf("\n"); end >= 0; end = text.indexOf("\n", start))
+		{
+			Log.i(TAG, text.substring(start, end));
+			start = end + 1;
+		}
+		
+		try
+		{
+			OutputStream out = openFileOutput(METRICS_FILE, MODE_PRIVATE);
+			try
+			{
+				out.write(text.toString().getBytes());
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		catch (IOException e)
+		{
+			Log.w(TAG,"Unable to save the metrics",e);
+		}
+		
+		if (mMetricsView.getVisibility() == View.VISIBLE)
+			updateMetricsView();
+	}
+
+	/**
+	 * Saves the record of the current game, so that it can be replayed to
+	 * reproduce a problem. Only the most recent game is kept.
+	 */
+	private void saveInputLog()
+	{
+		try
+		{
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(openFileOutput(INPUT_LOG_FILE, MODE_PRIVATE)));
+			try
+			{
+				mEngine.inputLog().writeTo(out,mEngine.stateHash());
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		catch (IOException e)
+		{
+			Log.w(TAG,"Unable to save the input log",e);
+		}
 	}
 
 	
@@ -493,25 +702,16 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 		super.onResume();
 		Log.i(TAG,"Activity Resumed");
 		
-		switch (mState)
+		if (mEngine.isGameOver())
 		{
-			case GAME_OVER:
-				mInfoView.setText(getString(R.string.info_game_over));
-				updateDriveStatus();
-				updateScoreBoard();
-				return;			
-			case KICK:
-				mGameClock.start();
-				break;
-			case PLAY_LIVE:
-			case PASS:
-				mGameClock.start();
-				mAiUpdater.start();
-				break;
-			default:
-				break;	
+			mInfoView.setText(getString(R.string.info_game_over));
+			updateDriveStatus();
+			updateScoreBoard();
+			return;
 		}
 		
+		mEngine.resume();
+		mKickMeter.resume();
 		mSoundFxManager.resume();
 		updateDriveStatus();
 		updateScoreBoard();
@@ -522,26 +722,7 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 	public void onSaveInstanceState(Bundle outState)
 	{
 		// Store the game state
-		Bundle map = new Bundle();
-		
-		map.putInt("mState",mState.ordinal());
-		map.putInt("mGameState",mGameState.ordinal());
-		map.putInt("mHomeScore",mHomeScore);
-		map.putInt("mVisitorScore",mVisitorScore);
-		map.putBundle("mGameClock",mGameClock.serialize());
-		map.putBundle("mKickMeter",mKickMeter.serialize());
-		map.putInt("mPeriodLengthMins",mPeriodLengthMins);
-		map.putInt("mPeriod",mPeriod);
-		map.putInt("mLineOfScrimmage",mLineOfScrimmage);
-		map.putInt("mFieldPos",mFieldPos);
-		map.putInt("mSeriesDown",mSeriesDown);
-		map.putInt("mFirstDownPos",mFirstDownPos);
-		map.putInt("mKickPower",mKickPower);
-		map.putBundle("mBallPos", mBallPos.serialize());
-		map.putBundle("mOffense", mOffense.serialize());
-		map.putBundle("mDefense", mDefense.serialize());
-		
-		outState.putBundle(TAG, map);
+		outState.putByteArray(TAG, GameSnapshot.encode(mEngine,mKickMeter.getProgress()));
 	}
 
 	public void onSharedPreferenceChanged(SharedPreferences settings, String key)
@@ -557,6 +738,13 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 		else if (key.equals("difficulty"))
 		{
 			mDifficulty = Difficulty.valueOf(settings.getString("difficulty", mDifficulty.name()));
+			if (mEngine != null)
+				mEngine.setDifficulty(mDifficulty);
+		}
+		else if (key.equals("field_size"))
+		{
+			// The field of a game in progress is kept, the new size is for the next game
+			mFieldSize = FieldSize.fromSetting(settings.getString("field_size", mFieldSize.name()));
 		}
 		else if (key.equals("skin"))
 		{
@@ -573,1271 +761,361 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 	/**
 	 * Restore game state if our process is being relaunched
 	 * 
-	 * @param savedState
-	 *            a Bundle containing the game state
+	 * @param snapshot
+	 *            the game state, from {@link GameSnapshot#encode(GameEngine, int)}
+	 * @return false if the snapshot could not be restored
 	 */
-	public void restoreState(Bundle savedState) {
-		mState=State.values()[savedState.getInt("mState")];
-		mGameState=GameState.values()[savedState.getInt("mGameState")];
-		mHomeScore=savedState.getInt("mHomeScore");
-		mVisitorScore=savedState.getInt("mVisitorScore");
-		mGameClock=new GameClock(savedState.getBundle("mGameClock"),this);
-		mKickMeter.restore(savedState.getBundle("mKickMeter"));
-		mPeriod=savedState.getInt("mPeriod");
-		mPeriodLengthMins=savedState.getInt("mPeriodLengthMins");
-		mLineOfScrimmage=savedState.getInt("mLineOfScrimmage");
-		mFieldPos=savedState.getInt("mFieldPos");
-		mSeriesDown=savedState.getInt("mSeriesDown");
-		mFirstDownPos=savedState.getInt("mFirstDownPos");
-		mKickPower=savedState.getInt("mKickPower");
-		mBallPos=new Coordinate(savedState.getBundle("mBallPos"));
-		mOffense=new Offense(savedState.getBundle("mOffense"));
-		mDefense=new Defense(savedState.getBundle("mDefense"));
-        switch (mState)
+	public boolean restoreState(byte[] snapshot) {
+		GameSnapshot state;
+		try
+		{
+			state=GameSnapshot.decode(snapshot);
+		}
+		catch (IllegalArgumentException e)
+		{
+			Log.w(TAG,"Unable to restore the game",e);
+			return false;
+		}
+		
+		attachEngine(state.engine(), state.kickMeterProgress());
+        if (mEngine.isGameOver())
         {
-            case GAME_OVER:
-                mSoundFxManager.release();
-                break;
-            case PLAY_DEAD:
-                initAudio();
-                mSoundFxManager.playSfx(AUDIO_CROWD,true);
-                initPreSnap();
-                break;
-            default:
-                initAudio();
-                mSoundFxManager.playSfx(AUDIO_CROWD,true);
+            mSoundFxManager.release();
         }
-
+        else
+        {
+            initAudio();
+            mSoundFxManager.playSfx(Sfx.CROWD.ordinal(),true);
+        }
+		return true;
 	}
 	
-	private void initAudio()
-	{
-		mSoundFxManager.addSfx(AUDIO_CROWD, R.raw.crowd);
-		mSoundFxManager.addSfx(AUDIO_CROWD_BOO, R.raw.crowd_boo);
-		mSoundFxManager.addSfx(AUDIO_CROWD_CHEER, R.raw.crowd_cheer);
-		mSoundFxManager.addSfx(AUDIO_QUARTERBACK, R.raw.quarterback);
-		mSoundFxManager.addSfx(AUDIO_TACKLE, R.raw.tackle);
-		mSoundFxManager.addSfx(AUDIO_WHISTLE, R.raw.whistle);
-		mSoundFxManager.addSfx(AUDIO_KICK, R.raw.kick);
-		mSoundFxManager.addSfx(AUDIO_CATCH, R.raw.ball_catch);
-		mSoundFxManager.addSfx(AUDIO_TOUCHDOWN,R.raw.touchdown);
-		mSoundFxManager.addSfx(AUDIO_FIRST_DOWN,R.raw.firstdown);
-		mSoundFxManager.addSfx(AUDIO_BUZZER,R.raw.buzzer);
-        mSoundFxManager.setSfxVolume(AUDIO_CROWD, 0.1f);
-
-    }
-	
 	/**
-	 * Returns the number of tiles long (between the end zones) the playing field is
-     * @return
-     */
-	public int getFieldLength()
+	 * Makes a game in progress the current game, and sets up the views to
+	 * show it. The difficulty is taken from the settings, as it may have
+	 * changed since the game was saved. The audio is left to the caller
+	 */
+	private void attachEngine(GameEngine engine, int kickMeterProgress)
 	{
-		return mFieldView.getFieldLength();
+		mEngine=engine;
+		mEngine.setHandler(this);
+		if (mEngine.difficulty() != mDifficulty)
+			mEngine.setDifficulty(mDifficulty);
+		mFieldView.setFieldSize(mEngine.getFieldLength(), mEngine.getFieldWidth());
+		mKickMeter.disable();
+		if (mEngine.isKickMeterEnabled())
+		{
+			mKickMeter.setMinMaxPower(mEngine.kickMinPower(), mEngine.kickMaxPower());
+			mKickMeter.enable(kickMeterProgress);
+		}
 	}
 	
-	/**
-	 * Returns the number of tiles wide (between the boundaries) the playing field is
-	 */
-	public int getFieldWidth()
+	private void initAudio()
 	{
-		return mFieldView.getFieldWidth();
-	}
+		mSoundFxManager.addStreamedSfx(Sfx.CROWD.ordinal(), R.raw.crowd);
+		mSoundFxManager.addStreamedSfx(Sfx.CROWD_BOO.ordinal(), R.raw.crowd_boo);
+		for (int[] sfx : POOLED_SFX)
+			mSoundFxManager.addSfx(sfx[0], sfx[1]);
+        mSoundFxManager.setSfxVolume(Sfx.CROWD.ordinal(), 0.1f);
+
+    }
 	
 	public void startNewGame()
 	{
-		mOffense = new Offense(Team.SIDE_HOME,Team.ORIENTATION_LEFT);
-		mDefense = new Defense(Team.SIDE_VISITOR,Team.ORIENTATION_RIGHT);
-		mBallPos = new Coordinate(mOffense.quarterback().pos());
-		mGameClock = new GameClock(mPeriodLengthMins*60,this);
-		mHomeScore=0;
-		mVisitorScore=0;
+		mGameUpdater.stop();
+		mInputQueue.clear();
+		mFieldView.setFieldSize(mFieldSize.length(), mFieldSize.width());
+		mEngine = new GameEngine(this,mDifficulty,mFieldSize,mPeriodLengthMins);
 		mInfoView.clear();
-		mGameState=GameState.KICKOFF;
-		updateScoreBoard();
-		updateDriveStatus();
 		
 		initAudio();	
-		mSoundFxManager.playSfx(AUDIO_CROWD,true);
+		mSoundFxManager.playSfx(Sfx.CROWD.ordinal(),true);
+		mEngine.start();
 		mGameUpdater.start();
-		initPreSnap();
 	}
 	
+	public void onLeft(MotionEvent event)
+	{
+		queueInput(Input.LEFT, event);
+	}
 
-	private void initPreSnap()
+	public void onRight(MotionEvent event)
 	{
-		handleNewPeriod();	
-		
-		mLineOfScrimmage=mFieldPos;
-		
-		
-		switch (mGameState)
-		{
-			case KICKOFF:
-				mState=State.PRE_KICKOFF;
-				mFieldPos=(mOffense.orientation() == Team.ORIENTATION_RIGHT)?mKickoffPos:100-mKickoffPos;
-				arrangePreSnapFormation(mOffense);
-				arrangePreSnapFormation(mDefense);
-				mInfoView.setText(getString(R.string.info_kickoff),mInfoDuration);
-				updateDriveStatus();
-				mKickMeter.setMinMaxPower(20, 75);
-				mKickMeter.enable();
-				return;
-				
-			case FREEKICK:
-				mState=State.PRE_KICKOFF;
-				mFieldPos=(mOffense.orientation() == Team.ORIENTATION_RIGHT)?mFreeKickPos:100-mFreeKickPos;
-				arrangePreSnapFormation(mOffense);
-				arrangePreSnapFormation(mDefense);
-				mInfoView.setText(getString(R.string.info_freekick),mInfoDuration);
-				updateDriveStatus();
-				mKickMeter.setMinMaxPower(20, 75);
-				mKickMeter.enable();
-				return;
-				
-			case TOUCHBACK:
-				handleTouchBack();
-				break;
-			case FIELD_GOAL_MISS:
-			case TURNOVER_ON_DOWNS:
-			case INTERCEPTION:
-			case FUMBLE:
-				handleChangeOfPossesion();
-				break;
-				
-		}
-		
-		mState=State.PRE_SNAP;
-		arrangePreSnapFormation(mOffense);
-		arrangePreSnapFormation(mDefense);
-		mSoundFxManager.playSfx(AUDIO_QUARTERBACK,true);
-		updateScoreBoard();
-		updateDriveStatus();
+		queueInput(Input.RIGHT, event);
+	}
+
+	public void onUp(MotionEvent event)
+	{
+		queueInput(Input.UP, event);
+	}
+
+	public void onDown(MotionEvent event)
+	{
+		queueInput(Input.DOWN, event);
 	}
 	
-	
-	private void arrangePreSnapFormation(Team team)
+	public void onPass(MotionEvent event)
 	{
-		int[][] formation;
-		switch (mGameState)
-		{
-			case KICKOFF: 
-			case FREEKICK:
-				formation = team.getKickoffFormation();
-				break;
-				
-			default:
-			case DRIVE_IN_PROGRESS: 
-				formation = team.getPreSnapFormation();
-				break;
-		}
-		
-		for ( int idx=0;idx<team.size();idx++)
-		{
-			Player player = team.getPlayer(idx);
-			player.setFlashing(false);
-			if (formation[idx][0] == -1 || formation[idx][1] == -1)
-			{
-				player.set(-1,-1);
-			}
-			else
-			{		
-				if (team.orientation()==Team.ORIENTATION_RIGHT)
-					player.set(formation[idx][0],formation[idx][1]);
-				else
-					player.set(getFieldLength()-1-formation[idx][0],formation[idx][1]);
-			}
-		}
+		queueInput(Input.PASS, event);
 	}
 	
-	private void setFirstDownPos()
+	public void onKick(MotionEvent event)
 	{
-		if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
+		// The power is the one showing when the button was pressed
+		if (mKickMeter.disable())
 		{
-			mFirstDownPos=mFieldPos+mYardsForFirstDown;
-			if (mFirstDownPos > 100)
-				mFirstDownPos=100;
+			Log.i(TAG,String.format("KickMeter kick power = %d",mKickMeter.getPowerValue()));
+			if (!queueInput(InputLog.TYPE_KICK, mKickMeter.getPowerValue(), event))
+				restartKickMeter();
 		}
 		else
 		{
-			mFirstDownPos=mFieldPos-mYardsForFirstDown;
-			if (mFirstDownPos < 0)
-				mFirstDownPos=0;
+			queueInput(Input.KICK, event);
 		}
 	}
 	
-	private boolean checkFirstDown()
+	private void queueInput(Input input, MotionEvent event)
 	{
-		return ( (mOffense.orientation() == Team.ORIENTATION_RIGHT) ? 
-					(mFieldPos >= mFirstDownPos) :
-						(mFieldPos <= mFirstDownPos));
+		queueInput(InputLog.TYPE_INPUT, input.ordinal(), event);
 	}
 	
-	private int swapFieldPosOrientation(int pos)
-	{
-		if (pos > 50)
-			return 50-(pos-50);
-		else
-			return 50+(50-pos);
-	}
-	private void swapOrientation()
+	/**
+	 * @return false if the queue is full and the input was dropped
+	 */
+	private boolean queueInput(int type, int value, MotionEvent event)
 	{
-		int tmp = mOffense.orientation();
-		mOffense.setOrientation(mDefense.orientation());
-		mDefense.setOrientation(tmp);
+		if (mInputQueue.add(type, value, event.getEventTime()))
+			return true;
+
+		INPUTS_DROPPED.increment();
+		return false;
 	}
 	
-	private void swapSides()
+	/**
+	 * Drops the queued inputs, restarting the kick meter if a kick that
+	 * stopped it is among them
+	 */
+	private void clearInputs()
 	{
-		int tmp = mOffense.side();
-		mOffense.setSide(mDefense.side());
-		mDefense.setSide(tmp);
+		mInputQueue.clear();
+		restartKickMeter();
 	}
 	
-	private void handleTouchBack()
+	/**
+	 * Shows the kick meter again, from where it stopped, if the engine is
+	 * still waiting for the kick. The meter is stopped when the kick button
+	 * is pressed, but the kick only reaches the engine through the input
+	 * queue, so without this a dropped kick would leave the game waiting
+	 * for a kick with no meter to stop.
+	 */
+	private void restartKickMeter()
 	{
-		swapSides();
-		swapOrientation();
-		mFieldPos=(mOffense.orientation() == Team.ORIENTATION_RIGHT)?mTouchbackPos:100-mTouchbackPos;
-		mLineOfScrimmage=mFieldPos;
-		mSeriesDown = 1;
-		setFirstDownPos();
-		mGameState=GameState.DRIVE_IN_PROGRESS;
+		if (mEngine.isKickMeterEnabled())
+			mKickMeter.enable(mKickMeter.getProgress());
 	}
 	
-	private void handleNewPeriod()
+	/**
+	 * Applies the queued inputs to the engine, called by the game loop
+	 * between ticks
+	 */
+	private void applyInputs()
 	{
-		if (mGameClock.expired())
+		long now=SystemClock.uptimeMillis();
+		while (!mInputQueue.isEmpty())
 		{
-			switch (mGameClock.period())
-			{
-				case END_OF_FIRST_QUARTER:
-				case END_OF_THIRD_QUARTER:	
-					// End of quarter, just swap sides
-					mFieldPos=swapFieldPosOrientation(mFieldPos);
-					mLineOfScrimmage=mFieldPos;
-					mFirstDownPos=swapFieldPosOrientation(mFirstDownPos);
-					swapOrientation();
-					mGameClock.setPeriod();
-					mInfoView.setText(getString(R.string.info_change_sides),mInfoDuration);
-					break;
-				case HALFTIME:	
-					mOffense.setSide(Team.SIDE_VISITOR);
-					mOffense.setOrientation(Team.ORIENTATION_LEFT);
-					mDefense.setSide(Team.SIDE_HOME);
-					mDefense.setOrientation(Team.ORIENTATION_RIGHT);
-					mGameState=GameState.KICKOFF;
-					mGameClock.setPeriod();
-					break;
-				case GAME_OVER:
-					return;
-					
-				default:
-					break;
-			}
+			boolean applied;
+			if (mInputQueue.type() == InputLog.TYPE_KICK)
+				applied=mEngine.kick(mInputQueue.value());
+			else
+				applied=mEngine.step(INPUTS[mInputQueue.value()]);
+			
+			INPUT_WAIT.record((now - mInputQueue.eventMillis()) * 1000000L);
+			if (applied)
+				mFieldView.setInputTime(mInputQueue.eventMillis());
+			else
+				INPUTS_IGNORED.increment();
+			mInputQueue.remove();
 		}
 	}
+
+	public void playSfx(Sfx sfx, boolean loop)
+	{
+		mSoundFxManager.playSfx(sfx.ordinal(),loop);
+	}
+	
+	public void stopSfx(Sfx sfx)
+	{
+		mSoundFxManager.stopSfx(sfx.ordinal());
+	}
+	
+	public void releaseSfx()
+	{
+		mSoundFxManager.release();
+	}
+	
+	public void vibrate()
+	{
+		if (mVibrate)
+			mVibrator.vibrate(VIBRATE_DURATION);
+	}
+	
+	public void showInfo(Info info, boolean autoClear)
+	{
+		if (autoClear)
+			mInfoView.setText(infoToString(info),mInfoDuration);
+		else
+			mInfoView.setText(infoToString(info));
+	}
 	
-	private void handleFirstDown()
+	public void clearInfo()
 	{
-		mSeriesDown = 1;
-		setFirstDownPos();
+		mInfoView.clearText();
 	}
 	
-	private void handleChangeOfPossesion()
+	public void enableKickMeter(int minPower, int maxPower)
 	{
-		swapSides();
-		swapOrientation();
-		mSeriesDown = 1;
-		setFirstDownPos();
-		mGameState=GameState.DRIVE_IN_PROGRESS;
+		mKickMeter.setMinMaxPower(minPower, maxPower);
+		mKickMeter.enable();
 	}
 	
-	private void handlePlayDead()
+	private String infoToString(Info info)
+	{
+		switch (info)
+		{
+			case KICKOFF: return getString(R.string.info_kickoff);
+			case FREEKICK: return getString(R.string.info_freekick);
+			case CHANGE_SIDES: return getString(R.string.info_change_sides);
+			case TOUCHBACK: return getString(R.string.info_touchback);
+			case TOUCHDOWN: return getString(R.string.info_touchdown);
+			case SAFETY: return getString(R.string.info_safety);
+			case FIELD_GOAL_MAKE: return getString(R.string.info_field_goal_make);
+			case FIELD_GOAL_MISS: return getString(R.string.info_field_goal_miss);
+			case INTERCEPTION: return getString(R.string.info_interception);
+			case INCOMPLETE: return getString(R.string.info_incomplete);
+			case FIRST_DOWN: return getString(R.string.info_first_down);
+			case SECOND_DOWN: return getString(R.string.info_second_down);
+			case THIRD_DOWN: return getString(R.string.info_third_down);
+			case FOURTH_DOWN: return getString(R.string.info_fourth_down);
+			case TURNOVER_ON_DOWNS: return getString(R.string.info_turnover_on_downs);
+			case END_OF_FIRST_QUARTER: return getString(R.string.info_end_of_first_quarter);
+			case HALFTIME: return getString(R.string.info_halftime);
+			case END_OF_THIRD_QUARTER: return getString(R.string.info_end_of_third_quarter);
+			case GAME_OVER: return getString(R.string.info_game_over);
+			default: return "";
+		}
+	}
+
+	public void updateScoreBoard()
 	{
-		mGameClock.stop();
-		mAiUpdater.stop();
-		mState = State.PLAY_DEAD;
+		mHomeScoreText.clear().append(mEngine.homeScore()).show();
+		mVisitorScoreText.clear().append(mEngine.visitorScore()).show();
+	}
 
-		switch (mGameState)
+	private void driveStatusToText(HudText text)
+	{
+		int down=mEngine.seriesDown();
+		if (down >= 0 && down < DOWNS.length)
+			text.append(DOWNS[down]);
+		text.append(' ');
+		
+		if (mEngine.offense().orientation() == Team.ORIENTATION_RIGHT)
 		{
-			case KICK_RETURN:
-				mSoundFxManager.playSfx(AUDIO_TACKLE,false);
-				if (mVibrate)
-					mVibrator.vibrate(VIBRATE_DURATION);
-				handleFirstDown();
-				mGameState=GameState.DRIVE_IN_PROGRESS;
-				break;
-				
-			case TOUCHBACK:
-				mInfoView.setText(getString(R.string.info_touchback),mInfoDuration);
-				break;
-				
-			case TOUCHDOWN:
-				mSoundFxManager.playSfx(AUDIO_TOUCHDOWN,false);
-				mInfoView.setText(getString(R.string.info_touchdown),mInfoDuration);
-				mGameState=GameState.KICKOFF;
-				break;
-				
-			case SAFETY:
-				mInfoView.setText(getString(R.string.info_safety),mInfoDuration);
-				mGameState=GameState.FREEKICK;
-				break;
-				
-			case FIELD_GOAL_MAKE:
-				mInfoView.setText(getString(R.string.info_field_goal_make),mInfoDuration);
-				mGameState=GameState.KICKOFF;
-				break;
-				
-			case FIELD_GOAL_MISS:
-				mFieldPos=mLineOfScrimmage;
-				mInfoView.setText(getString(R.string.info_field_goal_miss),mInfoDuration);
-				break;
-				
-			case INTERCEPTION:
-				mInfoView.setText(getString(R.string.info_interception),mInfoDuration);
-				break;
-				
-			case INCOMPLETE:
-				mInfoView.setText(getString(R.string.info_incomplete),mInfoDuration);
-				
-			case DRIVE_IN_PROGRESS:
-				if (mGameState==GameState.DRIVE_IN_PROGRESS)
-				{
-					mSoundFxManager.playSfx(AUDIO_TACKLE,false);
-					if (mVibrate)
-						mVibrator.vibrate(VIBRATE_DURATION);
-				}
-				else
-				{
-					mGameState=GameState.DRIVE_IN_PROGRESS;
-				}
-				
-				if (isSafety())
-				{
-					handleSafety();
-				}
-				else if (checkFirstDown())
-				{
-					handleFirstDown();
-					mSoundFxManager.playSfx(AUDIO_FIRST_DOWN,false);
-					mInfoView.setText(getString(R.string.info_first_down),mInfoDuration);
-				}
-				else if (mSeriesDown == mDownsPerSeries)
-				{
-					// Turnover on downs
-					mGameState=GameState.TURNOVER_ON_DOWNS;
-					mInfoView.setText(getString(R.string.info_turnover_on_downs),mInfoDuration);
-				}
-				else
-				{
-					switch (++mSeriesDown)
-					{
-						case 2:
-							mInfoView.setText(getString(R.string.info_second_down),mInfoDuration);
-							break;
-							
-						case 3:
-							mInfoView.setText(getString(R.string.info_third_down),mInfoDuration);
-							break;
-									
-						case 4:
-							mInfoView.setText(getString(R.string.info_fourth_down),mInfoDuration);
-							break;
-					}
-				}
-				break;
-		}
-		
-		try{Thread.sleep(200);}
-			catch (InterruptedException e){}
-		mSoundFxManager.playSfx(AUDIO_WHISTLE,false);
-				
-		switch (mGameClock.period())
-		{
-			case END_OF_FIRST_QUARTER:
-				mInfoView.setText(getString(R.string.info_end_of_first_quarter),mInfoDuration);
-				mHuddleTimer.start();
-				break;
-			case HALFTIME:
-				mInfoView.setText(getString(R.string.info_halftime),mInfoDuration);
-				mHuddleTimer.start();
-				break;
-			case END_OF_THIRD_QUARTER:
-				mInfoView.setText(getString(R.string.info_end_of_third_quarter),mInfoDuration);
-				mHuddleTimer.start();
-				break;
-			case GAME_OVER:
-				mState = State.GAME_OVER;
-				mInfoView.setText(getString(R.string.info_game_over));
-				mSoundFxManager.release();
-				mGameUpdater.stop();
-				break;
-				
-			default:
-				mHuddleTimer.start();
-		}
-	}
-
-
-	private void handleKickReception()
-	{
-		mSoundFxManager.playSfx(AUDIO_CATCH,false);
-		swapSides();
-		swapOrientation();
-		mGameState=GameState.KICK_RETURN;
-		mState=State.KICK_RECEIVED;
-		updateDriveStatus();
-		
-		for (PlayerIterator i=mOffense.iterator();i.hasNext();)
-			i.next().set(-1,-1);
-		
-		for (PlayerIterator i=mDefense.iterator();i.hasNext();)
-			i.next().set(-1,-1);
-		
-		mOffense.quarterback().set(mBallPos.x,mBallPos.y);	
-	}
-	
-	private void onHandleKick()
-	{
-		int newX;
-		boolean inEndZone=false;
-		
-		if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
-		{
-			newX = mBallPos.x+1;
-			if (newX >= getFieldLength())
-				newX=0;		
-			
-			mFieldPos++;
-			inEndZone = mFieldPos >= 100;
-		}
-		else
-		{
-			newX = mBallPos.x-1;
-			if (newX < 0)
-				newX=getFieldLength()-1;	
-			
-			mFieldPos--;
-			inEndZone = mFieldPos <= 0;
-		}
-		
-		if (inEndZone)
-		{
-			switch (mGameState)
-			{
-				case FIELD_GOAL_ATTEMPT:
-					handleFieldGoal();
-					return;
-				case PUNT:
-				case KICKOFF:
-				case FREEKICK:
-				default:
-					mGameState=GameState.TOUCHBACK;
-					handlePlayDead();
-					return;
-			}
-		}
-		
-		if (--mKickPower  == 0)
-		{
-			switch (mGameState)
-			{
-				case FIELD_GOAL_ATTEMPT:
-					mGameState=GameState.FIELD_GOAL_MISS;
-					handlePlayDead();
-					return;
-				case PUNT:
-				case KICKOFF:
-				case FREEKICK:
-				default:
-					handleKickReception();
-					return;
-			}
-		}
-
-		mBallPos.x=newX;
-	}
-	
-	private void handleTouchDown()
-	{
-		if (mOffense.side() == Team.SIDE_HOME)
-		{
-			mHomeScore+=7;
-			mSoundFxManager.playSfx(AUDIO_CROWD_CHEER, false);
+			text.append(mEngine.firstDownPos()-mEngine.fieldPos());
 		}
 		else
 		{
-			mVisitorScore+=7;
-			mSoundFxManager.playSfx(AUDIO_CROWD_BOO, false);
+			text.append(mEngine.fieldPos()-mEngine.firstDownPos());
 		}
-		
-		mGameState=GameState.TOUCHDOWN;
-		updateScoreBoard();
-		handlePlayDead();
 	}
 	
-	private void handleSafety()
+	private void fieldPosToText(HudText text)
 	{
-		if (mDefense.side() == Team.SIDE_HOME)
+		int fieldPos=mEngine.fieldPos();
+		if (fieldPos>50)
 		{
-			mHomeScore+=2;
-			mSoundFxManager.playSfx(AUDIO_CROWD_CHEER, false);
-		}
-		else
-		{
-			mVisitorScore+=2;
-			mSoundFxManager.playSfx(AUDIO_CROWD_BOO, false);
-		}
-		
-		mGameState=GameState.SAFETY;
-		updateScoreBoard();
-		handlePlayDead();
-	}
-	
-	private void handleFieldGoal()
-	{
-		Log.i(TAG,String.format("Field Goal percentage %d%%",mDifficulty.perFieldGoalIsGood().getPercentage()+mKickPower));
-		if (mDifficulty.perFieldGoalIsGood().test(mKickPower))
-		{
-			Log.i(TAG,"Field goal is good");
-			if (mOffense.side() == Team.SIDE_HOME)
+			if (mEngine.offense().orientation() == Team.ORIENTATION_RIGHT)
 			{
-				mHomeScore+=3;
-				mSoundFxManager.playSfx(AUDIO_CROWD_CHEER, false);
+				text.append(" Opp");
 			}
 			else
 			{
-				mVisitorScore+=3;
-				mSoundFxManager.playSfx(AUDIO_CROWD_BOO, false);
+				text.append(" Own");
 			}
-			
-			mGameState=GameState.FIELD_GOAL_MAKE;
-			updateScoreBoard();
+			text.append(' ').append(50-(fieldPos-50));
 		}
 		else
 		{
-			Log.i(TAG,"Field goal miss");
-			mGameState=GameState.FIELD_GOAL_MISS;
-		}
-		
-		handlePlayDead();
-	}
-	
-	private Random recRand=new Random();
-	private void handleSnap()
-	{
-		if (mKickMeter.isEnabled())
-			return;
-		
-		mSoundFxManager.stopSfx(AUDIO_QUARTERBACK);
-		mInfoView.clearText();
-		mState = State.PLAY_LIVE;
-		mGameClock.start();
-		mOffense.receiver().set((mOffense.orientation() == Team.ORIENTATION_RIGHT)?
-								mOffense.quarterback().pos().x+2:
-									mOffense.quarterback().pos().x-2, recRand.nextInt(3));
-		mAiUpdater.start();
-	}
-	
-	private boolean ballAcrossLineOfScrimmage()
-	{
-		if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
-		{
-			return (mFieldPos > mLineOfScrimmage);
-		}
-		else
-		{
-			return (mFieldPos < mLineOfScrimmage);
-		}
-	}
-	
-	private boolean isTouchDown()
-	{
-		if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
-		{
-			return (mFieldPos >= 100);
-		}
-		else
-		{
-			return (mFieldPos <= 0);
-		}
-	}
-	private boolean isSafety()
-	{
-		if (mOffense.orientation() == Team.ORIENTATION_LEFT)
-		{
-			return (mFieldPos >= 100);
-		}
-		else
-		{
-			return (mFieldPos <= 0);
-		}
-	}
-	
-	private void moveBallCarrierLeft()
-	{
-		int newX=mOffense.quarterback().pos().x;
-		
-		if (mOffense.quarterback().pos().x > 0)
-		{
-			newX-=1;
-		}
-		else if (mOffense.orientation() == Team.ORIENTATION_LEFT)
-		{
-			newX=getFieldLength() - 1;
-		}
-		else
-			return;
-		
-		DefensivePlayer tackler = (DefensivePlayer)mDefense.findPlayer(newX,mOffense.quarterback().pos().y);
-		if (tackler == null)
-		{
-			mOffense.quarterback().pos().x=newX;
-			mFieldPos-=1;
-			if (ballAcrossLineOfScrimmage())
-				mOffense.receiver().set(-1,-1);
-						
-			if (isTouchDown())
-				handleTouchDown();
-				
-		}
-		else
-		{
-			tackler.setFlashing(true);
-			mOffense.quarterback().setFlashing(true);
-			handlePlayDead();
-		}
-	}
-	public void onLeft(View view)
-	{
-		if (mKickMeter.isEnabled())
-			return;
-		
-		switch (mState)
-		{
-			case PRE_SNAP:
-				if (mOffense.orientation() != Team.ORIENTATION_RIGHT)
-					return;
-				handleSnap();
-				moveBallCarrierLeft();
-				break;
-			case KICK_RECEIVED:
-				mState=State.PLAY_LIVE;
-				updateDriveStatus();
-				mGameClock.start();
-				mAiUpdater.start();
-				moveBallCarrierLeft();
-				break;	
-			case PLAY_LIVE:
-				moveBallCarrierLeft();
-				return;
-			default:
-				return;
-		}		
-	}
-
-	private void moveBallCarrierRight()
-	{
-		int newX=mOffense.quarterback().pos().x;
-		
-		if (mOffense.quarterback().pos().x < getFieldLength()-1)
-		{
-			newX+=1;
-		}
-		else if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
-		{
-			newX=0;
-		}
-		else
-			return;
-		
-		DefensivePlayer tackler = (DefensivePlayer)mDefense.findPlayer(newX,mOffense.quarterback().pos().y);
-		if (tackler == null)
-		{
-			mOffense.quarterback().pos().x=newX;
-			mFieldPos+=1;
-			if (ballAcrossLineOfScrimmage())
-				mOffense.receiver().set(-1,-1);
-						
-			if (isTouchDown())
-				handleTouchDown();
-		}
-		else
-		{
-			tackler.setFlashing(true);
-			mOffense.quarterback().setFlashing(true);
-			handlePlayDead();
-		}
-	}
-	
-	public void onRight(View view)
-	{	
-		if (mKickMeter.isEnabled())
-			return;
-		
-		switch (mState)
-		{
-			case PRE_SNAP:
-				if (mOffense.orientation() != Team.ORIENTATION_LEFT)
-					return;
-				handleSnap();
-				moveBallCarrierRight();
-				break;
-			case KICK_RECEIVED:
-				mState=State.PLAY_LIVE;
-				updateDriveStatus();
-				mGameClock.start();
-				mAiUpdater.start();
-				moveBallCarrierRight();
-				break;
-			case PLAY_LIVE:
-				moveBallCarrierRight();
-				break;
-				
-			default:
-				return;
-		}
-	}
-
-	private void moveBallCarrierUp()
-	{
-		int newY=mOffense.quarterback().pos().y;
-		
-		if (mOffense.quarterback().pos().y > 0)
-		{
-			newY -= 1;
-		}
-		else
-			return;
-		
-		DefensivePlayer tackler = (DefensivePlayer)mDefense.findPlayer(mOffense.quarterback().pos().x,newY);
-		if (tackler == null)
-		{
-			mOffense.quarterback().pos().y=newY;
-		}
-		else
-		{
-			tackler.setFlashing(true);
-			mOffense.quarterback().setFlashing(true);
-			handlePlayDead();
-		}
-	}
-	
-	public void onUp(View view)
-	{	
-		if (mKickMeter.isEnabled())
-			return;
-		
-		switch (mState)
-		{
-			case KICK_RECEIVED:
-				mState=State.PLAY_LIVE;
-				updateDriveStatus();
-				mGameClock.start();
-				mAiUpdater.start();
-				moveBallCarrierUp();
-				break;
-			case PLAY_LIVE:
-				moveBallCarrierUp();
-				break;
-			default:
-				return;
-		}
-	}
-
-	private void moveBallCarrierDown()
-	{
-		int newY=mOffense.quarterback().pos().y;
-		
-		if (mOffense.quarterback().pos().y < mFieldView.getFieldWidth() - 1)
-		{
-			newY += 1;
-		}
-		else
-			return;
-		
-		DefensivePlayer tackler = (DefensivePlayer)mDefense.findPlayer(mOffense.quarterback().pos().x,newY);
-		if (tackler == null)
-		{
-			mOffense.quarterback().pos().y=newY;
-		}
-		else
-		{
-			tackler.setFlashing(true);
-			mOffense.quarterback().setFlashing(true);
-			handlePlayDead();
-		}
-	}
-	
-	public void onDown(View view)
-	{	
-		if (mKickMeter.isEnabled())
-			return;
-		
-		switch (mState)
-		{
-			case KICK_RECEIVED:
-				mState=State.PLAY_LIVE;
-				updateDriveStatus();
-				mGameClock.start();
-				mAiUpdater.start();
-				moveBallCarrierDown();
-				break;
-			case PLAY_LIVE:
-				moveBallCarrierDown();
-				break;
-			default:
-				return;
-		}
-	}
-	
-	public void onPass(View view)
-	{	
-		if (mKickMeter.isEnabled())
-			return;
-		
-		switch (mState)
-		{
-			case PLAY_LIVE:
-				if (mGameState == GameState.DRIVE_IN_PROGRESS && 
-						ballAcrossLineOfScrimmage() == false )
-				{
-					mState=State.PASS;	
-					mBallPos=new Coordinate(mOffense.quarterback().pos());
-				}
-				break;
-			default:
-				return;
-		}
-	}
-	
-	
-	public void onKick(View view)
-	{	
-		if (mKickMeter.disable())
-		{
-			mKickPower=mKickMeter.getPowerValue();
-			Log.i(TAG,String.format("KickMeter kick power = %d",mKickPower));
-			mBallPos=new Coordinate(mOffense.quarterback().pos());
-			mSoundFxManager.playSfx(AUDIO_KICK,false);
-			mInfoView.clearText();
-			mState = State.KICK;
-		}
-		else
-		{
-			switch (mState)
-			{
-				case PRE_SNAP:
-					mSoundFxManager.stopSfx(AUDIO_QUARTERBACK);
-					mInfoView.clearText();
-					mKickMeter.setMinMaxPower(5, 50);
-					mGameState = GameState.FIELD_GOAL_ATTEMPT;
-					mKickMeter.enable();
-					mAiUpdater.stop();
-					mGameClock.stop();
-					break;
-					
-				case PLAY_LIVE:
-					// Punt
-					if (ballAcrossLineOfScrimmage() == false)
-					{
-						mInfoView.clearText();
-						mKickMeter.setMinMaxPower(10, 60);
-						mKickMeter.enable();
-						mGameState = GameState.PUNT;
-						mAiUpdater.stop();
-						mGameClock.stop();
-					}
-					break;
-			}
-		}
-	}
-	
-	private Player findPlayer(int x, int y)
-	{
-		Player player = mOffense.findPlayer(x,y);
-		if (player == null)
-			player = mDefense.findPlayer(x,y);
-		
-		return player;
-	}
-	
-	private void handleCompletion()
-	{
-		Player quarterback = mOffense.quarterback();
-		Player receiver = mOffense.receiver();
-		
-		mSoundFxManager.playSfx(AUDIO_CATCH,false);
-		mFieldPos+=(receiver.pos().x - quarterback.pos().x);
-		quarterback.set(receiver.pos().x,receiver.pos().y);
-		receiver.set(-1,-1);
-		mState=State.PLAY_LIVE;	
-		
-		if (mOffense.orientation() == Team.ORIENTATION_LEFT)
-		{
-			if (mFieldPos <= 0)
-			{
-				handleTouchDown();
-			}
-		}
-		else
-		{
-			if (mFieldPos >= 100)
-			{
-				handleTouchDown();
-			}
-		}
-	}
-	
-	private void handleInterception(Player defender)
-	{
-		mFieldPos+=(defender.pos().x - mOffense.quarterback().pos().x);
-		if (mFieldPos > 100)
-			mFieldPos=100-mTouchbackPos;
-		else if (mFieldPos < 0)
-			mFieldPos=mTouchbackPos;
-		
-		defender.setFlashing(true);
-		mGameState=GameState.INTERCEPTION;
-		handlePlayDead();
-	} 
-	
-	private void onHandlePass()
-	{
-		Player quarterback = mOffense.quarterback();
-		Player receiver = mOffense.receiver();
-		int newX = (mOffense.orientation() == Team.ORIENTATION_RIGHT)?mBallPos.x+1:mBallPos.x-1;
-		
-		// Check for incomplete pass
-		if (newX < 0 || newX >= getFieldLength())
-		{
-			mGameState=GameState.INCOMPLETE;
-			mFieldPos=mLineOfScrimmage;
-			handlePlayDead();
-			return;
-		}
-		
-		Player defender = mDefense.findPlayer(newX,quarterback.pos().y);
-		if (defender != null)
-		{
-			if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
-			{
-				if (defender.pos().x >= mStartingXPos)
-					handleInterception(defender);
-			}
-			else 
-			{
-				if (defender.pos().x <= getFieldLength()-1-mStartingXPos)
-					handleInterception(defender);
-			}
-		}
-		
-		if (receiver.equals(newX,quarterback.pos().y))
-		{
-			handleCompletion();
-			return;
-		}
-
-		mBallPos.x=newX;	
-	}
-	
-	protected boolean onUpdateGameAI()
-	{
-		switch (mState)
-		{
-			case PLAY_LIVE:
-				Game.this.onMoveDefense(); 
-				Game.this.onMoveReceiver(); 
-				return (mState==State.PLAY_LIVE);
-			case PASS:
-				return true;
-			case KICK:
-				return true;
-
-			default:
-				return false;
-		}
-	}
-	
-	protected void onMoveReceiver()
-	{
-		if ( !mDifficulty.perReceiverMoves().test() || 
-				mOffense.receiver().pos().x == -1 ||
-					mOffense.receiver().pos().y == -1)
-			return;
-		
-		movePlayerRelativePosition(mOffense.receiver(),
-										(mOffense.orientation() == Team.ORIENTATION_RIGHT)?getFieldLength()-1:0,
-										mOffense.quarterback().pos().y);	
-	}
-
-	
-	private DefensivePlayer selectDefenderToMove()
-	{
-		OffensivePlayer ballCarrier=mOffense.quarterback();
-		for (PlayerIterator i=mDefense.iterator();i.hasNext();)
-		{
-			DefensivePlayer defender = (DefensivePlayer)i.next();
-			// If the defender is not visible, make them visible first, this 
-			// happens on kick returns
-			if(defender.isVisibile())
+			if (fieldPos<50)
 			{
-				// Look for a defender that can make the tackle. Based on the difficulty
-				//  setting, there is a percentage chance that the player will make the
-				//  tackle. The more players surrounding the ball carrier, the better
-				//  the chance
-				if ((Math.abs(defender.pos().x-ballCarrier.pos().x) + 
-				      Math.abs(defender.pos().y-ballCarrier.pos().y)) == 1)
+				if (mEngine.offense().orientation() == Team.ORIENTATION_RIGHT)
 				{
-					if (mDifficulty.perDefenderTackles().test())
-						return defender;
-				}
-			}
-			else
-				return defender;
-
-		}
-		
-		return (DefensivePlayer)mDefense.getRandomPlayer();
-	}
-	
-	
-	protected void onMoveDefense() 
-	{
-		if ( ! mDifficulty.perDefenderMoves().test())
-		{
-			Log.d(TAG,"onMoveDefense, not moving any defenders");
-			return;
-		}
-		
-		DefensivePlayer defender = selectDefenderToMove();
-		OffensivePlayer ballCarrier=mOffense.quarterback();
-
-		// Make the tackle if possible
-	    if ((Math.abs(defender.pos().x-ballCarrier.pos().x) + 
-			      Math.abs(defender.pos().y-ballCarrier.pos().y)) == 1)
-		{
-	    	defender.setFlashing(true);
-	    	ballCarrier.setFlashing(true);
-			handlePlayDead();
-	    	return;
-		}
-		
-	    if (defender.isVisibile())
-	    {
-	    	movePlayerRelativePlayer(defender,ballCarrier);
-	    }
-	    else
-	    {
-	    	int y = bRand.nextInt(getFieldWidth());
-	    	int x = bRand.nextInt(getFieldLength());
-	    	
-	    	while ( (mOffense.findPlayer(x,y)!=null) || (mDefense.findPlayer(x,y)!=null) )
-	    	{
-	    		Log.d(TAG,String.format("onMoveDefense, pos make visible occupied at %d %d",x,y));
-	    		y = bRand.nextInt(getFieldWidth());
-		    	x = bRand.nextInt(getFieldLength());
-	    	}
-	    	Log.d(TAG,String.format("onMoveDefense, defender now visible at %d %d",x,y));
-	    	defender.set(x,y);
-	    	assert(!defender.equals(ballCarrier));
-	    }
-	}
-
-	protected void movePlayerRelativePlayer(Player player,Player other)
-	{
-		movePlayerRelativePosition(player,other.pos().x,other.pos().y);
-	}
-	
-	private Random bRand=new Random();
-	protected void movePlayerRelativePosition(Player player,int x, int y)
-	{
-		int xOffset= player.pos().x-x;
-	    int yOffset= player.pos().y-y;
-	    
-	    int newX=( (xOffset== 0) ? player.pos().x :
-	    			( (xOffset < 0) ? player.pos().x+1: player.pos().x-1) );
-	    	    
-		int newY=( (yOffset== 0) ? player.pos().y :
-					( (yOffset < 0) ? player.pos().y+1:player.pos().y-1) );
-				
-		// If we can't make the tackle pick a direction to try moving first.
-		//  we will try both directions before giving up
-		boolean selector = bRand.nextBoolean();
-		for (int i=0;i<2;i++)
-		{
-			int dx=selector?newX:player.pos().x;
-			int dy=selector?player.pos().y:newY;
-			
-			if (player.equals(dx,dy))
-				continue;
-			
-			if (findPlayer(dx,dy) == null)
-	    	{
-				
-	    		player.set(dx,dy);
-	    		return;
-	    	}
-			selector=!selector;
-		}
-		
-		Log.d(TAG,"movePlayerRelativePosition, no possible moves for specified player");
-		return;
-	}
-
-	private void updateScoreBoard()
-	{
-		mHomeScoreView.setText(String.format("%d",mHomeScore));
-		mVisitorScoreView.setText(String.format("%d",mVisitorScore));
-	}
-
-	private String driveStatusToString()
-	{
-		String status="";
-		switch (mSeriesDown)
-		{
-			case 1:status= "1st and"; break;
-			case 2:status= "2nd and"; break;
-			case 3:status= "3rd and"; break;
-			case 4: status= "4th and"; break;
-		}
-		
-		if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
-		{
-			status+= String.format(" %d",mFirstDownPos-mFieldPos);
-		}
-		else
-		{
-			status+= String.format(" %d",mFieldPos-mFirstDownPos);
-		}
-		return status;
-	}
-	
-	private String fieldPosToString()
-	{
-		String status= "";
-		if (mFieldPos>50)
-		{
-			if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
-			{
-				status+= String.format(" Opp");
-			}
-			else
-			{
-				status+= String.format(" Own");
-			}
-			status+= String.format(" %d",50-(mFieldPos-50));
-		}
-		else
-		{
-			if (mFieldPos<50)
-			{
-				if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
-				{
-					status+= String.format(" Own");
+					text.append(" Own");
 				}
 				else
 				{
-					status+= String.format(" Opp");
+					text.append(" Opp");
 				}
 			}
-			status+= String.format(" %d",mFieldPos);
+			text.append(' ').append(fieldPos);
 		}
-		
-		return status;
 	}
 	
-	private void updateDriveStatus()
+	public void updateDriveStatus()
 	{
-		switch (mGameState)
+		mDriveText.clear();
+		switch (mEngine.gameState())
 		{
 			case KICKOFF:
-				mDriveView.setText(getString(R.string.info_kickoff));
+				mDriveText.append(mKickoffText);
 				break;
 			case PUNT:
-				mDriveView.setText(getString(R.string.info_punt));
+				mDriveText.append(mPuntText);
 				break;
 			case FREEKICK:
-				mDriveView.setText(getString(R.string.info_freekick));
+				mDriveText.append(mFreekickText);
 				break;
 			case FIELD_GOAL_ATTEMPT:
-				mDriveView.setText(getString(R.string.info_field_goal));
+				mDriveText.append(mFieldGoalText);
 				break;
 			case KICK_RETURN:
-				mDriveView.setText(getString(R.string.info_kick_return));
+				mDriveText.append(mKickReturnText);
 				break;
 			default:
-				mDriveView.setText(driveStatusToString());
-		}
-		mFieldPosView.setText(fieldPosToString());
-	}
-
-
-	private void updateGame(boolean flash)
-	{
-		mGameClock.tick();
-		switch (mState)
-		{
-			case KICK:
-				onHandleKick();
-				break;
-			case PASS:
-				onHandlePass();
-				break;
+				driveStatusToText(mDriveText);
 		}
-			
-		updateField(flash);
-	}
-
-    @Override
-	public void updateClockDisplay(float clock,Period period)
-	{
-		int mins=(int)Math.floor(clock/60);
-		float secs=clock- (mins*60);
-		mClockView.setText(String.format("%02d:%04.1f",mins,secs));
-        mPeriodView.setText(String.format("%d",period.toInt()));
+		mDriveText.show();
+		
+		fieldPosToText(mFieldPosText.clear());
+		mFieldPosText.show();
 	}
 
-
     @Override
-	public void handleClockExpired() 
+	public void updateClockDisplay(int tenths,Period period)
 	{
-		mSoundFxManager.playSfx(AUDIO_BUZZER,false);
-	}
-	
-	private void setPlayerTile(Player player, int bitmapIdx,boolean flash)
-	{
-		try
-		{
-			if ( !player.isFlashing() || flash )
-				mFieldView.setTile(bitmapIdx, player.pos().x, player.pos().y);
-		}
-		catch (NullPointerException e)
-		{
-			return;
-		}
-		catch (IndexOutOfBoundsException e)
-		{
-			return;
-		}
+		int mins=tenths/600;
+		int secs=(tenths/10)%60;
+		mClockText.clear().append(mins,2).append(':').append(secs,2).append('.').append(tenths%10).show();
+        mPeriodText.clear().append(period.toInt()).show();
 	}
 	
 	private void updatePlayerTiles(boolean flash)
 	{
+		Offense offense=mEngine.offense();
+		Defense defense=mEngine.defense();
+		
 		mFieldView.clearTiles();	
-		for (PlayerIterator i=mOffense.iterator();i.hasNext();)
-			setPlayerTile(i.next(),mBitmapLookup[mOffense.side()][mOffense.orientation()],flash);
-		for (PlayerIterator i=mDefense.iterator();i.hasNext();)
-			setPlayerTile(i.next(),mBitmapLookup[mDefense.side()][mDefense.orientation()],flash);
+		mFieldView.setTeamTiles(offense,mBitmapLookup[offense.side()][offense.orientation()],flash);
+		mFieldView.setTeamTiles(defense,mBitmapLookup[defense.side()][defense.orientation()],flash);
 	}
 	
-	private void updateField(boolean flash)
+	public void updateField(boolean flash)
 	{
-		switch (mState)
+		Coordinate ballPos=mEngine.ballPos();
+		
+		switch (mEngine.state())
 		{
 			case PLAY_DEAD:
-				switch (mGameState)
+				switch (mEngine.gameState())
 				{
 					case KICKOFF:
 					case FIELD_GOAL_MAKE:
@@ -1859,20 +1137,21 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 				
 			case PASS:
 				updatePlayerTiles(flash);
-				mFieldView.setTile(FOOTBALL,mBallPos.x,mBallPos.y);
+				mFieldView.setTile(FOOTBALL,ballPos.x,ballPos.y);
 				break;
 				
 			case PRE_KICKOFF:
+				Player kicker=mEngine.offense().quarterback();
 				updatePlayerTiles(flash);
-				mFieldView.setTile(FOOTBALL,mOffense.quarterback().pos().x +
-						((mOffense.orientation() == Team.ORIENTATION_RIGHT)?1:-1),mOffense.quarterback().pos().y);
+				mFieldView.setTile(FOOTBALL,kicker.pos().x +
+						((mEngine.offense().orientation() == Team.ORIENTATION_RIGHT)?1:-1),kicker.pos().y);
 				
 				// animate the kick meter
 				break;
 				
 			case KICK:
 				mFieldView.clearTiles();
-				mFieldView.setTile(FOOTBALL,mBallPos.x,mBallPos.y);
+				mFieldView.setTile(FOOTBALL,ballPos.x,ballPos.y);
 				updateDriveStatus();
 				break;
 
@@ -1880,6 +1159,6 @@ public class Game extends Activity implements SharedPreferences.OnSharedPreferen
 				break;
 		}
 		
-		mFieldView.invalidate();
+		mFieldView.invalidateTiles();
 	}
 }
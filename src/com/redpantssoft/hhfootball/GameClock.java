@@ -1,14 +1,21 @@
 package com.redpantssoft.hhfootball;
 
-import android.os.Bundle;
+import java.nio.ByteBuffer;
 
 /**
  * Implements a Game Clock for Handheld football.
  *
- * The game clock is externally driven, meaning the ${@code #tick()}
- * method needs to be called to increment the clock. The intent is
- * allow the clock to be run from the main UI thread. It should be
- * called once every 1/10 of a second.
+ * The game clock is externally driven, meaning the ${@code #tick(int)}
+ * method needs to be called with the time elapsed since the last call,
+ * whether or not the clock is running. The intent is allow the clock to be
+ * run from the main UI thread. The clock is kept in integer milliseconds,
+ * so it loses no time to rounding however it is ticked.
+ *
+ * In a game the clock is ticked by the engine's fixed ticks, so it keeps
+ * game time rather than real time. When the game loop drops time after a
+ * stall longer than it catches up on, the clock stops for that time along
+ * with the play. Running the clock on through the dropped time would burn
+ * time no play happened in, and would not match a replay of the same ticks.
  *
  * The {@code #GameClockHandler} interface allows for callbacks, onto the UI thread,
  * to update the view associated with the clock .
@@ -16,7 +23,6 @@ import android.os.Bundle;
  * @author Jeff Clyne
  */
 public class GameClock {
-
     /**
      * Interface to update the UI thread of events that have happened
      * with the game clock.
@@ -26,15 +32,16 @@ public class GameClock {
          * Called to indicate that the clock display needs
          * to be updated. This will be called when the clock
          * is initialized, manually configured {@code #set_period} or
-         * {@code #resetClock}, or after a {@code tick}.
+         * {@code #resetClock}, or after a {@code tick} that changed
+         * the tenths of a second displayed.
          *
-         * @param secs  Value of clock in seconds
+         * @param tenths  Value of clock in tenths of a second, rounded up
          * @param period  Current Period of the game
          */
-        public void updateClockDisplay(float secs,Period period);
+        public void updateClockDisplay(int tenths,Period period);
 
         /**
-         * Called when the game clock expires. The clock can expire
+         * Called once when the game clock expires. The clock can expire
          * while a play is active, so the intent is to allow for a buzzer
          * or horn to signal to the user that it has expired. Once
          * a play is dead, the clock can be check manually for expiration
@@ -79,9 +86,14 @@ public class GameClock {
     }
 
     /**
-     * The current value of the clock in seconds
+     * The current value of the clock in milliseconds
      */
-    private float clockSecs = 0;
+    private int clockMillis = 0;
+
+    /**
+     * The value of the clock last displayed, in tenths of a second
+     */
+    private int displayedTenths = -1;
 
     /**
      * The current period of the game
@@ -89,9 +101,9 @@ public class GameClock {
     private Period period;
 
     /**
-     * The length of each period, in seconds
+     * The length of each period, in milliseconds
      */
-    private final long periodLength;
+    private final int periodLengthMillis;
 
     /**
      * Flag indicating whether or not the clock is running
@@ -99,7 +111,9 @@ public class GameClock {
     private boolean running = false;
 
     /**
-     * Reference to the current handler for this Game Clock
+     * Reference to the current handler for this Game Clock, or null while
+     * none is attached. It is not part of a snapshot, so it needs to be
+     * reattached with {@link #setHandler(GameClockHandler)} once restored.
      */
     private GameClockHandler handler;
 
@@ -112,57 +126,73 @@ public class GameClock {
         super();
 
         this.handler = handler;
-        this.periodLength = periodLength;
+        this.periodLengthMillis = (int) (periodLength * 1000);
         period = Period.FIRST_QUARTER;
-        clockSecs = periodLength;
-        handler.updateClockDisplay(clockSecs, period);
+        clockMillis = periodLengthMillis;
+        updateDisplay();
     }
 
-     /**
-     * @param bundle Bundle to deserialize the game clock state
-     * @param handler Reference to a handler for this Game Clock
+    /**
+     * Restores a clock from a snapshot, see {@link #writeSnapshot(ByteBuffer)}.
+     * The clock has no handler until one is attached.
+     *
+     * @param buf Buffer positioned at the start of the clock snapshot
      */
-    public GameClock(Bundle bundle, GameClockHandler handler) {
+    GameClock(ByteBuffer buf) {
         super();
 
-        this.handler = handler;
-        clockSecs = bundle.getFloat("clockSecs");
-        running = bundle.getBoolean("running");
-        period = Period.values()[bundle.getInt("period")];
-        periodLength = bundle.getLong("periodLength");
-        handler.updateClockDisplay(clockSecs, period);
+        periodLengthMillis = buf.getInt();
+        clockMillis = buf.getInt();
+        period = Period.values()[buf.get()];
+        running = buf.get() != 0;
     }
 
     /**
-     * Serializes the state into a Bundle
+     * Writes the clock to a snapshot: the period length and the clock value
+     * as int milliseconds, then the period and the running flag as a byte each
      *
-     * @return Bundle containing serialized state
+     * @param buf Buffer to write the snapshot to
      */
-    public Bundle serialize() {
-        Bundle bundle = new Bundle();
-        bundle.putFloat("clockSecs", clockSecs);
-        bundle.putBoolean("running", running);
-        bundle.putInt("period", period.ordinal());
-        bundle.putLong("periodLength", periodLength);
-        return bundle;
+    void writeSnapshot(ByteBuffer buf) {
+        buf.putInt(periodLengthMillis);
+        buf.putInt(clockMillis);
+        buf.put((byte) period.ordinal());
+        buf.put((byte) (running ? 1 : 0));
+    }
+
+    /**
+     * Attaches a new handler to the clock, this is required after the clock
+     * has been restored from a snapshot. The display is updated with the current value.
+     *
+     * @param handler Reference to a handler for this Game Clock, or null to
+     *                detach the current one
+     */
+    public void setHandler(GameClockHandler handler) {
+        this.handler = handler;
+        updateDisplay();
     }
 
     /**
      * Called be the UI thread to update the clock. This should be called
-     * whether or not the clock is running.
+     * whether or not the clock is running. The display is only updated when
+     * the tenths of a second displayed change.
+     *
+     * @param elapsedMillis time elapsed since the last tick, in milliseconds
      */
-    public void tick() {
+    public void tick(int elapsedMillis) {
         if (running) {
-            clockSecs -= 0.1;
-            if (clockSecs <= 0) {
-                clockSecs = 0;
+            clockMillis -= elapsedMillis;
+            if (clockMillis <= 0) {
+                clockMillis = 0;
                 stop();
-                handler.handleClockExpired();
+                if (handler != null)
+                    handler.handleClockExpired();
                 period = Period.values()[period.ordinal() + 1];
+                updateDisplay();
+            } else if (tenths() != displayedTenths) {
+                updateDisplay();
             }
-        handler.updateClockDisplay(clockSecs, period);
         }
-
     }
 
     /**
@@ -170,9 +200,9 @@ public class GameClock {
      */
     public void resetClock() {
         running = false;
-        clockSecs = periodLength;
+        clockMillis = periodLengthMillis;
 
-        handler.updateClockDisplay(clockSecs, period);
+        updateDisplay();
     }
 
     /**
@@ -181,24 +211,26 @@ public class GameClock {
     public void setPeriod() {
         if (period != Period.GAME_OVER) {
             running = false;
-            clockSecs = periodLength * 60;
+            clockMillis = periodLengthMillis;
             period = Period.values()[period.ordinal() + 1];
         }
 
-        handler.updateClockDisplay(clockSecs, period);
+        updateDisplay();
     }
 
     /**
-     * Starts the Game Clock
+     * Starts the Game Clock. An expired clock stays stopped until the
+     * next period is set, the play in progress is untimed, so expiry
+     * is only reported once.
      */
-    public synchronized void start() {
-        running = true;
+    public void start() {
+        running = !expired();
     }
 
     /**
      * Stops the Game Clock
      */
-    public synchronized void stop() {
+    public void stop() {
         running = false;
     }
 
@@ -213,13 +245,34 @@ public class GameClock {
      * @return  True if the game clock has expired
      */
     public boolean expired() {
-        return clockSecs <= 0;
+        return clockMillis <= 0;
     }
 
     /**
      * @return  Current value of the game clock in Seconds
      */
     public float timeLeftSecs() {
-        return clockSecs;
+        return clockMillis / 1000f;
+    }
+
+    /**
+     * @return  Current value of the game clock in milliseconds
+     */
+    public final int timeLeftMillis() {
+        return clockMillis;
+    }
+
+    /**
+     * @return  Current value of the game clock in tenths of a second, rounded up
+     *          so that 0.0 is only displayed once the clock has expired
+     */
+    private int tenths() {
+        return (clockMillis + 99) / 100;
+    }
+
+    private void updateDisplay() {
+        displayedTenths = tenths();
+        if (handler != null)
+            handler.updateClockDisplay(displayedTenths, period);
     }
-}
\ No newline at end of file
+}
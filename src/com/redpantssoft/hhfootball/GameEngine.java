@@ -0,0 +1,1771 @@
+package com.redpantssoft.hhfootball;
+
+import com.redpantssoft.Coordinate;
+import com.redpantssoft.Metrics;
+import com.redpantssoft.Percentage;
+import com.redpantssoft.RandomSource;
+import com.redpantssoft.TimerWheel;
+import com.redpantssoft.hhfootball.GameClock.Period;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implements the rules, AI and state of a Handheld Football game.
+ * <p/>
+ * The engine has no dependencies on the Android framework. It is driven
+ * externally: {@link #tick()} advances game time by {@link #TICK_MILLIS} and
+ * {@link #step(Input)} applies a controller input. Everything that should be
+ * seen or heard is reported through the {@link GameEventHandler} interface,
+ * which the Game activity implements to render the game onto its views. Without
+ * a UI attached, a game can be run on a plain JVM as fast as it will go.
+ */
+class GameEngine implements GameClock.GameClockHandler
+{
+	/**
+	 * Interface to notify the owner of the engine of events that need to
+	 * be rendered. All calls are made from within {@link GameEngine#tick()},
+	 * {@link GameEngine#step(Input)} or {@link GameEngine#kick(int)}.
+	 */
+	interface GameEventHandler
+	{
+		public void playSfx(Sfx sfx, boolean loop);
+		public void stopSfx(Sfx sfx);
+
+		/**
+		 * Called when the game is over and no more sound effects will be played
+		 */
+		public void releaseSfx();
+
+		/**
+		 * Called when the ball carrier is tackled
+		 */
+		public void vibrate();
+
+		/**
+		 * @param info  Message to display
+		 * @param autoClear  true if the message should clear itself after a short duration
+		 */
+		public void showInfo(Info info, boolean autoClear);
+		public void clearInfo();
+
+		/**
+		 * Called when the engine is waiting on a kick. The power of the kick
+		 * is returned with {@link GameEngine#kick(int)}.
+		 */
+		public void enableKickMeter(int minPower, int maxPower);
+
+		public void updateScoreBoard();
+		public void updateDriveStatus();
+		public void updateClockDisplay(int tenths, Period period);
+
+		/**
+		 * Called once every {@link GameEngine#GAME_REFRESH_RATE} to redraw the field
+		 *
+		 * @param flash  current state of the flash toggle for flashing players
+		 */
+		public void updateField(boolean flash);
+	}
+
+	/** Game States */
+	enum State
+	{
+		PLAY_LIVE,PLAY_DEAD,PRE_SNAP,PRE_KICKOFF,KICK,KICK_RECEIVED,PASS,GAME_OVER;
+	}
+
+	enum GameState
+	{
+		KICKOFF,
+		PUNT,
+		KICK_RETURN,
+		DRIVE_IN_PROGRESS,
+		TURNOVER_ON_DOWNS,
+		INCOMPLETE,
+		INTERCEPTION,
+		FUMBLE,
+		TOUCHDOWN,
+		TOUCHBACK,
+		FIELD_GOAL_ATTEMPT,
+		FIELD_GOAL_MAKE,
+		FIELD_GOAL_MISS,
+		SAFETY,
+		FREEKICK;
+
+		public boolean isTurnover()
+		{
+			switch (this)
+			{
+				case TURNOVER_ON_DOWNS:
+				case INTERCEPTION:
+				case FUMBLE:
+					return true;
+				default:
+					return false;
+			}
+		}
+	}
+
+	/**
+	 * Difficulty levels. The defense is moved by a DefenseSearch, the harder
+	 * the level the more often the defense moves, the further it looks ahead
+	 * and the more time it may search for on each move.
+	 * <p/>
+	 * The time budget is not enforced with the clock, it is turned in to a
+	 * budget of positions at the fixed SEARCH_NODES_PER_MILLI, so the moves
+	 * only depend on the game and a replayed or restored game makes the same
+	 * moves on any device. The trade-off is that a device slower than that
+	 * rate can search for longer than the time budget before it runs out.
+	 */
+	enum Difficulty
+	{
+		easy(4,1,2,10,90),
+		medium(3,2,4,10,80),
+		hard(2,3,8,10,70);
+
+		private int mAiUpdatesPerMove;
+		private int mSearchDepth;
+		private int mSearchBudgetMillis;
+		private Percentage mReceiverMoves;
+		private Percentage mFieldGoalIsGood;
+
+		private Difficulty(int aiUpdatesPerMove, int searchDepth, int searchBudgetMillis,
+							int perReceiverMoves, int perFieldGoalIsGood)
+		{
+			mAiUpdatesPerMove = aiUpdatesPerMove;
+			mSearchDepth = searchDepth;
+			mSearchBudgetMillis = searchBudgetMillis;
+			mReceiverMoves = new Percentage(perReceiverMoves);
+			mFieldGoalIsGood= new Percentage(perFieldGoalIsGood);
+		}
+
+		public int aiUpdatesPerMove() {  return mAiUpdatesPerMove; }
+		public int searchDepth() {  return mSearchDepth; }
+		public int searchBudgetMillis() {  return mSearchBudgetMillis; }
+		public int searchBudgetNodes() {  return mSearchBudgetMillis*SEARCH_NODES_PER_MILLI; }
+		public Percentage perReceiverMoves() {  return mReceiverMoves; }
+		public Percentage perFieldGoalIsGood() {  return mFieldGoalIsGood; }
+	}
+
+	/** Controller inputs */
+	enum Input
+	{
+		LEFT,RIGHT,UP,DOWN,PASS,KICK;
+	}
+
+	/** Sound effects requested from the handler */
+	enum Sfx
+	{
+		QUARTERBACK,TACKLE,WHISTLE,CROWD,CROWD_BOO,CROWD_CHEER,TOUCHDOWN,KICK,CATCH,FIRST_DOWN,BUZZER;
+	}
+
+	/** Informational messages requested from the handler */
+	enum Info
+	{
+		KICKOFF,
+		FREEKICK,
+		CHANGE_SIDES,
+		TOUCHBACK,
+		TOUCHDOWN,
+		SAFETY,
+		FIELD_GOAL_MAKE,
+		FIELD_GOAL_MISS,
+		INTERCEPTION,
+		INCOMPLETE,
+		FIRST_DOWN,
+		SECOND_DOWN,
+		THIRD_DOWN,
+		FOURTH_DOWN,
+		TURNOVER_ON_DOWNS,
+		END_OF_FIRST_QUARTER,
+		HALFTIME,
+		END_OF_THIRD_QUARTER,
+		GAME_OVER;
+	}
+
+	/**
+	 * Engine timing, in milliseconds. Every tick advances the game time by
+	 * TICK_MILLIS, the other rates are multiples of it.
+	 */
+	static final int TICK_MILLIS=50;
+	static final int GAME_REFRESH_RATE=100;
+	static final int AI_UPDATE_RATE=250;
+
+	/**
+	 * Positions the defense's search is assumed to visit per millisecond, to
+	 * size its budget from the difficulty's time budget. A desktop JVM
+	 * searches about 1000 per millisecond on hard.
+	 */
+	static final int SEARCH_NODES_PER_MILLI=500;
+	static final int HUDDLE_DELAY=2000;
+	static final int WHISTLE_DELAY=200;
+
+	/**
+	 * Game settings
+	 */
+	private static final int mTouchbackPos=20;
+	private static final int mKickoffPos=30;
+	private static final int mFreeKickPos=20;
+	private static final int mDownsPerSeries=4;
+	private static final int mYardsForFirstDown=10;
+	private static final int mStartingXPos=3;
+
+	/**
+	 * log2 of the number of entries of the defense's transposition table
+	 */
+	static final int DEFENSE_TABLE_BITS=13;
+
+	/**
+	 * Cost of the AI updates, and of the field updates including the
+	 * handler's redraw of the field. Only one update in METRICS_SAMPLE_EVERY
+	 * is timed, to keep the clock reads out of most ticks
+	 */
+	private static final int METRICS_SAMPLE_EVERY=8;
+	private static final Metrics.Histogram AI_UPDATE=Metrics.histogram("engine.onUpdateGameAI",METRICS_SAMPLE_EVERY);
+	private static final Metrics.Histogram GAME_UPDATE=Metrics.histogram("engine.updateGame",METRICS_SAMPLE_EVERY);
+
+	/**
+	 * Stands in for the handler while none is attached, such as while the
+	 * engine is handed between activity instances
+	 */
+	private static final GameEventHandler DETACHED=new GameEventHandler()
+	{
+		public void playSfx(Sfx sfx, boolean loop) {}
+		public void stopSfx(Sfx sfx) {}
+		public void releaseSfx() {}
+		public void vibrate() {}
+		public void showInfo(Info info, boolean autoClear) {}
+		public void clearInfo() {}
+		public void enableKickMeter(int minPower, int maxPower) {}
+		public void updateScoreBoard() {}
+		public void updateDriveStatus() {}
+		public void updateClockDisplay(int tenths, Period period) {}
+		public void updateField(boolean flash) {}
+	};
+
+	private GameEventHandler mHandler=DETACHED;
+	private Difficulty mDifficulty;
+
+	/**
+	 * Dimensions of the field of play, in tiles, and the size of the defense
+	 */
+	private final FieldSize mField;
+
+	private State mState;
+	private GameState mGameState;
+	private int mHomeScore;
+	private int mVisitorScore;
+	private GameClock mGameClock;
+	private int mFieldPos;
+	private int mSeriesDown;
+	private int mLineOfScrimmage;
+	private int mFirstDownPos;
+	private int mKickPower;
+	private Coordinate mBallPos;
+	private boolean mKickMeterEnabled=false;
+	private int mKickMinPower;
+	private int mKickMaxPower;
+
+	/**
+	 * mOffense: the quarterback and receivers, mDefense: the defensive players
+	 */
+	private Offense mOffense;
+	private Defense mDefense;
+
+	/**
+	 * Game time, in milliseconds, and the timed events scheduled on it.
+	 * Events due on the same tick run in the order they are declared in.
+	 */
+	private long mTime=0;
+	private final TimerWheel mTimers;
+	private boolean mFlashToggle=false;
+
+	private final TimerWheel.Event mWhistle=new TimerWheel.Event(0)
+	{
+		protected void onExpired() { handleWhistle(); }
+	};
+
+	private final TimerWheel.Event mHuddle=new TimerWheel.Event(1)
+	{
+		protected void onExpired() { initPreSnap(); }
+	};
+
+	private final TimerWheel.Event mAiUpdate=new TimerWheel.Event(2)
+	{
+		protected void onExpired()
+		{
+			long start=AI_UPDATE.start();
+			boolean running=onUpdateGameAI();
+			AI_UPDATE.stop(start);
+			if (!running)
+				stopAi();
+		}
+	};
+
+	private final TimerWheel.Event mRefresh=new TimerWheel.Event(3)
+	{
+		protected void onExpired()
+		{
+			mFlashToggle=!mFlashToggle;
+			long start=GAME_UPDATE.start();
+			updateGame(mFlashToggle);
+			GAME_UPDATE.stop(start);
+		}
+	};
+
+	/**
+	 * Source of every random decision in the game, and the record of the
+	 * inputs applied to it, together they reproduce the game
+	 */
+	private final RandomSource mRandom;
+	private final InputLog mInputLog;
+
+	/**
+	 * Moves the defense. Its transposition table is allocated once per engine,
+	 * but each search keys its entries apart from those of earlier searches,
+	 * so nothing carries over and it is not part of the snapshot
+	 */
+	private final DefenseSearch mDefenseSearch;
+
+	/**
+	 * @param handler  Handler to receive the game events
+	 * @param difficulty  Initial difficulty level
+	 * @param field  Size of the field of play
+	 * @param periodLengthMins  Length of each period, in minutes
+	 */
+	GameEngine(GameEventHandler handler, Difficulty difficulty, FieldSize field, int periodLengthMins)
+	{
+		this(handler,difficulty,field,periodLengthMins,System.nanoTime());
+	}
+
+	/**
+	 * Plays on the classic field
+	 *
+	 * @param handler  Handler to receive the game events
+	 * @param difficulty  Initial difficulty level
+	 * @param periodLengthMins  Length of each period, in minutes
+	 * @param seed  Seed of the game's random numbers
+	 */
+	GameEngine(GameEventHandler handler, Difficulty difficulty, int periodLengthMins, long seed)
+	{
+		this(handler,difficulty,FieldSize.classic,periodLengthMins,seed);
+	}
+
+	/**
+	 * @param handler  Handler to receive the game events
+	 * @param difficulty  Initial difficulty level
+	 * @param field  Size of the field of play
+	 * @param periodLengthMins  Length of each period, in minutes
+	 * @param seed  Seed of the game's random numbers
+	 */
+	GameEngine(GameEventHandler handler, Difficulty difficulty, FieldSize field, int periodLengthMins, long seed)
+	{
+		mRandom=new RandomSource(seed);
+		mInputLog=new InputLog(seed,difficulty,field,periodLengthMins);
+		mHandler=handler;
+		mDifficulty=difficulty;
+		mField=field;
+		mOffense = new Offense(field,Team.SIDE_HOME,Team.ORIENTATION_LEFT);
+		mDefense = new Defense(field,Team.SIDE_VISITOR,Team.ORIENTATION_RIGHT);
+		mDefenseSearch = new DefenseSearch(field,DEFENSE_TABLE_BITS);
+		mBallPos = new Coordinate(mOffense.quarterback().pos());
+		mGameClock = new GameClock(periodLengthMins*60,this);
+		mHomeScore=0;
+		mVisitorScore=0;
+		mGameState=GameState.KICKOFF;
+		mTimers=new TimerWheel(TICK_MILLIS,mTime);
+		mTimers.scheduleRepeating(mRefresh,GAME_REFRESH_RATE,GAME_REFRESH_RATE);
+	}
+
+	/**
+	 * Restores a game from a snapshot, see {@link #writeSnapshot(ByteBuffer)}.
+	 * The engine has no handler until one is attached with {@link #setHandler(GameEventHandler)}
+	 */
+	GameEngine(ByteBuffer buf)
+	{
+		mDifficulty=Difficulty.values()[buf.get()];
+		mField=FieldSize.values()[buf.get()];
+		int state=buf.get();
+		mState= state < 0 ? null : State.values()[state];
+		mGameState=GameState.values()[buf.get()];
+		mHomeScore=buf.getShort();
+		mVisitorScore=buf.getShort();
+		mFieldPos=buf.getShort();
+		mSeriesDown=buf.get();
+		mLineOfScrimmage=buf.getShort();
+		mFirstDownPos=buf.getShort();
+		mKickPower=buf.get();
+		mBallPos=new Coordinate(buf.get(),buf.get());
+		mKickMeterEnabled= buf.get() != 0;
+		mKickMinPower=buf.get();
+		mKickMaxPower=buf.get();
+		mFlashToggle= buf.get() != 0;
+		mTime=buf.getInt();
+		mTimers=new TimerWheel(TICK_MILLIS,mTime);
+		readEventSnapshot(buf,mWhistle,0);
+		readEventSnapshot(buf,mHuddle,0);
+		readEventSnapshot(buf,mAiUpdate,AI_UPDATE_RATE);
+		readEventSnapshot(buf,mRefresh,GAME_REFRESH_RATE);
+		long seed=buf.getLong();
+		mRandom=new RandomSource(seed,buf.getLong());
+		mGameClock=new GameClock(buf);
+		mOffense=new Offense(mField,Team.SIDE_HOME,Team.ORIENTATION_LEFT);
+		mOffense.readSnapshot(buf);
+		mDefense=new Defense(mField,Team.SIDE_VISITOR,Team.ORIENTATION_RIGHT);
+		mDefense.readSnapshot(buf);
+		mInputLog=InputLog.readSnapshot(buf);
+		mDefenseSearch=new DefenseSearch(mField,DEFENSE_TABLE_BITS);
+	}
+
+	/**
+	 * Writes the state of the game to a snapshot. The layout is fixed up to
+	 * the input log, which is written last as it grows with the game:
+	 * difficulty, field size, states, scores, field positions, downs and ball as bytes
+	 * and shorts, the timed events as int milliseconds, the random source's
+	 * seed and state, then the clock, offense, defense and input log.
+	 *
+	 * @param buf  buffer to write to, at least {@link #snapshotSize()} bytes must remain
+	 */
+	void writeSnapshot(ByteBuffer buf)
+	{
+		buf.put((byte)mDifficulty.ordinal());
+		buf.put((byte)mField.ordinal());
+		buf.put((byte)(mState == null ? -1 : mState.ordinal()));
+		buf.put((byte)mGameState.ordinal());
+		buf.putShort((short)mHomeScore);
+		buf.putShort((short)mVisitorScore);
+		buf.putShort((short)mFieldPos);
+		buf.put((byte)mSeriesDown);
+		buf.putShort((short)mLineOfScrimmage);
+		buf.putShort((short)mFirstDownPos);
+		buf.put((byte)mKickPower);
+		buf.put((byte)mBallPos.x);
+		buf.put((byte)mBallPos.y);
+		buf.put((byte)(mKickMeterEnabled ? 1 : 0));
+		buf.put((byte)mKickMinPower);
+		buf.put((byte)mKickMaxPower);
+		buf.put((byte)(mFlashToggle ? 1 : 0));
+		buf.putInt((int)mTime);
+		buf.putInt((int)mWhistle.dueMillis());
+		buf.putInt((int)mHuddle.dueMillis());
+		buf.putInt((int)mAiUpdate.dueMillis());
+		buf.putInt((int)mRefresh.dueMillis());
+		buf.putLong(mRandom.seed());
+		buf.putLong(mRandom.state());
+		mGameClock.writeSnapshot(buf);
+		mOffense.writeSnapshot(buf);
+		mDefense.writeSnapshot(buf);
+		mInputLog.writeSnapshot(buf);
+	}
+
+	/**
+	 * Reschedules a timed event from its due time in a snapshot, -1 if it was not pending
+	 */
+	private void readEventSnapshot(ByteBuffer buf, TimerWheel.Event event, int periodMillis)
+	{
+		int due=buf.getInt();
+		if (due >= 0)
+			mTimers.scheduleRepeating(event,due,periodMillis);
+	}
+
+	/**
+	 * @return number of bytes writeSnapshot will write
+	 */
+	int snapshotSize()
+	{
+		return SNAPSHOT_FIXED_SIZE + (3+mOffense.size()*3) + (3+mDefense.size()*3)
+				+ mInputLog.snapshotSize();
+	}
+
+	/**
+	 * Size of the fixed layout part of a snapshot: the engine fields and the clock
+	 */
+	private static final int SNAPSHOT_FIXED_SIZE=22 + 5*4 + 2*8 + 10;
+
+	/**
+	 * 64 bit FNV-1a hash parameters, for stateHash
+	 */
+	private static final long FNV_OFFSET=0xcbf29ce484222325L;
+	private static final long FNV_PRIME=0x100000001b3L;
+
+	/**
+	 * @return hash of the state of the game, everything in a snapshot up to
+	 *         the input log, so a replay can be checked against the game it
+	 *         was recorded from
+	 */
+	long stateHash()
+	{
+		ByteBuffer buf=ByteBuffer.allocate(snapshotSize());
+		writeSnapshot(buf);
+
+		long hash=FNV_OFFSET;
+		int size=buf.position()-mInputLog.snapshotSize();
+		for (int i=0;i<size;i++)
+		{
+			hash^=buf.get(i) & 0xff;
+			hash*=FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Attaches a new handler to the engine, this is required after the engine
+	 * has been restored from a snapshot. A null handler detaches the current
+	 * one, the engine's events are dropped until another is attached.
+	 */
+	void setHandler(GameEventHandler handler)
+	{
+		if (handler == null)
+		{
+			mHandler=DETACHED;
+			mGameClock.setHandler(null);
+		}
+		else
+		{
+			mHandler=handler;
+			mGameClock.setHandler(this);
+		}
+	}
+
+	void setDifficulty(Difficulty difficulty)
+	{
+		mInputLog.addDifficulty(difficulty);
+		mDifficulty=difficulty;
+	}
+
+	final Difficulty difficulty() { return mDifficulty; }
+	final State state() { return mState; }
+	final GameState gameState() { return mGameState; }
+	final int homeScore() { return mHomeScore; }
+	final int visitorScore() { return mVisitorScore; }
+	final int fieldPos() { return mFieldPos; }
+	final int seriesDown() { return mSeriesDown; }
+	final int firstDownPos() { return mFirstDownPos; }
+	final int lineOfScrimmage() { return mLineOfScrimmage; }
+	final Coordinate ballPos() { return mBallPos; }
+	final Offense offense() { return mOffense; }
+	final Defense defense() { return mDefense; }
+	final GameClock clock() { return mGameClock; }
+	final boolean isGameOver() { return mState==State.GAME_OVER; }
+	final InputLog inputLog() { return mInputLog; }
+	final FieldSize field() { return mField; }
+
+	/**
+	 * Returns the number of tiles long (between the end zones) the playing field is
+	 */
+	final int getFieldLength()
+	{
+		return mField.length();
+	}
+
+	/**
+	 * Returns the number of tiles wide (between the boundaries) the playing field is
+	 */
+	final int getFieldWidth()
+	{
+		return mField.width();
+	}
+
+	/**
+	 * Starts the game with the opening kickoff
+	 */
+	void start()
+	{
+		mHandler.updateScoreBoard();
+		mHandler.updateDriveStatus();
+		initPreSnap();
+	}
+
+	/**
+	 * Stops the clock while the game is paused
+	 */
+	void pause()
+	{
+		mInputLog.addPause();
+		mGameClock.stop();
+	}
+
+	/**
+	 * Restarts the clock, if it should be running, when the game is resumed
+	 */
+	void resume()
+	{
+		mInputLog.addResume();
+		switch (mState)
+		{
+			case KICK:
+			case PLAY_LIVE:
+			case PASS:
+				mGameClock.start();
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Advances the game by {@link #TICK_MILLIS}, handling any timed events
+	 * that are due.
+	 */
+	void tick()
+	{
+		if (mState == State.GAME_OVER)
+			return;
+
+		mTime+=TICK_MILLIS;
+		mInputLog.tick();
+		mGameClock.tick(TICK_MILLIS);
+
+		mTimers.advanceTo(mTime);
+	}
+
+	/**
+	 * Applies a controller input to the game
+	 *
+	 * @return false if the input does nothing in the current state of play,
+	 *         such as moving while the ball is dead. Only inputs that do
+	 *         something are recorded in the input log
+	 */
+	boolean step(Input input)
+	{
+		boolean accepted=false;
+		switch (input)
+		{
+			case LEFT: accepted=onLeft(); break;
+			case RIGHT: accepted=onRight(); break;
+			case UP: accepted=onUp(); break;
+			case DOWN: accepted=onDown(); break;
+			case PASS: accepted=onPass(); break;
+			case KICK: accepted=onKick(); break;
+		}
+		if (accepted)
+			mInputLog.addInput(input);
+		return accepted;
+	}
+
+	/**
+	 * Kicks the ball with the specified power. This is only valid once the
+	 * handler has been asked to enable the kick meter
+	 *
+	 * @param power  kick power, between the min and max power requested
+	 * @return true if the ball was kicked
+	 */
+	boolean kick(int power)
+	{
+		if (!mKickMeterEnabled)
+			return false;
+
+		mInputLog.addKick(power);
+		mKickMeterEnabled=false;
+		mKickPower=power;
+		mBallPos=new Coordinate(mOffense.quarterback().pos());
+		mHandler.playSfx(Sfx.KICK,false);
+		mHandler.clearInfo();
+		mState = State.KICK;
+		return true;
+	}
+
+	final boolean isKickMeterEnabled() { return mKickMeterEnabled; }
+	final int kickMinPower() { return mKickMinPower; }
+	final int kickMaxPower() { return mKickMaxPower; }
+
+	/**
+	 * Plays a recorded game back at full speed, applying each input after
+	 * the same tick it was recorded after
+	 *
+	 * @param log  record of the game
+	 * @param handler  Handler to receive the game events
+	 * @return engine in the state the recorded game was in when the log was taken
+	 */
+	static GameEngine replay(InputLog log, GameEventHandler handler)
+	{
+		GameEngine engine=new GameEngine(handler,log.difficulty(),log.field(),log.periodLengthMins(),log.seed());
+		engine.start();
+
+		int ticks=0;
+		int idx=0;
+		while (true)
+		{
+			for (;idx < log.size() && log.tick(idx) == ticks;idx++)
+			{
+				switch (log.type(idx))
+				{
+					case InputLog.TYPE_INPUT: engine.step(Input.values()[log.value(idx)]); break;
+					case InputLog.TYPE_KICK: engine.kick(log.value(idx)); break;
+					case InputLog.TYPE_DIFFICULTY: engine.setDifficulty(Difficulty.values()[log.value(idx)]); break;
+					case InputLog.TYPE_PAUSE: engine.pause(); break;
+					case InputLog.TYPE_RESUME: engine.resume(); break;
+				}
+			}
+
+			if (ticks >= log.ticks())
+				return engine;
+
+			engine.tick();
+			ticks++;
+		}
+	}
+
+	private void enableKickMeter(int minPower, int maxPower)
+	{
+		mKickMeterEnabled=true;
+		mKickMinPower=minPower;
+		mKickMaxPower=maxPower;
+		mHandler.enableKickMeter(minPower,maxPower);
+	}
+
+	private void startAi()
+	{
+		mTimers.scheduleRepeating(mAiUpdate,mTime+AI_UPDATE_RATE,AI_UPDATE_RATE);
+	}
+
+	private void stopAi()
+	{
+		mTimers.cancel(mAiUpdate);
+	}
+
+	private void initPreSnap()
+	{
+		handleNewPeriod();
+
+		mLineOfScrimmage=mFieldPos;
+
+
+		switch (mGameState)
+		{
+			case KICKOFF:
+				mState=State.PRE_KICKOFF;
+				mFieldPos=(mOffense.orientation() == Team.ORIENTATION_RIGHT)?mKickoffPos:100-mKickoffPos;
+				arrangePreSnapFormation(mOffense);
+				arrangePreSnapFormation(mDefense);
+				mHandler.showInfo(Info.KICKOFF,true);
+				mHandler.updateDriveStatus();
+				enableKickMeter(20, 75);
+				return;
+
+			case FREEKICK:
+				mState=State.PRE_KICKOFF;
+				mFieldPos=(mOffense.orientation() == Team.ORIENTATION_RIGHT)?mFreeKickPos:100-mFreeKickPos;
+				arrangePreSnapFormation(mOffense);
+				arrangePreSnapFormation(mDefense);
+				mHandler.showInfo(Info.FREEKICK,true);
+				mHandler.updateDriveStatus();
+				enableKickMeter(20, 75);
+				return;
+
+			case TOUCHBACK:
+				handleTouchBack();
+				break;
+			case FIELD_GOAL_MISS:
+			case TURNOVER_ON_DOWNS:
+			case INTERCEPTION:
+			case FUMBLE:
+				handleChangeOfPossesion();
+				break;
+
+		}
+
+		mState=State.PRE_SNAP;
+		arrangePreSnapFormation(mOffense);
+		arrangePreSnapFormation(mDefense);
+		mHandler.playSfx(Sfx.QUARTERBACK,true);
+		mHandler.updateScoreBoard();
+		mHandler.updateDriveStatus();
+	}
+
+
+	private void arrangePreSnapFormation(Team team)
+	{
+		int[][] formation;
+		switch (mGameState)
+		{
+			case KICKOFF:
+			case FREEKICK:
+				formation = team.getKickoffFormation();
+				break;
+
+			default:
+			case DRIVE_IN_PROGRESS:
+				formation = team.getPreSnapFormation();
+				break;
+		}
+
+		for ( int idx=0;idx<team.size();idx++)
+		{
+			Player player = team.getPlayer(idx);
+			player.setFlashing(false);
+			if (formation[idx][0] == -1 || formation[idx][1] == -1)
+			{
+				player.set(-1,-1);
+			}
+			else
+			{
+				// Formations are laid out from the offense's own end
+				if (mOffense.orientation()==Team.ORIENTATION_RIGHT)
+					player.set(formation[idx][0],formation[idx][1]);
+				else
+					player.set(getFieldLength()-1-formation[idx][0],formation[idx][1]);
+			}
+		}
+	}
+
+	private void setFirstDownPos()
+	{
+		if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
+		{
+			mFirstDownPos=mFieldPos+mYardsForFirstDown;
+			if (mFirstDownPos > 100)
+				mFirstDownPos=100;
+		}
+		else
+		{
+			mFirstDownPos=mFieldPos-mYardsForFirstDown;
+			if (mFirstDownPos < 0)
+				mFirstDownPos=0;
+		}
+	}
+
+	private boolean checkFirstDown()
+	{
+		return ( (mOffense.orientation() == Team.ORIENTATION_RIGHT) ?
+					(mFieldPos >= mFirstDownPos) :
+						(mFieldPos <= mFirstDownPos));
+	}
+
+	private int swapFieldPosOrientation(int pos)
+	{
+		if (pos > 50)
+			return 50-(pos-50);
+		else
+			return 50+(50-pos);
+	}
+	private void swapOrientation()
+	{
+		int tmp = mOffense.orientation();
+		mOffense.setOrientation(mDefense.orientation());
+		mDefense.setOrientation(tmp);
+	}
+
+	private void swapSides()
+	{
+		int tmp = mOffense.side();
+		mOffense.setSide(mDefense.side());
+		mDefense.setSide(tmp);
+	}
+
+	private void handleTouchBack()
+	{
+		swapSides();
+		swapOrientation();
+		mFieldPos=(mOffense.orientation() == Team.ORIENTATION_RIGHT)?mTouchbackPos:100-mTouchbackPos;
+		mLineOfScrimmage=mFieldPos;
+		mSeriesDown = 1;
+		setFirstDownPos();
+		mGameState=GameState.DRIVE_IN_PROGRESS;
+	}
+
+	private void handleNewPeriod()
+	{
+		if (mGameClock.expired())
+		{
+			switch (mGameClock.period())
+			{
+				case END_OF_FIRST_QUARTER:
+				case END_OF_THIRD_QUARTER:
+					// End of quarter, just swap sides
+					mFieldPos=swapFieldPosOrientation(mFieldPos);
+					mLineOfScrimmage=mFieldPos;
+					mFirstDownPos=swapFieldPosOrientation(mFirstDownPos);
+					swapOrientation();
+					mGameClock.setPeriod();
+					mHandler.showInfo(Info.CHANGE_SIDES,true);
+					break;
+				case HALFTIME:
+					mOffense.setSide(Team.SIDE_VISITOR);
+					mOffense.setOrientation(Team.ORIENTATION_LEFT);
+					mDefense.setSide(Team.SIDE_HOME);
+					mDefense.setOrientation(Team.ORIENTATION_RIGHT);
+					mGameState=GameState.KICKOFF;
+					mGameClock.setPeriod();
+					break;
+				case GAME_OVER:
+					return;
+
+				default:
+					break;
+			}
+		}
+	}
+
+	private void handleFirstDown()
+	{
+		mSeriesDown = 1;
+		setFirstDownPos();
+	}
+
+	private void handleChangeOfPossesion()
+	{
+		swapSides();
+		swapOrientation();
+		mSeriesDown = 1;
+		setFirstDownPos();
+		mGameState=GameState.DRIVE_IN_PROGRESS;
+	}
+
+	private void handleTackle()
+	{
+		mHandler.playSfx(Sfx.TACKLE,false);
+		mHandler.vibrate();
+	}
+
+	private void handlePlayDead()
+	{
+		mGameClock.stop();
+		stopAi();
+		mState = State.PLAY_DEAD;
+
+		switch (mGameState)
+		{
+			case KICK_RETURN:
+				handleTackle();
+				handleFirstDown();
+				mGameState=GameState.DRIVE_IN_PROGRESS;
+				break;
+
+			case TOUCHBACK:
+				mHandler.showInfo(Info.TOUCHBACK,true);
+				break;
+
+			case TOUCHDOWN:
+				mHandler.playSfx(Sfx.TOUCHDOWN,false);
+				mHandler.showInfo(Info.TOUCHDOWN,true);
+				mGameState=GameState.KICKOFF;
+				break;
+
+			case SAFETY:
+				mHandler.showInfo(Info.SAFETY,true);
+				mGameState=GameState.FREEKICK;
+				break;
+
+			case FIELD_GOAL_MAKE:
+				mHandler.showInfo(Info.FIELD_GOAL_MAKE,true);
+				mGameState=GameState.KICKOFF;
+				break;
+
+			case FIELD_GOAL_MISS:
+				mFieldPos=mLineOfScrimmage;
+				mHandler.showInfo(Info.FIELD_GOAL_MISS,true);
+				break;
+
+			case INTERCEPTION:
+				mHandler.showInfo(Info.INTERCEPTION,true);
+				break;
+
+			case INCOMPLETE:
+				mHandler.showInfo(Info.INCOMPLETE,true);
+
+			case DRIVE_IN_PROGRESS:
+				if (mGameState==GameState.DRIVE_IN_PROGRESS)
+				{
+					handleTackle();
+				}
+				else
+				{
+					mGameState=GameState.DRIVE_IN_PROGRESS;
+				}
+
+				if (isSafety())
+				{
+					handleSafety();
+				}
+				else if (checkFirstDown())
+				{
+					handleFirstDown();
+					mHandler.playSfx(Sfx.FIRST_DOWN,false);
+					mHandler.showInfo(Info.FIRST_DOWN,true);
+				}
+				else if (mSeriesDown == mDownsPerSeries)
+				{
+					// Turnover on downs
+					mGameState=GameState.TURNOVER_ON_DOWNS;
+					mHandler.showInfo(Info.TURNOVER_ON_DOWNS,true);
+				}
+				else
+				{
+					switch (++mSeriesDown)
+					{
+						case 2:
+							mHandler.showInfo(Info.SECOND_DOWN,true);
+							break;
+
+						case 3:
+							mHandler.showInfo(Info.THIRD_DOWN,true);
+							break;
+
+						case 4:
+							mHandler.showInfo(Info.FOURTH_DOWN,true);
+							break;
+					}
+				}
+				break;
+		}
+
+		// The whistle, and the huddle that follows it, are delayed slightly
+		//  from the end of the play
+		mTimers.schedule(mWhistle,mTime+WHISTLE_DELAY);
+	}
+
+	private void handleWhistle()
+	{
+		mHandler.playSfx(Sfx.WHISTLE,false);
+
+		switch (mGameClock.period())
+		{
+			case END_OF_FIRST_QUARTER:
+				mHandler.showInfo(Info.END_OF_FIRST_QUARTER,true);
+				mTimers.schedule(mHuddle,mTime+HUDDLE_DELAY);
+				break;
+			case HALFTIME:
+				mHandler.showInfo(Info.HALFTIME,true);
+				mTimers.schedule(mHuddle,mTime+HUDDLE_DELAY);
+				break;
+			case END_OF_THIRD_QUARTER:
+				mHandler.showInfo(Info.END_OF_THIRD_QUARTER,true);
+				mTimers.schedule(mHuddle,mTime+HUDDLE_DELAY);
+				break;
+			case GAME_OVER:
+				mState = State.GAME_OVER;
+				mHandler.showInfo(Info.GAME_OVER,false);
+				mHandler.releaseSfx();
+				break;
+
+			default:
+				mTimers.schedule(mHuddle,mTime+HUDDLE_DELAY);
+		}
+	}
+
+
+	private void handleKickReception()
+	{
+		mHandler.playSfx(Sfx.CATCH,false);
+		swapSides();
+		swapOrientation();
+		mGameState=GameState.KICK_RETURN;
+		mState=State.KICK_RECEIVED;
+		mHandler.updateDriveStatus();
+
+		for (PlayerIterator i=mOffense.iterator();i.hasNext();)
+			i.next().set(-1,-1);
+
+		for (PlayerIterator i=mDefense.iterator();i.hasNext();)
+			i.next().set(-1,-1);
+
+		mOffense.quarterback().set(mBallPos.x,mBallPos.y);
+	}
+
+	private void onHandleKick()
+	{
+		int newX;
+		boolean inEndZone=false;
+
+		if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
+		{
+			newX = mBallPos.x+1;
+			if (newX >= getFieldLength())
+				newX=0;
+
+			mFieldPos++;
+			inEndZone = mFieldPos >= 100;
+		}
+		else
+		{
+			newX = mBallPos.x-1;
+			if (newX < 0)
+				newX=getFieldLength()-1;
+
+			mFieldPos--;
+			inEndZone = mFieldPos <= 0;
+		}
+
+		if (inEndZone)
+		{
+			switch (mGameState)
+			{
+				case FIELD_GOAL_ATTEMPT:
+					handleFieldGoal();
+					return;
+				case PUNT:
+				case KICKOFF:
+				case FREEKICK:
+				default:
+					mGameState=GameState.TOUCHBACK;
+					handlePlayDead();
+					return;
+			}
+		}
+
+		if (--mKickPower  == 0)
+		{
+			switch (mGameState)
+			{
+				case FIELD_GOAL_ATTEMPT:
+					mGameState=GameState.FIELD_GOAL_MISS;
+					handlePlayDead();
+					return;
+				case PUNT:
+				case KICKOFF:
+				case FREEKICK:
+				default:
+					handleKickReception();
+					return;
+			}
+		}
+
+		mBallPos.x=newX;
+	}
+
+	private void handleTouchDown()
+	{
+		if (mOffense.side() == Team.SIDE_HOME)
+		{
+			mHomeScore+=7;
+			mHandler.playSfx(Sfx.CROWD_CHEER, false);
+		}
+		else
+		{
+			mVisitorScore+=7;
+			mHandler.playSfx(Sfx.CROWD_BOO, false);
+		}
+
+		mGameState=GameState.TOUCHDOWN;
+		mHandler.updateScoreBoard();
+		handlePlayDead();
+	}
+
+	private void handleSafety()
+	{
+		if (mDefense.side() == Team.SIDE_HOME)
+		{
+			mHomeScore+=2;
+			mHandler.playSfx(Sfx.CROWD_CHEER, false);
+		}
+		else
+		{
+			mVisitorScore+=2;
+			mHandler.playSfx(Sfx.CROWD_BOO, false);
+		}
+
+		mGameState=GameState.SAFETY;
+		mHandler.updateScoreBoard();
+		handlePlayDead();
+	}
+
+	private void handleFieldGoal()
+	{
+		if (mDifficulty.perFieldGoalIsGood().test(mRandom,mKickPower))
+		{
+			if (mOffense.side() == Team.SIDE_HOME)
+			{
+				mHomeScore+=3;
+				mHandler.playSfx(Sfx.CROWD_CHEER, false);
+			}
+			else
+			{
+				mVisitorScore+=3;
+				mHandler.playSfx(Sfx.CROWD_BOO, false);
+			}
+
+			mGameState=GameState.FIELD_GOAL_MAKE;
+			mHandler.updateScoreBoard();
+		}
+		else
+		{
+			mGameState=GameState.FIELD_GOAL_MISS;
+		}
+
+		handlePlayDead();
+	}
+
+	private void handleSnap()
+	{
+		if (mKickMeterEnabled)
+			return;
+
+		mHandler.stopSfx(Sfx.QUARTERBACK);
+		mHandler.clearInfo();
+		mState = State.PLAY_LIVE;
+		mGameClock.start();
+		// The receiver lines up in the quarterback's lane or one either side of it
+		Coordinate qbPos = mOffense.quarterback().pos();
+		int receiverY = Math.max(0, Math.min(getFieldWidth()-1, qbPos.y-1+mRandom.nextInt(3)));
+		mOffense.receiver().set((mOffense.orientation() == Team.ORIENTATION_RIGHT)?
+								qbPos.x+2:
+									qbPos.x-2, receiverY);
+		startAi();
+	}
+
+	private void handleKickReturnStart()
+	{
+		mState=State.PLAY_LIVE;
+		mHandler.updateDriveStatus();
+		mGameClock.start();
+		startAi();
+	}
+
+	private boolean ballAcrossLineOfScrimmage()
+	{
+		if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
+		{
+			return (mFieldPos > mLineOfScrimmage);
+		}
+		else
+		{
+			return (mFieldPos < mLineOfScrimmage);
+		}
+	}
+
+	private boolean isTouchDown()
+	{
+		if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
+		{
+			return (mFieldPos >= 100);
+		}
+		else
+		{
+			return (mFieldPos <= 0);
+		}
+	}
+	private boolean isSafety()
+	{
+		if (mOffense.orientation() == Team.ORIENTATION_LEFT)
+		{
+			return (mFieldPos >= 100);
+		}
+		else
+		{
+			return (mFieldPos <= 0);
+		}
+	}
+
+	private void moveBallCarrierLeft()
+	{
+		int newX=mOffense.quarterback().pos().x;
+
+		if (mOffense.quarterback().pos().x > 0)
+		{
+			newX-=1;
+		}
+		else if (mOffense.orientation() == Team.ORIENTATION_LEFT)
+		{
+			newX=getFieldLength() - 1;
+		}
+		else
+			return;
+
+		DefensivePlayer tackler = (DefensivePlayer)mDefense.findPlayer(newX,mOffense.quarterback().pos().y);
+		if (tackler == null)
+		{
+			mOffense.quarterback().set(newX,mOffense.quarterback().pos().y);
+			mFieldPos-=1;
+			if (ballAcrossLineOfScrimmage())
+				mOffense.receiver().set(-1,-1);
+
+			if (isTouchDown())
+				handleTouchDown();
+
+		}
+		else
+		{
+			tackler.setFlashing(true);
+			mOffense.quarterback().setFlashing(true);
+			handlePlayDead();
+		}
+	}
+
+	private boolean onLeft()
+	{
+		if (mKickMeterEnabled)
+			return false;
+
+		switch (mState)
+		{
+			case PRE_SNAP:
+				if (mOffense.orientation() != Team.ORIENTATION_RIGHT)
+					return false;
+				handleSnap();
+				moveBallCarrierLeft();
+				return true;
+			case KICK_RECEIVED:
+				handleKickReturnStart();
+				moveBallCarrierLeft();
+				return true;
+			case PLAY_LIVE:
+				moveBallCarrierLeft();
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private void moveBallCarrierRight()
+	{
+		int newX=mOffense.quarterback().pos().x;
+
+		if (mOffense.quarterback().pos().x < getFieldLength()-1)
+		{
+			newX+=1;
+		}
+		else if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
+		{
+			newX=0;
+		}
+		else
+			return;
+
+		DefensivePlayer tackler = (DefensivePlayer)mDefense.findPlayer(newX,mOffense.quarterback().pos().y);
+		if (tackler == null)
+		{
+			mOffense.quarterback().set(newX,mOffense.quarterback().pos().y);
+			mFieldPos+=1;
+			if (ballAcrossLineOfScrimmage())
+				mOffense.receiver().set(-1,-1);
+
+			if (isTouchDown())
+				handleTouchDown();
+		}
+		else
+		{
+			tackler.setFlashing(true);
+			mOffense.quarterback().setFlashing(true);
+			handlePlayDead();
+		}
+	}
+
+	private boolean onRight()
+	{
+		if (mKickMeterEnabled)
+			return false;
+
+		switch (mState)
+		{
+			case PRE_SNAP:
+				if (mOffense.orientation() != Team.ORIENTATION_LEFT)
+					return false;
+				handleSnap();
+				moveBallCarrierRight();
+				return true;
+			case KICK_RECEIVED:
+				handleKickReturnStart();
+				moveBallCarrierRight();
+				return true;
+			case PLAY_LIVE:
+				moveBallCarrierRight();
+				return true;
+
+			default:
+				return false;
+		}
+	}
+
+	private void moveBallCarrierUp()
+	{
+		int newY=mOffense.quarterback().pos().y;
+
+		if (mOffense.quarterback().pos().y > 0)
+		{
+			newY -= 1;
+		}
+		else
+			return;
+
+		DefensivePlayer tackler = (DefensivePlayer)mDefense.findPlayer(mOffense.quarterback().pos().x,newY);
+		if (tackler == null)
+		{
+			mOffense.quarterback().set(mOffense.quarterback().pos().x,newY);
+		}
+		else
+		{
+			tackler.setFlashing(true);
+			mOffense.quarterback().setFlashing(true);
+			handlePlayDead();
+		}
+	}
+
+	private boolean onUp()
+	{
+		if (mKickMeterEnabled)
+			return false;
+
+		switch (mState)
+		{
+			case KICK_RECEIVED:
+				handleKickReturnStart();
+				moveBallCarrierUp();
+				return true;
+			case PLAY_LIVE:
+				moveBallCarrierUp();
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private void moveBallCarrierDown()
+	{
+		int newY=mOffense.quarterback().pos().y;
+
+		if (mOffense.quarterback().pos().y < getFieldWidth() - 1)
+		{
+			newY += 1;
+		}
+		else
+			return;
+
+		DefensivePlayer tackler = (DefensivePlayer)mDefense.findPlayer(mOffense.quarterback().pos().x,newY);
+		if (tackler == null)
+		{
+			mOffense.quarterback().set(mOffense.quarterback().pos().x,newY);
+		}
+		else
+		{
+			tackler.setFlashing(true);
+			mOffense.quarterback().setFlashing(true);
+			handlePlayDead();
+		}
+	}
+
+	private boolean onDown()
+	{
+		if (mKickMeterEnabled)
+			return false;
+
+		switch (mState)
+		{
+			case KICK_RECEIVED:
+				handleKickReturnStart();
+				moveBallCarrierDown();
+				return true;
+			case PLAY_LIVE:
+				moveBallCarrierDown();
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private boolean onPass()
+	{
+		if (mKickMeterEnabled)
+			return false;
+
+		switch (mState)
+		{
+			case PLAY_LIVE:
+				if (mGameState == GameState.DRIVE_IN_PROGRESS &&
+						ballAcrossLineOfScrimmage() == false )
+				{
+					mState=State.PASS;
+					mBallPos=new Coordinate(mOffense.quarterback().pos());
+					return true;
+				}
+				return false;
+			default:
+				return false;
+		}
+	}
+
+	private boolean onKick()
+	{
+		if (mKickMeterEnabled)
+			return false;
+
+		switch (mState)
+		{
+			case PRE_SNAP:
+				mHandler.stopSfx(Sfx.QUARTERBACK);
+				mHandler.clearInfo();
+				mGameState = GameState.FIELD_GOAL_ATTEMPT;
+				enableKickMeter(5, 50);
+				stopAi();
+				mGameClock.stop();
+				return true;
+
+			case PLAY_LIVE:
+				// Punt
+				if (ballAcrossLineOfScrimmage() == false)
+				{
+					mHandler.clearInfo();
+					enableKickMeter(10, 60);
+					mGameState = GameState.PUNT;
+					stopAi();
+					mGameClock.stop();
+					return true;
+				}
+				return false;
+		}
+		return false;
+	}
+
+	private boolean isOccupied(int x, int y)
+	{
+		return mOffense.isOccupied(x,y) || mDefense.isOccupied(x,y);
+	}
+
+	private void handleCompletion()
+	{
+		Player quarterback = mOffense.quarterback();
+		Player receiver = mOffense.receiver();
+
+		mHandler.playSfx(Sfx.CATCH,false);
+		mFieldPos+=(receiver.pos().x - quarterback.pos().x);
+		quarterback.set(receiver.pos().x,receiver.pos().y);
+		receiver.set(-1,-1);
+		mState=State.PLAY_LIVE;
+
+		if (mOffense.orientation() == Team.ORIENTATION_LEFT)
+		{
+			if (mFieldPos <= 0)
+			{
+				handleTouchDown();
+			}
+		}
+		else
+		{
+			if (mFieldPos >= 100)
+			{
+				handleTouchDown();
+			}
+		}
+	}
+
+	/**
+	 * @return true if a defender at column x intercepts a pass that reaches it,
+	 * 		defenders still behind the offense's starting column let it through
+	 */
+	final boolean interceptsPass(int x)
+	{
+		if (mOffense.orientation() == Team.ORIENTATION_RIGHT)
+			return x >= mStartingXPos;
+		else
+			return x <= getFieldLength()-1-mStartingXPos;
+	}
+
+	private void handleInterception(Player defender)
+	{
+		mFieldPos+=(defender.pos().x - mOffense.quarterback().pos().x);
+		if (mFieldPos > 100)
+			mFieldPos=100-mTouchbackPos;
+		else if (mFieldPos < 0)
+			mFieldPos=mTouchbackPos;
+
+		defender.setFlashing(true);
+		mGameState=GameState.INTERCEPTION;
+		handlePlayDead();
+	}
+
+	private void onHandlePass()
+	{
+		Player quarterback = mOffense.quarterback();
+		Player receiver = mOffense.receiver();
+		int newX = (mOffense.orientation() == Team.ORIENTATION_RIGHT)?mBallPos.x+1:mBallPos.x-1;
+
+		// Check for incomplete pass
+		if (newX < 0 || newX >= getFieldLength())
+		{
+			mGameState=GameState.INCOMPLETE;
+			mFieldPos=mLineOfScrimmage;
+			handlePlayDead();
+			return;
+		}
+
+		Player defender = mDefense.findPlayer(newX,quarterback.pos().y);
+		if (defender != null && interceptsPass(defender.pos().x))
+			handleInterception(defender);
+
+		if (receiver.equals(newX,quarterback.pos().y))
+		{
+			handleCompletion();
+			return;
+		}
+
+		mBallPos.x=newX;
+	}
+
+	protected boolean onUpdateGameAI()
+	{
+		switch (mState)
+		{
+			case PLAY_LIVE:
+				onMoveDefense();
+				onMoveReceiver();
+				return (mState==State.PLAY_LIVE);
+			case PASS:
+				return true;
+			case KICK:
+				return true;
+
+			default:
+				return false;
+		}
+	}
+
+	protected void onMoveReceiver()
+	{
+		if ( !mDifficulty.perReceiverMoves().test(mRandom) ||
+				mOffense.receiver().pos().x == -1 ||
+					mOffense.receiver().pos().y == -1)
+			return;
+
+		movePlayerRelativePosition(mOffense.receiver(),
+										(mOffense.orientation() == Team.ORIENTATION_RIGHT)?getFieldLength()-1:0,
+										mOffense.quarterback().pos().y);
+	}
+
+
+	protected void onMoveDefense()
+	{
+		// AI updates are AI_UPDATE_RATE apart, so this picks every Nth one
+		if ((mTime/AI_UPDATE_RATE) % mDifficulty.aiUpdatesPerMove() != 0)
+			return;
+
+		OffensivePlayer ballCarrier=mOffense.quarterback();
+
+		// Defenders that are not on the field yet, on kick returns, are placed
+		//  on a random free tile first, one per update
+		for (PlayerIterator i=mDefense.iterator();i.hasNext();)
+		{
+			DefensivePlayer defender = (DefensivePlayer)i.next();
+			if (!defender.isVisibile())
+			{
+				int tile = randomFreeTile();
+				if (tile < 0)
+					return;
+				defender.set(mField.tileX(tile),mField.tileY(tile));
+				assert(!defender.equals(ballCarrier));
+				return;
+			}
+		}
+
+		int idx=mDefenseSearch.search(mOffense,mDefense,yardsToGoal(),
+										mDifficulty.searchDepth(),mDifficulty.searchBudgetNodes());
+		if (idx < 0)
+			return;
+
+		DefensivePlayer defender=mDefense.getDefender(idx);
+		if (mDefenseSearch.isTackle())
+		{
+			defender.setFlashing(true);
+			ballCarrier.setFlashing(true);
+			handlePlayDead();
+			return;
+		}
+
+		defender.set(mDefenseSearch.targetX(),mDefenseSearch.targetY());
+	}
+
+	/**
+	 * Tiles tried at random by randomFreeTile before it falls back to a scan
+	 */
+	private static final int FREE_TILE_TRIES=8;
+
+	/**
+	 * @return a tile, see FieldSize.tileIndex, picked at random from those
+	 *         neither team is on, or -1 if there is none. The teams only
+	 *         cover a few tiles, so one of the first tries is nearly always
+	 *         free; a crowded field is scanned once from a random tile
+	 */
+	private int randomFreeTile()
+	{
+		int tiles=mField.tiles();
+		for (int i=0;i < FREE_TILE_TRIES;i++)
+		{
+			int tile=mRandom.nextInt(tiles);
+			if (!mOffense.isTileOccupied(tile) && !mDefense.isTileOccupied(tile))
+				return tile;
+		}
+
+		int start=mRandom.nextInt(tiles);
+		for (int i=0;i < tiles;i++)
+		{
+			int tile=(start+i)%tiles;
+			if (!mOffense.isTileOccupied(tile) && !mDefense.isTileOccupied(tile))
+				return tile;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return yards the offense has left to the goal line
+	 */
+	final int yardsToGoal()
+	{
+		return (mOffense.orientation() == Team.ORIENTATION_RIGHT)?100-mFieldPos:mFieldPos;
+	}
+
+	/**
+	 * @return the search that moves the defense
+	 */
+	final DefenseSearch defenseSearch() { return mDefenseSearch; }
+
+	protected void movePlayerRelativePlayer(Player player,Player other)
+	{
+		movePlayerRelativePosition(player,other.pos().x,other.pos().y);
+	}
+
+	protected void movePlayerRelativePosition(Player player,int x, int y)
+	{
+		int xOffset= player.pos().x-x;
+	    int yOffset= player.pos().y-y;
+
+	    int newX=( (xOffset== 0) ? player.pos().x :
+	    			( (xOffset < 0) ? player.pos().x+1: player.pos().x-1) );
+
+		int newY=( (yOffset== 0) ? player.pos().y :
+					( (yOffset < 0) ? player.pos().y+1:player.pos().y-1) );
+
+		// If we can't make the tackle pick a direction to try moving first.
+		//  we will try both directions before giving up
+		boolean selector = mRandom.nextBoolean();
+		for (int i=0;i<2;i++)
+		{
+			int dx=selector?newX:player.pos().x;
+			int dy=selector?player.pos().y:newY;
+
+			if (player.equals(dx,dy))
+				continue;
+
+			if (!isOccupied(dx,dy))
+	    	{
+
+	    		player.set(dx,dy);
+	    		return;
+	    	}
+			selector=!selector;
+		}
+	}
+
+	private void updateGame(boolean flash)
+	{
+		switch (mState)
+		{
+			case KICK:
+				onHandleKick();
+				break;
+			case PASS:
+				onHandlePass();
+				break;
+		}
+
+		mHandler.updateField(flash);
+	}
+
+	@Override
+	public void updateClockDisplay(int tenths, Period period)
+	{
+		mHandler.updateClockDisplay(tenths,period);
+	}
+
+	@Override
+	public void handleClockExpired()
+	{
+		mHandler.playSfx(Sfx.BUZZER,false);
+	}
+}
@@ -0,0 +1,91 @@
+package com.redpantssoft.hhfootball;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Versioned binary snapshot of a running game, saved in a single byte[]
+ * across activity restarts.
+ * <p/>
+ * The snapshot starts with a magic number and a layout version, followed by
+ * the kick meter progress and the engine, see
+ * {@link GameEngine#writeSnapshot(ByteBuffer)}. Any change to the layout
+ * must bump {@link #VERSION}, older snapshots are then rejected rather than
+ * misread.
+ */
+class GameSnapshot
+{
+	private static final int MAGIC=0x48485331; // "HHS1"
+	static final int VERSION=4;
+
+	private static final int HEADER_SIZE=4+1+2;
+
+	private final GameEngine mEngine;
+	private final int mKickMeterProgress;
+
+	private GameSnapshot(GameEngine engine, int kickMeterProgress)
+	{
+		mEngine=engine;
+		mKickMeterProgress=kickMeterProgress;
+	}
+
+	/**
+	 * @return restored engine, without a handler
+	 */
+	final GameEngine engine() { return mEngine; }
+
+	/**
+	 * @return progress of the kick meter when the snapshot was taken
+	 */
+	final int kickMeterProgress() { return mKickMeterProgress; }
+
+	/**
+	 * @param engine  game to save
+	 * @param kickMeterProgress  current progress of the kick meter
+	 * @return snapshot of the game
+	 */
+	static byte[] encode(GameEngine engine, int kickMeterProgress)
+	{
+		byte[] data=new byte[HEADER_SIZE+engine.snapshotSize()];
+		ByteBuffer buf=ByteBuffer.wrap(data);
+		buf.putInt(MAGIC);
+		buf.put((byte)VERSION);
+		buf.putShort((short)kickMeterProgress);
+		engine.writeSnapshot(buf);
+		return data;
+	}
+
+	/**
+	 * @param data  snapshot from {@link #encode(GameEngine, int)}
+	 * @return the restored game
+	 * @throws IllegalArgumentException if data is not a snapshot of this version
+	 */
+	static GameSnapshot decode(byte[] data)
+	{
+		ByteBuffer buf=ByteBuffer.wrap(data);
+		try
+		{
+			if (buf.getInt() != MAGIC)
+				throw new IllegalArgumentException("Not a game snapshot");
+
+			int version=buf.get();
+			if (version != VERSION)
+				throw new IllegalArgumentException("Unsupported snapshot version "+version);
+
+			int kickMeterProgress=buf.getShort();
+			GameEngine engine=new GameEngine(buf);
+			if (buf.hasRemaining())
+				throw new IllegalArgumentException("Snapshot has "+buf.remaining()+" trailing bytes");
+
+			return new GameSnapshot(engine,kickMeterProgress);
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IllegalArgumentException("Truncated game snapshot");
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			throw new IllegalArgumentException("Corrupt game snapshot");
+		}
+	}
+}
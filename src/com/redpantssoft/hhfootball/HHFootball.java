@@ -23,7 +23,8 @@ import android.widget.LinearLayout;
  * change the settings, get information about the game and ways to
  * contact the developer.
  * <p/>
- * The initial display is animated with background football audio
+ * The initial display is animated with background football audio, while
+ * the assets of the game are preloaded in the background
  *
  * @author Jeff clyne
  */
@@ -58,6 +59,10 @@ public class HHFootball extends Activity {
         // Set the Volume controls to always handle the media volume
         setVolumeControlStream(AudioManager.STREAM_MUSIC);
 
+        // Decode the game's images and sounds while the logo animates, so a
+        //  game starts without loading them
+        Game.preloadAssets(this);
+
         // Setup a media player to play the splash sound. Set up an animation listener
         //  so it will be played when the animation starts
         mSplashSound = MediaPlayer.create(this, R.raw.splash);
@@ -0,0 +1,133 @@
+package com.redpantssoft.hhfootball;
+
+/**
+ * Text of one of the fields of the {@link ScoreboardView}, the scores, clock
+ * and drive status, composed in to a reusable buffer.
+ * <p/>
+ * The text is rebuilt on every update, with {@link #clear()} and the append
+ * methods, and {@link #show()} copies it to the text the view draws, and
+ * redraws that field, only if it differs from what the view is showing.
+ * Once the buffers have grown to fit the longest text, an update allocates
+ * nothing. Only used from the UI thread.
+ */
+final class HudText
+{
+	private final ScoreboardView mView;
+	private final int mField;
+
+	/**
+	 * Text being composed, and the text the view is showing, -1 long until
+	 * it has been shown once
+	 */
+	private char[] mText;
+	private int mLength=0;
+	private char[] mShown;
+	private int mShownLength=-1;
+
+	/**
+	 * @param view  view that shows the text
+	 * @param field  field of the view the text is shown in
+	 * @param capacity  expected length of the longest text, the buffers grow
+	 * 		if it is exceeded
+	 */
+	HudText(ScoreboardView view, int field, int capacity)
+	{
+		mView=view;
+		mField=field;
+		mText=new char[capacity];
+		mShown=new char[capacity];
+	}
+
+	HudText clear()
+	{
+		mLength=0;
+		return this;
+	}
+
+	HudText append(char c)
+	{
+		ensureCapacity(mLength+1);
+		mText[mLength++]=c;
+		return this;
+	}
+
+	HudText append(String s)
+	{
+		ensureCapacity(mLength+s.length());
+		s.getChars(0,s.length(),mText,mLength);
+		mLength+=s.length();
+		return this;
+	}
+
+	HudText append(int value)
+	{
+		return append(value,1);
+	}
+
+	/**
+	 * Appends the value in decimal, zero padded to at least the given
+	 * number of digits
+	 */
+	HudText append(int value, int digits)
+	{
+		// Digits are taken from the negative value, so that MIN_VALUE works
+		int rest=value;
+		if (value < 0)
+			append('-');
+		else
+			rest=-value;
+
+		int count=1;
+		for (int n=rest/10; n != 0; n/=10)
+			count++;
+		if (count < digits)
+			count=digits;
+
+		ensureCapacity(mLength+count);
+		for (int i=mLength+count-1; i >= mLength; i--)
+		{
+			mText[i]=(char)('0'-rest%10);
+			rest/=10;
+		}
+		mLength+=count;
+		return this;
+	}
+
+	/**
+	 * Pushes the composed text to the view, if it is not already showing it,
+	 * and redraws the field it is shown in
+	 */
+	void show()
+	{
+		if (mLength == mShownLength)
+		{
+			int i=0;
+			while (i < mLength && mText[i] == mShown[i])
+				i++;
+			if (i == mLength)
+				return;
+		}
+
+		if (mShown.length < mLength)
+			mShown=new char[mText.length];
+		System.arraycopy(mText,0,mShown,0,mLength);
+		mShownLength=mLength;
+		mView.fieldChanged(mField);
+	}
+
+	/**
+	 * Text the view is showing, valid up to {@link #shownLength()}
+	 */
+	final char[] shown() { return mShown; }
+	final int shownLength() { return mShownLength < 0 ? 0 : mShownLength; }
+
+	private void ensureCapacity(int length)
+	{
+		if (length <= mText.length)
+			return;
+
+		char[] text=new char[Math.max(length,mText.length*2)];
+		System.arraycopy(mText,0,text,0,mLength);
+		mText=text;
+	}
+}
@@ -0,0 +1,232 @@
+package com.redpantssoft.hhfootball;
+
+import com.redpantssoft.hhfootball.GameEngine.Difficulty;
+import com.redpantssoft.hhfootball.GameEngine.Input;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact record of everything needed to replay a game: the seed of its
+ * random numbers, its settings and every input, timestamped with the engine
+ * tick it was applied after.
+ * <p/>
+ * The engine records into its log as it runs. Because the engine only draws
+ * random numbers from its seeded source and only changes state on ticks and
+ * inputs, {@link GameEngine#replay(InputLog, GameEngine.GameEventHandler)}
+ * reproduces the recorded game exactly.
+ * <p/>
+ * A log written to a stream ends with {@link GameEngine#stateHash()} of the
+ * game at the time, which a replay of the log must reach.
+ * <p/>
+ * Each event is packed into an int: the tick in the upper 22 bits, the event
+ * type in the next 3 and its value in the low 7.
+ */
+class InputLog
+{
+	/**
+	 * Identifies, and versions, the log when written to a stream
+	 */
+	private static final int MAGIC=0x48484c33; // "HHL3"
+
+	/**
+	 * Event types
+	 */
+	static final int TYPE_INPUT=0;
+	static final int TYPE_KICK=1;
+	static final int TYPE_DIFFICULTY=2;
+	static final int TYPE_PAUSE=3;
+	static final int TYPE_RESUME=4;
+
+	private static final int VALUE_BITS=7;
+	private static final int TYPE_BITS=3;
+	private static final int TICK_SHIFT=VALUE_BITS+TYPE_BITS;
+	private static final int VALUE_MASK=(1<<VALUE_BITS)-1;
+	private static final int TYPE_MASK=(1<<TYPE_BITS)-1;
+
+	/**
+	 * Longest game that can be recorded, in ticks
+	 */
+	static final int MAX_TICKS=(1<<(32-TICK_SHIFT))-1;
+
+	private final long mSeed;
+	private final Difficulty mDifficulty;
+	private final FieldSize mField;
+	private final int mPeriodLengthMins;
+
+	/**
+	 * Number of ticks played so far
+	 */
+	private int mTicks=0;
+
+	private int[] mEvents=new int[64];
+	private int mSize=0;
+
+	/**
+	 * Hash of the state of the game when the log was written, 0 unless the
+	 * log was read from a stream
+	 */
+	private long mStateHash=0;
+
+	/**
+	 * @param seed  seed of the game's random numbers
+	 * @param difficulty  initial difficulty level
+	 * @param field  size of the field of play
+	 * @param periodLengthMins  length of each period, in minutes
+	 */
+	InputLog(long seed, Difficulty difficulty, FieldSize field, int periodLengthMins)
+	{
+		mSeed=seed;
+		mDifficulty=difficulty;
+		mField=field;
+		mPeriodLengthMins=periodLengthMins;
+	}
+
+	final long seed() { return mSeed; }
+	final Difficulty difficulty() { return mDifficulty; }
+	final FieldSize field() { return mField; }
+	final int periodLengthMins() { return mPeriodLengthMins; }
+	final int ticks() { return mTicks; }
+	final int size() { return mSize; }
+	final long stateHash() { return mStateHash; }
+
+	final int tick(int idx) { return mEvents[idx] >>> TICK_SHIFT; }
+	final int type(int idx) { return (mEvents[idx] >>> VALUE_BITS) & TYPE_MASK; }
+	final int value(int idx) { return mEvents[idx] & VALUE_MASK; }
+
+	/**
+	 * Called by the engine once per tick
+	 */
+	void tick()
+	{
+		if (mTicks < MAX_TICKS)
+			mTicks++;
+	}
+
+	void addInput(Input input) { add(TYPE_INPUT,input.ordinal()); }
+	void addKick(int power) { add(TYPE_KICK,power); }
+	void addDifficulty(Difficulty difficulty) { add(TYPE_DIFFICULTY,difficulty.ordinal()); }
+	void addPause() { add(TYPE_PAUSE,0); }
+	void addResume() { add(TYPE_RESUME,0); }
+
+	private void add(int type, int value)
+	{
+		if (mSize == mEvents.length)
+		{
+			int[] events=new int[mEvents.length*2];
+			System.arraycopy(mEvents,0,events,0,mSize);
+			mEvents=events;
+		}
+		mEvents[mSize++]=(mTicks<<TICK_SHIFT) | (type<<VALUE_BITS) | (value & VALUE_MASK);
+	}
+
+	/**
+	 * @return true if the other log recorded the same game
+	 */
+	boolean sameAs(InputLog other)
+	{
+		if (mSeed != other.mSeed || mDifficulty != other.mDifficulty || mField != other.mField ||
+				mPeriodLengthMins != other.mPeriodLengthMins ||
+				mTicks != other.mTicks || mSize != other.mSize)
+			return false;
+
+		for (int i=0;i<mSize;i++)
+		{
+			if (mEvents[i] != other.mEvents[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param stateHash  {@link GameEngine#stateHash()} of the game being recorded
+	 */
+	void writeTo(DataOutputStream out, long stateHash) throws IOException
+	{
+		out.writeInt(MAGIC);
+		out.writeLong(mSeed);
+		out.writeByte(mDifficulty.ordinal());
+		out.writeByte(mField.ordinal());
+		out.writeByte(mPeriodLengthMins);
+		out.writeInt(mTicks);
+		out.writeInt(mSize);
+		for (int i=0;i<mSize;i++)
+			out.writeInt(mEvents[i]);
+		out.writeLong(stateHash);
+	}
+
+	/**
+	 * @return number of bytes writeSnapshot will write
+	 */
+	int snapshotSize()
+	{
+		return 8+1+1+1+4+4+4*mSize;
+	}
+
+	/**
+	 * Writes the log to a game snapshot, in the same layout as writeTo
+	 * without the magic number or the state hash, the snapshot holds the
+	 * state itself
+	 */
+	void writeSnapshot(ByteBuffer buf)
+	{
+		buf.putLong(mSeed);
+		buf.put((byte)mDifficulty.ordinal());
+		buf.put((byte)mField.ordinal());
+		buf.put((byte)mPeriodLengthMins);
+		buf.putInt(mTicks);
+		buf.putInt(mSize);
+		buf.asIntBuffer().put(mEvents,0,mSize);
+		buf.position(buf.position()+4*mSize);
+	}
+
+	static InputLog readSnapshot(ByteBuffer buf)
+	{
+		long seed=buf.getLong();
+		Difficulty difficulty=Difficulty.values()[buf.get()];
+		FieldSize field=FieldSize.values()[buf.get()];
+		int periodLengthMins=buf.get();
+
+		InputLog log=new InputLog(seed,difficulty,field,periodLengthMins);
+		log.mTicks=buf.getInt();
+		int size=buf.getInt();
+		if (size < 0 || size > buf.remaining()/4)
+			throw new IllegalArgumentException("Bad event count "+size);
+
+		log.mEvents=new int[Math.max(size,1)];
+		buf.asIntBuffer().get(log.mEvents,0,size);
+		buf.position(buf.position()+4*size);
+		log.mSize=size;
+		return log;
+	}
+
+	static InputLog readFrom(DataInputStream in) throws IOException
+	{
+		if (in.readInt() != MAGIC)
+			throw new IOException("Not an input log");
+
+		long seed=in.readLong();
+		int difficulty=in.readByte();
+		int field=in.readByte();
+		int periodLengthMins=in.readByte();
+		if (difficulty < 0 || difficulty >= Difficulty.values().length)
+			throw new IOException("Bad difficulty "+difficulty);
+		if (field < 0 || field >= FieldSize.values().length)
+			throw new IOException("Bad field size "+field);
+
+		InputLog log=new InputLog(seed,Difficulty.values()[difficulty],FieldSize.values()[field],periodLengthMins);
+		log.mTicks=in.readInt();
+		int size=in.readInt();
+		if (size < 0)
+			throw new IOException("Bad event count "+size);
+
+		log.mEvents=new int[Math.max(size,1)];
+		for (int i=0;i<size;i++)
+			log.mEvents[i]=in.readInt();
+		log.mSize=size;
+		log.mStateHash=in.readLong();
+		return log;
+	}
+}
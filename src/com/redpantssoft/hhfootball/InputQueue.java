@@ -0,0 +1,74 @@
+package com.redpantssoft.hhfootball;
+
+/**
+ * Bounded queue of the controller inputs, in the order they were made, each
+ * with the time of the event that made it.
+ * <p/>
+ * The buttons add inputs as they are pressed, and the game loop applies them
+ * to the engine between ticks, so an input never lands in the middle of a
+ * tick. Entries are a type and value as in InputLog, an Input ordinal or a
+ * kick power. Once the queue is full further inputs are refused, rather than
+ * applying a burst of stale ones. Only used from the UI thread.
+ */
+final class InputQueue
+{
+	private final int[] mTypes;
+	private final int[] mValues;
+	private final long[] mEventMillis;
+	private int mHead=0;
+	private int mSize=0;
+
+	/**
+	 * @param capacity  number of inputs the queue holds
+	 */
+	InputQueue(int capacity)
+	{
+		mTypes=new int[capacity];
+		mValues=new int[capacity];
+		mEventMillis=new long[capacity];
+	}
+
+	/**
+	 * @param type  InputLog.TYPE_INPUT or InputLog.TYPE_KICK
+	 * @param value  ordinal of the Input, or the kick power
+	 * @param eventMillis  time of the event, on the uptime clock
+	 * @return false if the queue is full and the input was refused
+	 */
+	boolean add(int type, int value, long eventMillis)
+	{
+		if (mSize == mTypes.length)
+			return false;
+
+		int idx=(mHead+mSize)%mTypes.length;
+		mTypes[idx]=type;
+		mValues[idx]=value;
+		mEventMillis[idx]=eventMillis;
+		mSize++;
+		return true;
+	}
+
+	final boolean isEmpty() { return mSize == 0; }
+
+	/**
+	 * Type, value and event time of the oldest input
+	 */
+	final int type() { return mTypes[mHead]; }
+	final int value() { return mValues[mHead]; }
+	final long eventMillis() { return mEventMillis[mHead]; }
+
+	/**
+	 * Removes the oldest input
+	 */
+	void remove()
+	{
+		assert(mSize > 0);
+		mHead=(mHead+1)%mTypes.length;
+		mSize--;
+	}
+
+	void clear()
+	{
+		mHead=0;
+		mSize=0;
+	}
+}
@@ -6,7 +6,7 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Paint.Style;
-import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.widget.ProgressBar;
@@ -14,17 +14,23 @@ import android.widget.ProgressBar;
 /**
  * Implements a KickMeter widget that used to get kick power.
  * <p/>
- * It is based on a progress bar and uses a background thread to
- * update the power meter while waiting for user input on the main
- * thread.  It is invisible until the meter is enabled. Correct usage
+ * It is based on a progress bar that is advanced by the owner calling
+ * {@link #update()} once per frame, on the UI thread, while waiting for
+ * user input.  It is invisible until the meter is enabled. Correct usage
  * is to set the minPower/max values, enable the meter, wait for user
  * input to disable it, then retrieve the power with {@link #getPowerValue()}
  * <p/>
+ * The power is a function of the time elapsed on the monotonic uptime
+ * clock since the meter was enabled, so it does not depend on how
+ * regularly the meter is updated, and the power when the meter is disabled
+ * is read from the clock at that moment. The meter is frozen while paused,
+ * see {@link #pause()}.
+ * <p/>
  * The border size and color are configurable with styleable attributes
  *
  * @author Jeff Clyne
  */
-public class KickMeter extends ProgressBar implements Runnable {
+public class KickMeter extends ProgressBar {
     /**
      * Static Logging Tag
      */
@@ -58,9 +64,20 @@ public class KickMeter extends ProgressBar implements Runnable {
     private boolean meterEnabled = false;
 
     /**
-     * Updated thread from the power meter
+     * Time into a cycle of the meter, in milliseconds, at which each
+     * progress value is reached. The last entry is the length of the cycle.
+     */
+    private int[] stepStart;
+
+    /**
+     * Uptime, in milliseconds, at which the current cycle of the meter started
+     */
+    private long cycleStart;
+
+    /**
+     * Uptime at which the meter was paused, -1 if it is not paused
      */
-    private Thread meterThread;
+    private long pausedAt = -1;
 
     /**
      * Paint used to render the meter's border
@@ -131,42 +148,6 @@ public class KickMeter extends ProgressBar implements Runnable {
         setVisibility(INVISIBLE);
     }
 
-    /**
-     * Serializes the kick meter into a Bundle
-     *
-     * @return Bundle of serialized kick meter state
-     */
-    public Bundle serialize() {
-        Bundle bundle = new Bundle();
-        bundle.putInt("minPower", minPower);
-        bundle.putInt("maxPower", maxPower);
-        bundle.putInt("minDelay", minDelay);
-        bundle.putInt("maxDelay", maxDelay);
-        bundle.putInt("borderColor", borderPaint.getColor());
-        bundle.putFloat("borderWidth", borderPaint.getStrokeWidth());
-        bundle.putBoolean("meterEnabled", meterEnabled);
-        bundle.putInt("progress", getProgress());
-
-        return bundle;
-    }
-
-    /**
-     * Restores the kick meter from an existing bundle
-     *
-     * @param bundle Bundle containing serialized values
-     */
-    public void restore(Bundle bundle) {
-        disable();
-
-        setMinMaxPower(bundle.getInt("minPower"), bundle.getInt("maxPower"));
-        setMinMaxDelay(bundle.getInt("minDelay"), bundle.getInt("maxDelay"));
-        borderPaint.setColor(bundle.getInt("borderColor"));
-        borderPaint.setStrokeWidth(bundle.getFloat("borderWidth"));
-        if (bundle.getBoolean("meterEnabled")) {
-            enable(bundle.getInt("progress"));
-        }
-    }
-
     /**
      * @param min New minimum meter value
      * @param max New maximum meter value
@@ -227,7 +208,7 @@ public class KickMeter extends ProgressBar implements Runnable {
      * @return Flag indicating of the meter is enabled
      */
     @Override
-    public synchronized boolean isEnabled() {
+    public boolean isEnabled() {
         return meterEnabled;
     }
 
@@ -235,7 +216,7 @@ public class KickMeter extends ProgressBar implements Runnable {
      * Enables the meter, makes it visible, and sets the initial
      * progress to 0
      */
-    public synchronized void enable() {
+    public void enable() {
         enable(0);
     }
 
@@ -245,16 +226,17 @@ public class KickMeter extends ProgressBar implements Runnable {
      *
      * @param progress initial progress value after initialization
      */
-    public synchronized void enable(int progress) {
+    public void enable(int progress) {
         if (!meterEnabled) {
             if (progress > getMax() || progress < 0) {
                 progress = 0;
             }
+            buildSteps();
+            cycleStart = SystemClock.uptimeMillis() - stepStart[progress];
+            pausedAt = -1;
             setVisibility(VISIBLE);
             setProgress(progress);
             meterEnabled = true;
-            meterThread = new Thread(this);
-            meterThread.start();
         }
     }
 
@@ -266,62 +248,85 @@ public class KickMeter extends ProgressBar implements Runnable {
      * @return Flag indicating whether the meter was disabled.
      */
     public boolean disable() {
-        synchronized (this) {
-            if (meterEnabled) {
-                setVisibility(INVISIBLE);
-                meterEnabled = false;
-                notifyAll();
-            } else
-                return false;
-        }
+        if (!meterEnabled)
+            return false;
 
-        while (meterThread.isAlive()) {
-            try {
-                meterThread.join();
-            } catch (InterruptedException ignored) {
-            }
-        }
+        update();
+        setVisibility(INVISIBLE);
+        meterEnabled = false;
         return true;
     }
 
-    public synchronized int getPowerValue() {
+    public int getPowerValue() {
         return getProgress() + minPower;
     }
 
     /**
-     * Thread context to update the power meter.
+     * Advances the meter to the current time. This should be called
+     * once per frame while the meter is enabled.
+     */
+    public void update() {
+        if (meterEnabled && pausedAt < 0)
+            setProgress(progressAt(SystemClock.uptimeMillis()));
+    }
+
+    /**
+     * Freezes the meter, while the owning activity is paused
+     *
+     * @see #resume()
+     */
+    public void pause() {
+        if (meterEnabled && pausedAt < 0) {
+            update();
+            pausedAt = SystemClock.uptimeMillis();
+        }
+    }
+
+    /**
+     * Restarts a paused meter from where it was frozen
+     *
+     * @see #pause()
+     */
+    public void resume() {
+        if (pausedAt >= 0) {
+            cycleStart += SystemClock.uptimeMillis() - pausedAt;
+            pausedAt = -1;
+        }
+    }
+
+    /**
+     * Calculates the time each progress value is reached in a cycle of the meter.
      * <p/>
      * The power meter increases based on a delay factor
      * that is applied to the current value, thus making it
      * slowly update faster as the power increases. This makes
      * it more difficult, and risky, to go for the high power.
      */
-    @Override
-    public void run() {
+    private void buildSteps() {
         // Calculates a delay factor that should produce at linear increase in the
         //  meter update
-        final float delayFactor = (float) ((maxDelay - minDelay)) / (float) (super.getMax());
+        final int max = getMax();
+        final float delayFactor = (float) ((maxDelay - minDelay)) / (float) (max);
         Log.d(TAG, String.format("delayFactor: %3.2f", delayFactor));
-        synchronized (this) {
-            while (meterEnabled) {
-                int val = getProgress() + 1;
-                if (val > super.getMax())
-                    val = 0;
-                setProgress(val);
-
-                int wait_time = (int) ((float) (maxDelay) - val * delayFactor);
-
-                long start = System.currentTimeMillis();
-                while (wait_time > 0) {
-                    try {
-                        wait(wait_time);
-                        break;
-                    } catch (InterruptedException e) {
-                        wait_time -= System.currentTimeMillis() - start;
-                    }
-                }
-            }
-        }
+
+        if (stepStart == null || stepStart.length != max + 2)
+            stepStart = new int[max + 2];
+        for (int val = 0; val <= max; val++)
+            stepStart[val + 1] = stepStart[val] + Math.max(1, (int) ((float) (maxDelay) - val * delayFactor));
+    }
+
+    /**
+     * @param now current uptime, in milliseconds
+     * @return progress value of the meter at the specified time
+     */
+    private int progressAt(long now) {
+        final int cycle = stepStart[stepStart.length - 1];
+        final int time = (int) ((now - cycleStart) % cycle);
+
+        int val = 0;
+        while (stepStart[val + 1] <= time)
+            val++;
+        return val;
     }
 
 
@@ -332,7 +337,7 @@ public class KickMeter extends ProgressBar implements Runnable {
      * @param canvas Current canvas ro draw the view on to
      */
     @Override
-    protected synchronized void onDraw(Canvas canvas) {
+    protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
         canvas.drawRect(0, 0, getWidth() - 1, getHeight() - 1, borderPaint);
 
@@ -1,10 +1,9 @@
 package com.redpantssoft.hhfootball;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
-import android.os.Bundle;
-
 import com.redpantssoft.Coordinate;
 
 
@@ -28,15 +27,9 @@ abstract class Player
 	
 	public Player(Team team, int newX, int newY)
 	{
-		mPos=new Coordinate(newX,newY);
-		mTeam=team;
-	}
-	
-	public Player(Team team,Bundle bundle)
-	{
-		mPos=new Coordinate(bundle.getInt("xpos"),bundle.getInt("ypos"));
-		mFlashing=bundle.getBoolean("mFlashing");
+		mPos=new Coordinate(-1,-1);
 		mTeam=team;
+		set(newX,newY);
 	}
 	
 	public Player(Player copy)
@@ -85,18 +78,28 @@ abstract class Player
 	
 	public void set(int newX, int newY)
 	{		
+		if (mTeam != null)
+			mTeam.playerMoved(this,mPos.x,mPos.y,newX,newY);
 		mPos.x = newX;
 		mPos.y = newY;
 	}
 	
-	public Bundle serialize()
+	/**
+	 * Snapshot layout: x, y and flashing, a byte each. Off the field is -1,-1
+	 */
+	void writeSnapshot(ByteBuffer buf)
+	{
+		buf.put((byte)mPos.x);
+		buf.put((byte)mPos.y);
+		buf.put((byte)(mFlashing ? 1 : 0));
+	}
+	
+	void readSnapshot(ByteBuffer buf)
 	{
-		Bundle bundle = new Bundle();
-		bundle.putInt("xpos", mPos.x);
-		bundle.putInt("ypos", mPos.y);
-		bundle.putBoolean("mFlashing", mFlashing);
-		
-		return bundle;
+		int x=buf.get();
+		int y=buf.get();
+		set(x,y);
+		mFlashing= buf.get() != 0;
 	}
 }
 
@@ -146,17 +149,6 @@ abstract class OffensivePlayer extends Player
 		super(copy);
 	}
 	
-	public OffensivePlayer(Team team, Bundle bundle)
-	{
-		super(team, bundle);
-	}
-	
-	public Bundle serialize()
-	{
-		Bundle bundle =  super.serialize();
-		return bundle;
-	}
-	
 }
 
 class Quarterback extends OffensivePlayer
@@ -177,22 +169,11 @@ class Quarterback extends OffensivePlayer
 		super(copy);
 	}
 	
-	public Quarterback(Team team, Bundle bundle)
-	{
-		super(team, bundle);
-	}
-	
 	public Position position() 
 	{ 
 		return Position.Quarterback; 
 	}
 	
-	public Bundle serialize()
-	{
-		Bundle bundle =  super.serialize();
-		return bundle;
-	}
-	
 }
 
 class Receiver extends OffensivePlayer
@@ -212,22 +193,11 @@ class Receiver extends OffensivePlayer
 		super(copy);
 	}
 	
-	public Receiver(Team team, Bundle bundle)
-	{
-		super(team, bundle);
-	}
-	
 	public Position position()
 	{ 
 		return Position.Receiver; 
 	}
 	
-	public Bundle serialize()
-	{
-		Bundle bundle =  super.serialize();
-		return bundle;
-	}
-	
 }
 
 class DefensivePlayer extends Player
@@ -247,20 +217,9 @@ class DefensivePlayer extends Player
 		super(copy);
 	}
 	
-	public DefensivePlayer(Team team, Bundle bundle)
-	{
-		super(team, bundle);
-	}
-	
 	public Position position() 
 	{ 
 		return Position.Defender; 
 	}
 	
-	public Bundle serialize()
-	{
-		Bundle bundle =  super.serialize();
-		return bundle;
-	}
-	
 }
\ No newline at end of file
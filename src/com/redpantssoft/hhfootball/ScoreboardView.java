@@ -0,0 +1,266 @@
+package com.redpantssoft.hhfootball;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.*;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+/**
+ * ScoreboardView: a custom view that draws the scoreboard, the home and
+ * visitor scores, the clock and the period under their labels, and the
+ * drive status and field position below them.
+ *
+ * Each field is a {@link HudText} the game composes the text of. Values are
+ * drawn in a monospace font, and every field is sized for its longest text
+ * when the view is laid out, so a field whose text changes is redrawn on its
+ * own, with no measure or layout pass.
+ *
+ * The colors and text sizes are configurable with styleable attributes
+ */
+public class ScoreboardView extends View {
+    /**
+     * Fields of the scoreboard, the first four are the columns of the table
+     */
+    static final int HOME = 0;
+    static final int CLOCK = 1;
+    static final int PERIOD = 2;
+    static final int VISITOR = 3;
+    static final int DRIVE = 4;
+    static final int FIELD_POS = 5;
+    private static final int FIELD_COUNT = 6;
+    private static final int COLUMN_COUNT = 4;
+
+    /**
+     * Length, in characters, of the longest text of each field
+     */
+    private static final int[] CAPACITY = {2, 7, 1, 2, 11, 7};
+
+    /**
+     * Share of the space left over once each column fits its text, in percent
+     */
+    private static final int[] COLUMN_WEIGHT = {25, 45, 5, 25};
+
+    /**
+     * Share of the width of the drive status, the field position gets the rest
+     */
+    private static final int DRIVE_WEIGHT = 40;
+
+    /**
+     * Offset of the shadow under the values, in pixels
+     */
+    private static final int SHADOW = 2;
+
+    private final HudText[] mFields = new HudText[FIELD_COUNT];
+    private final String[] mLabels = new String[FIELD_COUNT];
+    private final float[] mLabelWidths = new float[FIELD_COUNT];
+
+    private final Paint mLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mValuePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    /**
+     * Width of a value glyph, and the distance from the top of each row to
+     * its text baseline, in pixels
+     */
+    private float mGlyphWidth;
+    private int mLabelHeight;
+    private int mLabelBaseline;
+    private int mValueHeight;
+    private int mValueBaseline;
+    private int mStatusHeight;
+
+    /**
+     * Bounding rectangles of the column labels, and of each field, laid out
+     * in onSizeChanged. The drive status and field position rectangles
+     * include their labels.
+     */
+    private final Rect[] mLabelRects = new Rect[COLUMN_COUNT];
+    private final Rect[] mFieldRects = new Rect[FIELD_COUNT];
+
+    /**
+     * Scratch rectangle used while drawing, kept to avoid allocating on every frame
+     */
+    private final Rect mClipRect = new Rect();
+
+    /**
+     * Constructor used to inflate from XML
+     *
+     * @param context Context of the owning activity
+     * @param attrs   Attributes from the XML tag inflating the view
+     */
+    public ScoreboardView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    /**
+     * Constructor used to inflate from XML, includes optional style
+     *
+     * @param context  Context of the owning activity
+     * @param attrs    Attributes from the XML tag inflating the view
+     * @param defStyle Style to apply to this view
+     */
+    public ScoreboardView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            mFields[i] = new HudText(this, i, CAPACITY[i]);
+            mFieldRects[i] = new Rect();
+        }
+        for (int i = 0; i < COLUMN_COUNT; i++)
+            mLabelRects[i] = new Rect();
+        mLabels[HOME] = context.getString(R.string.scoreboard_home);
+        mLabels[CLOCK] = context.getString(R.string.scoreboard_clock);
+        mLabels[PERIOD] = context.getString(R.string.scoreboard_period);
+        mLabels[VISITOR] = context.getString(R.string.scoreboard_visitor);
+        mLabels[DRIVE] = "";
+        mLabels[FIELD_POS] = context.getString(R.string.scoreboard_ball_on);
+
+        initializePaintsFromAttributeSet(attrs);
+    }
+
+    /**
+     * Initializes the label and value paints, and the text metrics, from the
+     * XML attributes inflating the view
+     *
+     * @param attrs Attributes from the XML tag inflating the view
+     */
+    private void initializePaintsFromAttributeSet(AttributeSet attrs) {
+        TypedArray a = getContext().obtainStyledAttributes(attrs, R.styleable.ScoreboardView);
+
+        mLabelPaint.setColor(a.getColor(R.styleable.ScoreboardView_labelColor, Color.WHITE));
+        mLabelPaint.setTextSize(a.getDimension(R.styleable.ScoreboardView_labelSize, spToPixels(12)));
+        mLabelPaint.setTypeface(Typeface.DEFAULT_BOLD);
+
+        mValuePaint.setColor(a.getColor(R.styleable.ScoreboardView_valueColor, Color.RED));
+        mValuePaint.setTextSize(a.getDimension(R.styleable.ScoreboardView_valueSize, spToPixels(14)));
+        mValuePaint.setTypeface(Typeface.create(Typeface.MONOSPACE, Typeface.BOLD));
+        mValuePaint.setShadowLayer(SHADOW, SHADOW, SHADOW, Color.BLACK);
+
+        a.recycle();
+
+        mGlyphWidth = mValuePaint.measureText("0");
+        for (int i = 0; i < FIELD_COUNT; i++)
+            mLabelWidths[i] = mLabelPaint.measureText(mLabels[i]);
+
+        Paint.FontMetricsInt metrics = mLabelPaint.getFontMetricsInt();
+        mLabelHeight = metrics.descent - metrics.ascent;
+        mLabelBaseline = -metrics.ascent;
+
+        metrics = mValuePaint.getFontMetricsInt();
+        mValueHeight = metrics.descent - metrics.ascent + SHADOW;
+        mValueBaseline = -metrics.ascent;
+
+        mStatusHeight = Math.max(mLabelHeight, mValueHeight);
+    }
+
+    private float spToPixels(float sp) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, sp,
+                getResources().getDisplayMetrics());
+    }
+
+    /**
+     * @return the text of the given field, to compose and show
+     */
+    HudText field(int field) {
+        return mFields[field];
+    }
+
+    /**
+     * Redraws only the given field, called by its {@link HudText} when the
+     * text it shows changes
+     */
+    void fieldChanged(int field) {
+        invalidate(mFieldRects[field]);
+    }
+
+    /**
+     * The height fits the three rows of text, it does not depend on what the
+     * fields show
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int height = getPaddingTop() + mLabelHeight + mValueHeight + mStatusHeight + getPaddingBottom();
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                resolveSize(height, heightMeasureSpec));
+    }
+
+    /**
+     * Lays out the fields. Each column is wide enough for its label and its
+     * longest value, and the space left over is shared out by weight.
+     */
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        int left = getPaddingLeft();
+        int width = w - left - getPaddingRight();
+
+        int[] columnWidths = new int[COLUMN_COUNT];
+        int extra = width;
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            columnWidths[i] = (int) Math.ceil(Math.max(mLabelWidths[i], CAPACITY[i] * mGlyphWidth));
+            extra -= columnWidths[i];
+        }
+
+        int labelTop = getPaddingTop();
+        int valueTop = labelTop + mLabelHeight;
+        int statusTop = valueTop + mValueHeight;
+        int x = left;
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            int columnWidth = columnWidths[i] + Math.max(extra, 0) * COLUMN_WEIGHT[i] / 100;
+            mLabelRects[i].set(x, labelTop, x + columnWidth, valueTop);
+            mFieldRects[i].set(x, valueTop, x + columnWidth, statusTop);
+            x += columnWidth;
+        }
+
+        int driveWidth = width * DRIVE_WEIGHT / 100;
+        mFieldRects[DRIVE].set(left, statusTop, left + driveWidth, statusTop + mStatusHeight);
+        mFieldRects[FIELD_POS].set(left + driveWidth, statusTop, left + width, statusTop + mStatusHeight);
+    }
+
+    /**
+     * Draws the labels and fields inside the canvas clip, the union of the
+     * fields that changed for a partial redraw
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        if (!canvas.getClipBounds(mClipRect))
+            return;
+
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            Rect rect = mLabelRects[i];
+            if (Rect.intersects(rect, mClipRect))
+                canvas.drawText(mLabels[i], rect.exactCenterX() - mLabelWidths[i] / 2,
+                        rect.top + mLabelBaseline, mLabelPaint);
+
+            rect = mFieldRects[i];
+            if (Rect.intersects(rect, mClipRect))
+                drawValue(canvas, mFields[i], rect.exactCenterX() - valueWidth(mFields[i]) / 2,
+                        rect.top + mValueBaseline);
+        }
+
+        for (int i = COLUMN_COUNT; i < FIELD_COUNT; i++) {
+            Rect rect = mFieldRects[i];
+            if (!Rect.intersects(rect, mClipRect))
+                continue;
+
+            // The label and value are centered together on one line
+            float labelWidth = mLabelWidths[i] > 0 ? mLabelWidths[i] + mGlyphWidth : 0;
+            float x = rect.exactCenterX() - (labelWidth + valueWidth(mFields[i])) / 2;
+            int top = rect.top + (mStatusHeight - mLabelHeight) / 2;
+            canvas.drawText(mLabels[i], x, top + mLabelBaseline, mLabelPaint);
+
+            top = rect.top + (mStatusHeight - mValueHeight) / 2;
+            drawValue(canvas, mFields[i], x + labelWidth, top + mValueBaseline);
+        }
+    }
+
+    private float valueWidth(HudText text) {
+        return text.shownLength() * mGlyphWidth;
+    }
+
+    private void drawValue(Canvas canvas, HudText text, float x, float y) {
+        canvas.drawText(text.shown(), 0, text.shownLength(), x, y, mValuePaint);
+    }
+}
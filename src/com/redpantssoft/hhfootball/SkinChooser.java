@@ -62,6 +62,11 @@ public class SkinChooser extends DialogPreference {
          */
         private final String[] desc;
 
+        /**
+         * Shared cache of the decoded thumbnails
+         */
+        private final ThumbnailCache thumbnails;
+
         /**
          * @param context Context of the owning activity
          */
@@ -75,6 +80,7 @@ public class SkinChooser extends DialogPreference {
 
             skins = this.context.getResources().obtainTypedArray(R.array.skins);
             desc = this.context.getResources().getStringArray(R.array.skin_description);
+            thumbnails = ThumbnailCache.getInstance(this.context.getResources());
         }
 
         /**
@@ -121,16 +127,25 @@ public class SkinChooser extends DialogPreference {
         public View getView(int pos, View convertView, ViewGroup parent) {
 
             /*
-            Create a new image view and set the bitmap as its image and the skin description
-            as its tag. The image should be centered and the view should wrap to the image size
+            Recycle the view the gallery hands back if there is one, otherwise create
+            a new image view. The image should be centered and the view should wrap
+            to the image size
             */
-            ImageView imageView = new ImageView(context);
-            imageView.setImageDrawable(skins.getDrawable(pos));
+            ImageView imageView;
+            if (convertView instanceof ImageView) {
+                imageView = (ImageView) convertView;
+            } else {
+                imageView = new ImageView(context);
+                imageView.setScaleType(ImageView.ScaleType.CENTER_INSIDE);
+                imageView.setLayoutParams(new Gallery.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                        ViewGroup.LayoutParams.WRAP_CONTENT));
+                imageView.setBackgroundResource(itemBackground);
+            }
+
+            // The skin is decoded fitted to the gallery, the skin description is the tag
             imageView.setTag(desc[pos]);
-            imageView.setScaleType(ImageView.ScaleType.CENTER_INSIDE);
-            imageView.setLayoutParams(new Gallery.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
-                    ViewGroup.LayoutParams.WRAP_CONTENT));
-            imageView.setBackgroundResource(itemBackground);
+            thumbnails.loadThumbnail(imageView, skins.getResourceId(pos, 0), ThumbnailCache.TRANSFORM_NONE,
+                    parent.getWidth(), parent.getHeight());
             return imageView;
         }
     }
@@ -205,6 +220,7 @@ public class SkinChooser extends DialogPreference {
             editor.putInt(getKey(), selectedIndex);
             editor.commit();
         }
+        ThumbnailCache.getInstance(context.getResources()).dumpStats();
         super.onDialogClosed(positiveResult);
     }
 }
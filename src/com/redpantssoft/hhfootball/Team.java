@@ -1,8 +1,8 @@
 package com.redpantssoft.hhfootball;
 
-import java.util.Random;
+import java.nio.ByteBuffer;
 
-import android.os.Bundle;
+import com.redpantssoft.RandomSource;
 
 abstract class Team implements Iterable<Player>
 {
@@ -12,34 +12,37 @@ abstract class Team implements Iterable<Player>
 	public static final int ORIENTATION_LEFT=0;
 	public static final int ORIENTATION_RIGHT=1;
 	
+	private final FieldSize mField;
 	private int mSize;
 	protected Player[] mPlayers;
 	private int mSide;
 	private int mOrientation;
 	
-	private Random playerRand = new Random();
+	/**
+	 * Uniform grid index of the players, one cell per tile of the field.
+	 * Players of a team can briefly share a tile while being rearranged, so
+	 * each tile counts its players, and holds the one that arrived last
+	 */
+	private final byte[] mTileCounts;
+	private final Player[] mTilePlayers;
+	private int mOccupiedTiles=0;
 	
-	public Team(int size,int side,int orientation)
+	public Team(FieldSize field,int size,int side,int orientation)
 	{
+		mField=field;
 		mSize=size;
 		mSide=side;
 		mOrientation=orientation;
 		mPlayers=new Player[size];
-	}
-	
-	public Team(Bundle bundle)
-	{
-		mSize=bundle.getInt("mSize");
-		mSide=bundle.getInt("mSide");
-		mOrientation=bundle.getInt("mOrientation");
-		mPlayers=new Player[mSize];
+		mTileCounts=new byte[field.tiles()];
+		mTilePlayers=new Player[field.tiles()];
 	}
 	
 	public PlayerIterator iterator() { return new PlayerIterator(mPlayers,mSize); }
 	public Player getPlayer(int idx) { assert(idx< mSize); return mPlayers [idx]; }
-	public Player getRandomPlayer()
+	public Player getRandomPlayer(RandomSource rand)
 	{
-		return getPlayer(playerRand.nextInt(mSize));
+		return getPlayer(rand.nextInt(mSize));
 	}
 	
 	public Player findPlayer(Player player)
@@ -49,16 +52,69 @@ abstract class Team implements Iterable<Player>
 	
 	public Player findPlayer(int x, int y)
 	{
-		for (int i=0;i<size();i++)
+		int tile=mField.tileIndex(x,y);
+		return (tile < 0) ? null : mTilePlayers[tile];
+	}
+	
+	/**
+	 * @return true if a player of the team is on the tile at x,y
+	 */
+	public final boolean isOccupied(int x, int y)
+	{
+		int tile=mField.tileIndex(x,y);
+		return tile >= 0 && mTileCounts[tile] != 0;
+	}
+	
+	/**
+	 * @return true if a player of the team is on a tile, see FieldSize.tileIndex
+	 */
+	final boolean isTileOccupied(int tile) { return mTileCounts[tile] != 0; }
+	
+	/**
+	 * @return number of tiles the team is on
+	 */
+	final int occupiedTiles() { return mOccupiedTiles; }
+	
+	final FieldSize field() { return mField; }
+	
+	/**
+	 * Called by Player.set to keep the index current
+	 */
+	void playerMoved(Player player, int oldX, int oldY, int newX, int newY)
+	{
+		int oldTile=mField.tileIndex(oldX,oldY);
+		if (oldTile >= 0)
 		{
-			if ( mPlayers[i].equals(x,y) )
+			if (--mTileCounts[oldTile] == 0)
 			{
-				return mPlayers[i];
+				mTilePlayers[oldTile]=null;
+				mOccupiedTiles--;
 			}
+			else if (mTilePlayers[oldTile] == player)
+				mTilePlayers[oldTile]=findOther(player,oldX,oldY);
+		}
+		
+		int newTile=mField.tileIndex(newX,newY);
+		if (newTile >= 0)
+		{
+			if (mTileCounts[newTile]++ == 0)
+				mOccupiedTiles++;
+			mTilePlayers[newTile]=player;
 		}
-		return null;
 	}
 	
+	/**
+	 * @return a player other than player on the tile at x,y
+	 */
+	private Player findOther(Player player, int x, int y)
+	{
+		for (int i=0;i<mSize;i++)
+		{
+			if (mPlayers[i] != player && mPlayers[i].equals(x,y))
+				return mPlayers[i];
+		}
+		return null;
+	}
 	
 	public void setSide(int side) { mSide= side; }
 	public final int side() { return mSide; }
@@ -68,16 +124,33 @@ abstract class Team implements Iterable<Player>
 	
 	public final int size() { return mSize; }
 	
-	public Bundle serialize()
-	{
-		Bundle bundle=new Bundle();
-		bundle.putInt("mSize", mSize);
-		bundle.putInt("mSide", mSide);
-		bundle.putInt("mOrientation", mOrientation);
-		for (int i=0;i<size();i++)
-			bundle.putBundle("player"+i, mPlayers[i].serialize());
-			
-		return bundle;
+	/**
+	 * Snapshot layout: side, orientation and player count, a byte each,
+	 * followed by each player, see Player.writeSnapshot
+	 */
+	void writeSnapshot(ByteBuffer buf)
+	{
+		buf.put((byte)mSide);
+		buf.put((byte)mOrientation);
+		buf.put((byte)mSize);
+		for (int i=0;i<mSize;i++)
+			mPlayers[i].writeSnapshot(buf);
+	}
+	
+	/**
+	 * Restores the team from a snapshot. The index is rebuilt as the
+	 * players are placed
+	 */
+	void readSnapshot(ByteBuffer buf)
+	{
+		mSide=buf.get();
+		mOrientation=buf.get();
+		int size=buf.get();
+		if (size != mSize)
+			throw new IllegalArgumentException("Snapshot has "+size+" players, expected "+mSize);
+		
+		for (int i=0;i<mSize;i++)
+			mPlayers[i].readSnapshot(buf);
 	}
 	
 	protected abstract int[][] getPreSnapFormation();
@@ -90,81 +163,47 @@ class Offense extends Team
 	private static final int RECEIVER_X=1;
 	private static final int RECEIVER_Y=2;
 	
-	private static final int[][] preSnapFormation= {{2,1},{-1,-1},{-1,-1}}; 
-	private static final int[][] kickoffFormation= {{2,1},{1,0},{1,2} }; 
-	
-	public Offense(int side,int orientation)
+	public Offense(FieldSize field,int side,int orientation)
 	{
-		super(3,side,orientation);
+		super(field,3,side,orientation);
 		mPlayers[QUARTERBACK]=new Quarterback(this);
 		mPlayers[RECEIVER_X]=new Receiver(this);
 		mPlayers[RECEIVER_Y]=new Receiver(this);
 	}
 	
-	public Offense(Bundle bundle)
-	{
-		super(bundle);
-		mPlayers[QUARTERBACK]=new Quarterback(this,bundle.getBundle("player"+QUARTERBACK));
-		mPlayers[RECEIVER_X]=new Receiver(this,bundle.getBundle("player"+RECEIVER_X));
-		mPlayers[RECEIVER_Y]=new Receiver(this,bundle.getBundle("player"+RECEIVER_Y));
-	}
-	
 	public final Quarterback quarterback() { return (Quarterback)mPlayers[QUARTERBACK]; }
 	public final Receiver receiver() { return (Receiver)mPlayers[RECEIVER_X]; }
 	
 	protected int[][] getPreSnapFormation()
 	{
-		return preSnapFormation;
+		return field().offensePreSnapFormation();
 	}
 	
 	protected int[][] getKickoffFormation()
 	{
-		return kickoffFormation;
-	}
-	
-	public Bundle serialize()
-	{
-		Bundle bundle = super.serialize();
-		return bundle;
+		return field().offenseKickoffFormation();
 	}
 
 }
 
 class Defense extends Team
 {
-	private static final int[][] preSnapFormation= {{6,0},{6,1},{6,2},{4,1},{2,0},{0,2}}; 
-	private static final int[][] kickoffFormation= {{-1,-1},{-1,-1},{-1,-1},{-1,-1},{-1,-1},{-1,-1}}; 
-	
-	public Defense(int side,int orientation)
+	public Defense(FieldSize field,int side,int orientation)
 	{
-		super(6,side,orientation);
+		super(field,field.defenders(),side,orientation);
 		for ( int i=0;i<size();i++)
 			mPlayers[i]=new DefensivePlayer(this);
 	}
 	
-	public Defense(Bundle bundle)
-	{
-		super(bundle);
-		for ( int i=0;i<size();i++)
-			mPlayers[i]=new DefensivePlayer(this,bundle.getBundle("player"+i));
-		
-	}
-	
 	DefensivePlayer getDefender(int idx) { assert(idx < size()); return (DefensivePlayer) mPlayers[idx]; }
 	
 	protected int[][] getPreSnapFormation()
 	{
-		return preSnapFormation;
+		return field().defensePreSnapFormation();
 	}
 	
 	protected int[][] getKickoffFormation()
 	{
-		return kickoffFormation;
-	}
-	
-	public Bundle serialize()
-	{
-		Bundle bundle =  super.serialize();
-		return bundle;
+		return field().defenseKickoffFormation();
 	}
 }
\ No newline at end of file
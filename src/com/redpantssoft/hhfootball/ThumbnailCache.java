@@ -0,0 +1,277 @@
+package com.redpantssoft.hhfootball;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.ImageView;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Memory bounded cache of the gallery thumbnails shown by the
+ * {@link UniformChooser} and {@link SkinChooser} preferences.
+ * <p/>
+ * Thumbnails are keyed by drawable resource, transform and the size they are
+ * fitted into, and are kept in least recently used order until the cache
+ * exceeds its byte budget. A thumbnail that is not cached is decoded on a
+ * background thread while the view shows a placeholder. The cache itself is
+ * only touched from the UI thread, which also receives the decoded bitmaps.
+ * <p/>
+ * The cache is shared by the whole process, so reopening a chooser dialog
+ * finds its thumbnails already decoded.
+ */
+class ThumbnailCache {
+    // Logging Tag
+    private static final String TAG = "ThumbnailCache";
+
+    /**
+     * Transforms applied to a thumbnail after it is scaled
+     */
+    static final int TRANSFORM_NONE = 0;
+    static final int TRANSFORM_MIRROR = 1;
+
+    private static ThumbnailCache sInstance;
+
+    /**
+     * @return the process wide cache
+     */
+    static ThumbnailCache getInstance(Resources resources) {
+        if (sInstance == null) {
+            sInstance = new ThumbnailCache(resources, (int) (Runtime.getRuntime().maxMemory() / 8));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Identifies a thumbnail, a resource drawn with a transform and fitted
+     * into a size
+     */
+    private static final class Key {
+        final int resId;
+        final int transform;
+        final int width;
+        final int height;
+
+        Key(int resId, int transform, int width, int height) {
+            this.resId = resId;
+            this.transform = transform;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return resId == k.resId && transform == k.transform
+                    && width == k.width && height == k.height;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((resId * 31 + transform) * 31 + width) * 31 + height;
+        }
+    }
+
+    private final Resources resources;
+
+    /**
+     * Maximum number of bytes of bitmap held by the cache
+     */
+    private final int maxBytes;
+    private int bytes = 0;
+
+    /**
+     * Cached thumbnails, in access order, least recently used first
+     */
+    private final LinkedHashMap<Key, Bitmap> thumbnails = new LinkedHashMap<Key, Bitmap>(16, 0.75f, true);
+
+    /**
+     * Thumbnail each view is waiting on. A recycled view is moved to a new
+     * key, so a decode that completes for its previous key is ignored.
+     */
+    private final WeakHashMap<ImageView, Key> pendingViews = new WeakHashMap<ImageView, Key>();
+
+    /**
+     * Thumbnails being decoded
+     */
+    private final HashSet<Key> decoding = new HashSet<Key>();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final Drawable placeholder = new ColorDrawable(0);
+
+    private int hits = 0;
+    private int misses = 0;
+
+    /**
+     * @param resources resources to decode the drawables from
+     * @param maxBytes  maximum number of bytes of bitmap held by the cache
+     */
+    private ThumbnailCache(Resources resources, int maxBytes) {
+        this.resources = resources;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Sets the thumbnail of a drawable resource as the image of a view. If it
+     * is not cached, the view shows a placeholder until it has been decoded.
+     * Drawables are never scaled up.
+     *
+     * @param view      view to show the thumbnail in
+     * @param resId     resource ID of the drawable
+     * @param transform one of the TRANSFORM_ constants
+     * @param width     width to fit the thumbnail into, 0 for no limit
+     * @param height    height to fit the thumbnail into, 0 for no limit
+     */
+    void loadThumbnail(ImageView view, int resId, int transform, int width, int height) {
+        Key key = new Key(resId, transform, width, height);
+        Bitmap bm = thumbnails.get(key);
+        if (bm != null) {
+            hits++;
+            pendingViews.remove(view);
+            view.setImageBitmap(bm);
+            return;
+        }
+
+        misses++;
+        pendingViews.put(view, key);
+        view.setImageDrawable(placeholder);
+        if (decoding.add(key))
+            executor.execute(new DecodeTask(key));
+    }
+
+    /**
+     * Routine that dumps the cache usage to the log
+     */
+    void dumpStats() {
+        Log.i(TAG, "thumbnails: " + thumbnails.size()
+                + ", bytes: " + bytes + " of " + maxBytes
+                + ", hits: " + hits
+                + ", misses: " + misses);
+    }
+
+    /**
+     * Called on the UI thread with a decoded thumbnail
+     */
+    private void onDecoded(Key key, Bitmap bm) {
+        decoding.remove(key);
+        if (bm == null)
+            return;
+
+        Bitmap old = thumbnails.put(key, bm);
+        bytes += bm.getRowBytes() * bm.getHeight();
+        if (old != null)
+            bytes -= old.getRowBytes() * old.getHeight();
+        trim();
+
+        for (Map.Entry<ImageView, Key> entry : pendingViews.entrySet()) {
+            if (key.equals(entry.getValue()))
+                entry.getKey().setImageBitmap(bm);
+        }
+        pendingViews.values().removeAll(Collections.singleton(key));
+    }
+
+    /**
+     * Evicts the least recently used thumbnails until the cache is in budget.
+     * Evicted bitmaps are not recycled, a view may still be showing them.
+     */
+    private void trim() {
+        Iterator<Bitmap> it = thumbnails.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Bitmap bm = it.next();
+            bytes -= bm.getRowBytes() * bm.getHeight();
+            it.remove();
+        }
+    }
+
+    /**
+     * Decodes a thumbnail on the background thread and hands it to the UI thread
+     */
+    private final class DecodeTask implements Runnable {
+        private final Key key;
+
+        DecodeTask(Key key) {
+            this.key = key;
+        }
+
+        public void run() {
+            Bitmap decoded = null;
+            try {
+                decoded = decode(key);
+            } catch (OutOfMemoryError e) {
+                Log.w(TAG, "Out of memory decoding thumbnail " + key.resId);
+            }
+
+            final Bitmap bm = decoded;
+            handler.post(new Runnable() {
+                public void run() {
+                    onDecoded(key, bm);
+                }
+            });
+        }
+    }
+
+    /**
+     * Decodes a drawable resource, subsampled as close to the fitted size as
+     * possible, then scales and transforms it into the thumbnail in one pass.
+     */
+    private Bitmap decode(Key key) {
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, key.resId, opts);
+
+        Bitmap src;
+        if (opts.outWidth > 0 && opts.outHeight > 0) {
+            float fit = fitScale(opts.outWidth, opts.outHeight, key);
+            opts.inJustDecodeBounds = false;
+            opts.inSampleSize = 1;
+            while (fit * opts.inSampleSize * 2 <= 1)
+                opts.inSampleSize *= 2;
+            src = BitmapFactory.decodeResource(resources, key.resId, opts);
+        } else {
+            // Not a bitmap resource, draw it at its intrinsic size
+            Drawable d = resources.getDrawable(key.resId);
+            src = Bitmap.createBitmap(Math.max(d.getIntrinsicWidth(), 1),
+                    Math.max(d.getIntrinsicHeight(), 1), Bitmap.Config.ARGB_8888);
+            d.setBounds(0, 0, src.getWidth(), src.getHeight());
+            d.draw(new Canvas(src));
+        }
+        if (src == null)
+            return null;
+
+        float scale = fitScale(src.getWidth(), src.getHeight(), key);
+        if (scale == 1 && key.transform == TRANSFORM_NONE)
+            return src;
+
+        Matrix matrix = new Matrix();
+        matrix.setScale(key.transform == TRANSFORM_MIRROR ? -scale : scale, scale);
+        Bitmap bm = Bitmap.createBitmap(src, 0, 0, src.getWidth(), src.getHeight(), matrix, true);
+        if (bm != src)
+            src.recycle();
+        return bm;
+    }
+
+    /**
+     * @return scale that fits an image into the size of a key, at most 1
+     */
+    private static float fitScale(int width, int height, Key key) {
+        float scale = 1;
+        if (key.width > 0)
+            scale = Math.min(scale, (float) key.width / width);
+        if (key.height > 0)
+            scale = Math.min(scale, (float) key.height / height);
+        return scale;
+    }
+}
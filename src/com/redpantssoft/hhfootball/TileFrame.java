@@ -0,0 +1,63 @@
+package com.redpantssoft.hhfootball;
+
+/**
+ * TileFrame: a copy of the tile indexes of a {@link TileGrid}, taken when the
+ * game presents a frame. Frames are handed from the game loop to the render
+ * thread, which can draw one while the next is being composed. A frame is
+ * reused once the render thread hands it back, it is only written by the
+ * thread that holds it.
+ */
+final class TileFrame {
+    /**
+     * Represents the dimensions of the field tile grid
+     */
+    private int mXTileCount;
+    private int mYTileCount;
+
+    /**
+     * Tile index of each location, column by column
+     */
+    private int[] mTiles = new int[0];
+
+    /**
+     * Constructor, copies the current tiles of the grid
+     *
+     * @param grid grid to copy
+     */
+    TileFrame(TileGrid grid) {
+        copyFrom(grid);
+    }
+
+    /**
+     * Copies the current tiles of the grid, the frame only allocates if the
+     * grid is bigger than any it copied before
+     *
+     * @param grid grid to copy
+     */
+    void copyFrom(TileGrid grid) {
+        mXTileCount = grid.getFieldLength();
+        mYTileCount = grid.getFieldWidth();
+        if (mTiles.length < mXTileCount * mYTileCount)
+            mTiles = new int[mXTileCount * mYTileCount];
+        for (int x = 0; x < mXTileCount; x++) {
+            for (int y = 0; y < mYTileCount; y++) {
+                mTiles[x * mYTileCount + y] = grid.getTile(x, y);
+            }
+        }
+    }
+
+    public final int getFieldLength() {
+        return mXTileCount;
+    }
+
+    public final int getFieldWidth() {
+        return mYTileCount;
+    }
+
+    /**
+     * @return tile index drawn at the given x/y coordinates, 0 if empty
+     */
+    public final int getTile(int x, int y) {
+        return mTiles[x * mYTileCount + y];
+    }
+}
@@ -0,0 +1,136 @@
+package com.redpantssoft.hhfootball;
+
+import com.redpantssoft.Coordinate;
+
+/**
+ * TileGrid: the grid of tile indexes drawn by the FieldView. Each location
+ * of the field of play holds the index of the tile image drawn there, 0
+ * meaning the location is empty. Kept free of any android dependencies so
+ * that the frame path can be exercised off the device.
+ *
+ * The grid also remembers the tile last drawn at each location, so the view
+ * can find the locations that changed since the last frame and redraw only
+ * those.
+ */
+class TileGrid {
+    /**
+     * Represents the dimensions of the field tile grid
+     */
+    private final int mXTileCount;
+    private final int mYTileCount;
+
+    /**
+     * A two-dimensional array of integers in which the number represents the
+     * index of the tile image that should be drawn and that corresponding coordinate on the field
+     */
+    private final int[][] mTiles;
+
+    /**
+     * The tile index at each location the last time it was drawn
+     */
+    private final int[][] mDrawnTiles;
+
+    /**
+     * Constructor
+     *
+     * @param xTileCount number of tiles long the field of play is
+     * @param yTileCount number of tiles wide the field of play is
+     */
+    TileGrid(int xTileCount, int yTileCount) {
+        mXTileCount = xTileCount;
+        mYTileCount = yTileCount;
+        mTiles = new int[xTileCount][yTileCount];
+        mDrawnTiles = new int[xTileCount][yTileCount];
+    }
+
+    public final int getFieldLength() {
+        return mXTileCount;
+    }
+
+    public final int getFieldWidth() {
+        return mYTileCount;
+    }
+
+    /**
+     * Clears the field of play by setting each tile in the grid to empty
+     */
+    public void clear() {
+        for (int x = 0; x < mXTileCount; x++) {
+            for (int y = 0; y < mYTileCount; y++) {
+                mTiles[x][y] = 0;
+            }
+        }
+    }
+
+    /**
+     * Sets the tile index to be drawn at the given x/y coordinates
+     */
+    public void setTile(int tileindex, int x, int y) {
+        mTiles[x][y] = tileindex;
+    }
+
+    /**
+     * @return tile index drawn at the given x/y coordinates, 0 if empty
+     */
+    public final int getTile(int x, int y) {
+        return mTiles[x][y];
+    }
+
+    /**
+     * @return true if the tile at the given x/y coordinates changed since it was last drawn
+     */
+    public final boolean isDirty(int x, int y) {
+        return mTiles[x][y] != mDrawnTiles[x][y];
+    }
+
+    /**
+     * @return true if any tile changed since it was last drawn
+     */
+    public boolean isDirty() {
+        for (int x = 0; x < mXTileCount; x++) {
+            for (int y = 0; y < mYTileCount; y++) {
+                if (mTiles[x][y] != mDrawnTiles[x][y])
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records that the tile at the given x/y coordinates has been drawn
+     */
+    public void setDrawn(int x, int y) {
+        mDrawnTiles[x][y] = mTiles[x][y];
+    }
+
+    /**
+     * Records that every tile has been drawn
+     */
+    public void setAllDrawn() {
+        for (int x = 0; x < mXTileCount; x++) {
+            for (int y = 0; y < mYTileCount; y++) {
+                mDrawnTiles[x][y] = mTiles[x][y];
+            }
+        }
+    }
+
+    /**
+     * Sets the tile for every player of the team that is on the field. Flashing
+     * players are only drawn when flash is set.
+     *
+     * @param team      team to draw
+     * @param tileindex tile index to draw the players with
+     * @param flash     current phase of the flash animation
+     */
+    public void setTeamTiles(Team team, int tileindex, boolean flash) {
+        for (int i = 0; i < team.size(); i++) {
+            Player player = team.getPlayer(i);
+            if (player.isFlashing() && !flash)
+                continue;
+
+            Coordinate pos = player.pos();
+            if (pos.x >= 0 && pos.x < mXTileCount && pos.y >= 0 && pos.y < mYTileCount)
+                mTiles[pos.x][pos.y] = tileindex;
+        }
+    }
+}
@@ -4,10 +4,6 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Matrix;
-import android.graphics.drawable.Drawable;
 import android.preference.DialogPreference;
 import android.util.AttributeSet;
 import android.view.View;
@@ -84,10 +80,15 @@ public class UniformChooser extends DialogPreference {
         private final String[] desc;
 
         /**
-         * Transformation matrix for the uniform drawables. This is applied
-         * before returning the drawable to the gallery view
+         * Transform applied to the uniform thumbnails, one of the
+         * ThumbnailCache.TRANSFORM_ constants
          */
-        private final Matrix transform;
+        private final int transform;
+
+        /**
+         * Shared cache of the decoded thumbnails
+         */
+        private final ThumbnailCache thumbnails;
 
         /**
          * @param context       context of the owning activity
@@ -95,16 +96,16 @@ public class UniformChooser extends DialogPreference {
          * @param descResId     resource id of the string array of uniform descriptions
          */
         public UniformAdapter(Context context, int drawableResId, int descResId) {
-            this(context, drawableResId, descResId, new Matrix());
+            this(context, drawableResId, descResId, ThumbnailCache.TRANSFORM_NONE);
         }
 
         /**
          * @param context       context of the owning activity
          * @param drawableResId resource ID of the typed array of uniform drawables
          * @param descResId     resource id of the string array of uniform descriptions
-         * @param transform     transformation matrix
+         * @param transform     transform of the thumbnails, one of the ThumbnailCache.TRANSFORM_ constants
          */
-        public UniformAdapter(Context context, int drawableResId, int descResId, Matrix transform) {
+        public UniformAdapter(Context context, int drawableResId, int descResId, int transform) {
             this.context = context;
             this.transform = transform;
 
@@ -116,7 +117,7 @@ public class UniformChooser extends DialogPreference {
             Resources r = context.getResources();
             uniforms = r.obtainTypedArray(drawableResId);
             desc = r.getStringArray(descResId);
-
+            thumbnails = ThumbnailCache.getInstance(r);
         }
 
 
@@ -163,35 +164,27 @@ public class UniformChooser extends DialogPreference {
          */
         @Override
         public View getView(int pos, View convertView, ViewGroup parent) {
-
             /*
-            This needs to manually draw the drawable into a bitmap so that
-            a transformation matrix can be applied. Otherwise, the
-            ImageView.setImageDrawable method would just take care of it.
-            Get the drawable, for the specified position, from the drawable array
+            Recycle the view the gallery hands back if there is one, otherwise create
+            a new image view. The image should be centered and the view should wrap
+            to the image size
             */
+            ImageView imageView;
+            if (convertView instanceof ImageView) {
+                imageView = (ImageView) convertView;
+            } else {
+                imageView = new ImageView(context);
+                imageView.setScaleType(ImageView.ScaleType.CENTER_INSIDE);
+                imageView.setLayoutParams(new Gallery.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                        ViewGroup.LayoutParams.WRAP_CONTENT));
+                imageView.setBackgroundResource(itemBackgroundResId);
+            }
 
-            Drawable d = uniforms.getDrawable(pos);
-            // Create a new bitmap that corresponds to the dimensions of the drawable
-            Bitmap bm = Bitmap.createBitmap(d.getIntrinsicWidth(), d.getIntrinsicHeight(), Bitmap.Config.ARGB_8888);
-            // Create a new canvas to draw into the bitmap
-            Canvas canvas = new Canvas(bm);
-            // Draw to the canvas using all the available space
-            d.setBounds(0, 0, d.getIntrinsicWidth(), d.getIntrinsicHeight());
-            d.draw(canvas);
-
-            // Create new bitmap that uses the transformation matrix on the existing bitmap
-            bm = Bitmap.createBitmap(bm, 0, 0, bm.getWidth(), bm.getHeight(), transform, true);
-
-            // Create a new image view and set the bitmap as its image and the uniform description
-            //  as its tag. The image should be centered and the view should wrap to the image size
-            ImageView imageView = new ImageView(context);
-            imageView.setImageBitmap(bm);
+            // The thumbnail is transformed and fitted to the gallery height as it is
+            //  decoded, the uniform description is the tag
             imageView.setTag(desc[pos]);
-            imageView.setScaleType(ImageView.ScaleType.CENTER_INSIDE);
-            imageView.setLayoutParams(new Gallery.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
-                    ViewGroup.LayoutParams.WRAP_CONTENT));
-            imageView.setBackgroundResource(itemBackgroundResId);
+            thumbnails.loadThumbnail(imageView, uniforms.getResourceId(pos, 0), transform,
+                    0, parent.getHeight());
 
             return imageView;
         }
@@ -222,11 +215,9 @@ public class UniformChooser extends DialogPreference {
 
         // Bind the Home UniformAdapter and setup callbacks for item selection
         Gallery homeGallery = (Gallery) view.findViewById(R.id.home_uniform_gallery);
-        // We want to mirror image the views in the home gallery, so make a vertical flip
-        //  transformation matrix
-        Matrix matrix = new Matrix();
-        matrix.preScale(-1, 1);
-        homeGallery.setAdapter(new UniformAdapter(context, R.array.home_uniform, R.array.uniform_description, matrix));
+        // We want to mirror image the views in the home gallery
+        homeGallery.setAdapter(new UniformAdapter(context, R.array.home_uniform, R.array.uniform_description,
+                ThumbnailCache.TRANSFORM_MIRROR));
         homeGallery.setOnItemSelectedListener(new OnItemSelectedListener() {
              @Override public void onItemSelected(AdapterView<?> parent, View view, int pos, long id) {
                 UniformChooser.this.onHomeItemSelected(parent, view, pos, id);
@@ -306,6 +297,7 @@ public class UniformChooser extends DialogPreference {
             editor.putInt(getKey(), setting);
             editor.commit();
         }
+        ThumbnailCache.getInstance(context.getResources()).dumpStats();
         super.onDialogClosed(positiveResult);
     }
 }
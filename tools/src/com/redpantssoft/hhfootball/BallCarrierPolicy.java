@@ -0,0 +1,217 @@
+package com.redpantssoft.hhfootball;
+
+import com.redpantssoft.hhfootball.GameEngine.Input;
+
+import java.util.Random;
+
+/**
+ * Scripted stand-ins for the person holding the controller, used by
+ * {@link DifficultyCalibration} to play games against the engine's defense.
+ * <p/>
+ * All policies snap the ball on their own, kick a field goal on fourth down when
+ * the end zone is within {@link #FIELD_GOAL_RANGE} yards and punt on fourth down
+ * otherwise. They differ in how they move the ball carrier once the play is live.
+ */
+enum BallCarrierPolicy
+{
+	/**
+	 * Runs straight for the end zone, changing lanes to get around defenders
+	 */
+	RUNNER
+	{
+		@Override
+		Input play(GameEngine engine, Random rand)
+		{
+			return run(engine);
+		}
+	},
+
+	/**
+	 * Throws to the receiver as soon as no defender stands between them to
+	 * intercept the pass, and now and then throws in to coverage anyway,
+	 * runs otherwise
+	 */
+	PASSER
+	{
+		@Override
+		Input play(GameEngine engine, Random rand)
+		{
+			if (canPass(engine,false) ||
+					(rand.nextInt(100) < COVERED_PASS_PERCENT && canPass(engine,true)))
+				return Input.PASS;
+
+			return run(engine);
+		}
+	},
+
+	/**
+	 * Presses buttons at random, this is the easiest opponent the defense will see
+	 */
+	MASHER
+	{
+		@Override
+		Input play(GameEngine engine, Random rand)
+		{
+			return Input.values()[rand.nextInt(Input.values().length)];
+		}
+
+		@Override
+		Input nextInput(GameEngine engine, Random rand)
+		{
+			return play(engine, rand);
+		}
+	};
+
+	/**
+	 * Longest field goal, in yards, that the policies will attempt
+	 */
+	static final int FIELD_GOAL_RANGE=35;
+
+	/**
+	 * Chance, at each input, that the passer throws to a receiver a defender
+	 * could intercept. The defense lines up between the quarterback and the
+	 * receiver, so a passer that waits for a clear lane rarely throws at all.
+	 */
+	static final int COVERED_PASS_PERCENT=10;
+
+	/**
+	 * Chooses the controller input while the play is live
+	 *
+	 * @param engine  engine running the game
+	 * @param rand  random source for the policy's own decisions
+	 * @return input to apply
+	 */
+	abstract Input play(GameEngine engine, Random rand);
+
+	/**
+	 * Chooses the next controller input for the current state of the game
+	 *
+	 * @param engine  engine running the game
+	 * @param rand  random source for the policy's own decisions
+	 * @return input to apply, or null if there is nothing to do
+	 */
+	Input nextInput(GameEngine engine, Random rand)
+	{
+		switch (engine.state())
+		{
+			case PRE_SNAP:
+				if (isFourthDown(engine) && yardsToGoal(engine) <= FIELD_GOAL_RANGE)
+					return Input.KICK;
+				return backward(engine);
+
+			case PLAY_LIVE:
+				if (isFourthDown(engine) && engine.gameState() == GameEngine.GameState.DRIVE_IN_PROGRESS)
+					return Input.KICK;
+				return play(engine, rand);
+
+			case KICK_RECEIVED:
+				return forward(engine);
+
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Chooses where to stop the kick meter. People are not precise with the meter,
+	 * so the power is uniformly distributed over the meter's range.
+	 */
+	int kickPower(int minPower, int maxPower, Random rand)
+	{
+		return minPower + rand.nextInt(maxPower - minPower + 1);
+	}
+
+	private static boolean isFourthDown(GameEngine engine)
+	{
+		return engine.seriesDown() == 4;
+	}
+
+	private static int direction(GameEngine engine)
+	{
+		return (engine.offense().orientation() == Team.ORIENTATION_RIGHT)?1:-1;
+	}
+
+	private static int yardsToGoal(GameEngine engine)
+	{
+		return (engine.offense().orientation() == Team.ORIENTATION_RIGHT)?
+				100-engine.fieldPos() : engine.fieldPos();
+	}
+
+	private static Input forward(GameEngine engine)
+	{
+		return (engine.offense().orientation() == Team.ORIENTATION_RIGHT)?Input.RIGHT:Input.LEFT;
+	}
+
+	private static Input backward(GameEngine engine)
+	{
+		return (engine.offense().orientation() == Team.ORIENTATION_RIGHT)?Input.LEFT:Input.RIGHT;
+	}
+
+	/**
+	 * @return true if the tile at x,y is on the field and not occupied by a defender
+	 */
+	private static boolean isOpen(GameEngine engine, int x, int y)
+	{
+		if (y < 0 || y >= engine.getFieldWidth())
+			return false;
+
+		// The field scrolls when the ball carrier runs off the end of it
+		x=(x + engine.getFieldLength()) % engine.getFieldLength();
+		return engine.defense().findPlayer(x,y) == null;
+	}
+
+	/**
+	 * Moves forward if the way is clear, otherwise sidesteps into a lane that is
+	 */
+	static Input run(GameEngine engine)
+	{
+		Player ballCarrier=engine.offense().quarterback();
+		int x=ballCarrier.pos().x;
+		int y=ballCarrier.pos().y;
+		int dx=direction(engine);
+
+		if (isOpen(engine,x+dx,y))
+			return forward(engine);
+
+		if (isOpen(engine,x,y-1) && isOpen(engine,x+dx,y-1))
+			return Input.UP;
+		if (isOpen(engine,x,y+1) && isOpen(engine,x+dx,y+1))
+			return Input.DOWN;
+		if (isOpen(engine,x,y-1))
+			return Input.UP;
+		if (isOpen(engine,x,y+1))
+			return Input.DOWN;
+
+		return forward(engine);
+	}
+
+	/**
+	 * @param covered  whether to throw even if a defender could intercept the pass
+	 * @return true if the engine will take a pass and the receiver is in the
+	 * 		ball carrier's lane, with no defender in between who would intercept
+	 * 		it unless covered is set
+	 */
+	static boolean canPass(GameEngine engine, boolean covered)
+	{
+		Player ballCarrier=engine.offense().quarterback();
+		Player receiver=engine.offense().receiver();
+
+		if (!receiver.isVisibile() || receiver.pos().y != ballCarrier.pos().y)
+			return false;
+
+		// Passes are only allowed from behind the line of scrimmage
+		int dx=direction(engine);
+		if ((engine.fieldPos() - engine.lineOfScrimmage())*dx > 0)
+			return false;
+
+		for (int x=ballCarrier.pos().x+dx; x != receiver.pos().x; x+=dx)
+		{
+			if (x < 0 || x >= engine.getFieldLength())
+				return false;
+			if (!covered && engine.defense().findPlayer(x,ballCarrier.pos().y) != null &&
+					engine.interceptsPass(x))
+				return false;
+		}
+		return true;
+	}
+}
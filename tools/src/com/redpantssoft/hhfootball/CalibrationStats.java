@@ -0,0 +1,187 @@
+package com.redpantssoft.hhfootball;
+
+/**
+ * Accumulates the results of simulated games for {@link DifficultyCalibration}.
+ * <p/>
+ * Each instance is filled in by a single thread and instances are combined
+ * with {@link #merge(CalibrationStats)}, so no synchronization is needed.
+ */
+class CalibrationStats
+{
+	/**
+	 * Outcomes that end a possession
+	 */
+	enum DriveOutcome
+	{
+		TOUCHDOWN,
+		FIELD_GOAL,
+		MISSED_FIELD_GOAL,
+		PUNT,
+		INTERCEPTION,
+		TURNOVER_ON_DOWNS,
+		SAFETY;
+	}
+
+	/**
+	 * Initial size of the points histogram, it grows to fit the highest score
+	 */
+	private static final int POINTS_BUCKETS=256;
+
+	private long games=0;
+	private long ticks=0;
+	private long points=0;
+	private double pointsSquared=0;
+	private long[] pointsHistogram=new long[POINTS_BUCKETS];
+	private long margin=0;
+	private double marginSquared=0;
+
+	private final long[] drives=new long[DriveOutcome.values().length];
+	private long plays=0;
+	private long tackles=0;
+	private long fieldGoalAttempts=0;
+	private long fieldGoals=0;
+
+	void addGame(int homeScore, int visitorScore, long gameTicks)
+	{
+		int total=homeScore+visitorScore;
+		int diff=Math.abs(homeScore-visitorScore);
+
+		games++;
+		ticks+=gameTicks;
+		points+=total;
+		pointsSquared+=(double)total*total;
+		growHistogram(total+1);
+		pointsHistogram[total]++;
+		margin+=diff;
+		marginSquared+=(double)diff*diff;
+	}
+
+	void addDrive(DriveOutcome outcome) { drives[outcome.ordinal()]++; }
+	void addPlay() { plays++; }
+	void addTackle() { tackles++; }
+	void addFieldGoalAttempt() { fieldGoalAttempts++; }
+	void addFieldGoal() { fieldGoals++; }
+
+	/**
+	 * Adds the results of another set of games to this one
+	 *
+	 * @return this
+	 */
+	CalibrationStats merge(CalibrationStats other)
+	{
+		games+=other.games;
+		ticks+=other.ticks;
+		points+=other.points;
+		pointsSquared+=other.pointsSquared;
+		growHistogram(other.pointsHistogram.length);
+		for (int i=0;i<other.pointsHistogram.length;i++)
+			pointsHistogram[i]+=other.pointsHistogram[i];
+		margin+=other.margin;
+		marginSquared+=other.marginSquared;
+		for (int i=0;i<drives.length;i++)
+			drives[i]+=other.drives[i];
+		plays+=other.plays;
+		tackles+=other.tackles;
+		fieldGoalAttempts+=other.fieldGoalAttempts;
+		fieldGoals+=other.fieldGoals;
+		return this;
+	}
+
+	final long games() { return games; }
+	final long ticks() { return ticks; }
+
+	/**
+	 * @return total drives, of any outcome
+	 */
+	final long drives()
+	{
+		long total=0;
+		for (long count : drives)
+			total+=count;
+		return total;
+	}
+
+	/**
+	 * @return mean combined points per game and the half width of its 95% confidence interval
+	 */
+	double[] pointsPerGame() { return mean(points,pointsSquared,games); }
+
+	/**
+	 * @return mean winning margin and the half width of its 95% confidence interval
+	 */
+	double[] winningMargin() { return mean(margin,marginSquared,games); }
+
+	/**
+	 * @param percentile  percentile, between 0 and 100
+	 * @return combined points per game at the specified percentile
+	 */
+	int pointsPercentile(int percentile)
+	{
+		long rank=(long)Math.ceil(games*percentile/100.0);
+		long count=0;
+		for (int i=0;i<pointsHistogram.length;i++)
+		{
+			count+=pointsHistogram[i];
+			if (count >= rank && count > 0)
+				return i;
+		}
+		return 0;
+	}
+
+	private void growHistogram(int buckets)
+	{
+		if (buckets <= pointsHistogram.length)
+			return;
+
+		long[] histogram=new long[Math.max(buckets,pointsHistogram.length*2)];
+		System.arraycopy(pointsHistogram,0,histogram,0,pointsHistogram.length);
+		pointsHistogram=histogram;
+	}
+
+	/**
+	 * @return fraction of drives with the outcome, and the bounds of its 95% confidence interval
+	 */
+	double[] driveRate(DriveOutcome outcome) { return wilson(drives[outcome.ordinal()],drives()); }
+
+	/**
+	 * @return fraction of plays ending in a tackle, and the bounds of its 95% confidence interval
+	 */
+	double[] tackleRate() { return wilson(tackles,plays); }
+
+	/**
+	 * @return fraction of field goal attempts that are good, and the bounds of its 95% confidence interval
+	 */
+	double[] fieldGoalRate() { return wilson(fieldGoals,fieldGoalAttempts); }
+
+	final long fieldGoalAttempts() { return fieldGoalAttempts; }
+
+	/**
+	 * z value for a two sided 95% confidence interval
+	 */
+	private static final double Z=1.96;
+
+	private static double[] mean(double sum, double sumSquared, long n)
+	{
+		if (n == 0)
+			return new double[] {0,0};
+
+		double mean=sum/n;
+		double variance=(n > 1) ? (sumSquared - n*mean*mean)/(n-1) : 0;
+		return new double[] {mean, Z*Math.sqrt(Math.max(variance,0)/n)};
+	}
+
+	/**
+	 * Wilson score interval, which behaves with small counts and rates near 0 or 1
+	 */
+	private static double[] wilson(long hits, long n)
+	{
+		if (n == 0)
+			return new double[] {0,0,0};
+
+		double p=(double)hits/n;
+		double denom=1+Z*Z/n;
+		double centre=(p + Z*Z/(2*n))/denom;
+		double halfWidth=Z*Math.sqrt(p*(1-p)/n + Z*Z/(4.0*n*n))/denom;
+		return new double[] {p, Math.max(0,centre-halfWidth), Math.min(1,centre+halfWidth)};
+	}
+}
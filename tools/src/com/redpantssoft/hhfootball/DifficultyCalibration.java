@@ -0,0 +1,324 @@
+package com.redpantssoft.hhfootball;
+
+import com.redpantssoft.hhfootball.CalibrationStats.DriveOutcome;
+import com.redpantssoft.hhfootball.GameClock.Period;
+import com.redpantssoft.hhfootball.GameEngine.Difficulty;
+import com.redpantssoft.hhfootball.GameEngine.Info;
+import com.redpantssoft.hhfootball.GameEngine.Input;
+import com.redpantssoft.hhfootball.GameEngine.Sfx;
+import com.redpantssoft.hhfootball.GameEngine.State;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Monte Carlo calibration of the {@link Difficulty} levels.
+ * <p/>
+ * Plays complete games on the headless {@link GameEngine} for every combination
+ * of difficulty and {@link BallCarrierPolicy}, spread across all cores with a
+ * ForkJoin pool, and reports the score distribution, drive outcomes, tackle rate
+ * and field goal percentage, with 95% confidence intervals, for each.
+ * <p/>
+ * This runs on a desktop JVM, not on the device. From the project root:
+ * <pre>
+ *   javac -d out/tools src/com/redpantssoft/{Coordinate,Metrics,Percentage,RandomSource,TimerWheel}.java \
+ *       src/com/redpantssoft/hhfootball/{GameEngine,GameClock,Team,Player,InputLog,DefenseSearch,DistanceField,FieldSize}.java \
+ *       tools/src/com/redpantssoft/hhfootball/*.java
+ *   java -cp out/tools com.redpantssoft.hhfootball.DifficultyCalibration [--games N] [--minutes N]
+ * </pre>
+ * The games are per difficulty and policy, the minutes are the length of a
+ * period. The two can also be given as bare numbers, in that order.
+ */
+public class DifficultyCalibration
+{
+	/**
+	 * Default number of games played per difficulty and policy, the whole run
+	 * takes under a minute on a single core. Pass a larger --games for
+	 * narrower confidence intervals
+	 */
+	private static final int DEFAULT_GAMES=100;
+
+	/**
+	 * Default period length, matches the default setting
+	 */
+	private static final int DEFAULT_PERIOD_LENGTH_MINS=4;
+
+	/**
+	 * Policies press a button every INPUT_INTERVAL_TICKS engine ticks, 200 ms
+	 * is roughly how quickly someone taps the direction pad
+	 */
+	private static final int INPUT_INTERVAL_TICKS=4;
+
+	/**
+	 * Guards against a policy that never snaps the ball, which would stall the
+	 * clock and the game forever
+	 */
+	private static final long MAX_TICKS_PER_GAME=50000000L;
+
+	/**
+	 * Games are played sequentially in batches of this size, larger ranges are split
+	 */
+	private static final int GAMES_PER_TASK=32;
+
+	/**
+	 * Plays a single game and records the events into a CalibrationStats
+	 */
+	static class SimulatedGame implements GameEngine.GameEventHandler
+	{
+		private final CalibrationStats stats;
+		private final BallCarrierPolicy policy;
+		private final Random rand;
+		private GameEngine engine;
+		private int minPower;
+		private int maxPower;
+
+		SimulatedGame(CalibrationStats stats, BallCarrierPolicy policy, Random rand)
+		{
+			this.stats=stats;
+			this.policy=policy;
+			this.rand=rand;
+		}
+
+		void play(Difficulty difficulty, int periodLengthMins)
+		{
+			engine=new GameEngine(this,difficulty,periodLengthMins,rand.nextLong());
+			engine.start();
+
+			long ticks=0;
+			while (!engine.isGameOver())
+			{
+				if (++ticks > MAX_TICKS_PER_GAME)
+					throw new IllegalStateException(policy+" stalled the game in state "+engine.state());
+
+				engine.tick();
+				if (ticks % INPUT_INTERVAL_TICKS != 0)
+					continue;
+
+				if (engine.isKickMeterEnabled())
+				{
+					countKick();
+					engine.kick(policy.kickPower(minPower,maxPower,rand));
+					continue;
+				}
+
+				Input input=policy.nextInput(engine,rand);
+				if (input != null)
+				{
+					State before=engine.state();
+					engine.step(input);
+					countPlay(before,engine.state());
+				}
+			}
+
+			stats.addGame(engine.homeScore(),engine.visitorScore(),ticks);
+		}
+
+		/**
+		 * The game state is only final once the meter is up, so kicks are counted
+		 * when the meter is stopped rather than when it is enabled
+		 */
+		private void countKick()
+		{
+			switch (engine.gameState())
+			{
+				case PUNT: stats.addDrive(DriveOutcome.PUNT); break;
+				case FIELD_GOAL_ATTEMPT: stats.addFieldGoalAttempt(); break;
+				default: break;
+			}
+		}
+
+		private void countPlay(State before, State after)
+		{
+			if (before == after)
+				return;
+
+			if ((before == State.PRE_SNAP && engine.gameState() != GameEngine.GameState.FIELD_GOAL_ATTEMPT) ||
+					before == State.KICK_RECEIVED)
+				stats.addPlay();
+		}
+
+		public void playSfx(Sfx sfx, boolean loop)
+		{
+			if (sfx == Sfx.TACKLE)
+				stats.addTackle();
+		}
+
+		public void showInfo(Info info, boolean autoClear)
+		{
+			switch (info)
+			{
+				case TOUCHDOWN: stats.addDrive(DriveOutcome.TOUCHDOWN); break;
+				case FIELD_GOAL_MAKE:
+					stats.addFieldGoal();
+					stats.addDrive(DriveOutcome.FIELD_GOAL);
+					break;
+				case FIELD_GOAL_MISS: stats.addDrive(DriveOutcome.MISSED_FIELD_GOAL); break;
+				case INTERCEPTION: stats.addDrive(DriveOutcome.INTERCEPTION); break;
+				case TURNOVER_ON_DOWNS: stats.addDrive(DriveOutcome.TURNOVER_ON_DOWNS); break;
+				case SAFETY: stats.addDrive(DriveOutcome.SAFETY); break;
+				default: break;
+			}
+		}
+
+		public void enableKickMeter(int minPower, int maxPower)
+		{
+			this.minPower=minPower;
+			this.maxPower=maxPower;
+		}
+
+		public void stopSfx(Sfx sfx) {}
+		public void releaseSfx() {}
+		public void vibrate() {}
+		public void clearInfo() {}
+		public void updateScoreBoard() {}
+		public void updateDriveStatus() {}
+		public void updateClockDisplay(int tenths, Period period) {}
+		public void updateField(boolean flash) {}
+	}
+
+	/**
+	 * Plays a range of games, splitting the range in half until it is small
+	 * enough to play sequentially
+	 */
+	static class GamesTask extends RecursiveTask<CalibrationStats>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Difficulty difficulty;
+		private final BallCarrierPolicy policy;
+		private final int periodLengthMins;
+		private final int first;
+		private final int count;
+
+		GamesTask(Difficulty difficulty, BallCarrierPolicy policy, int periodLengthMins, int first, int count)
+		{
+			this.difficulty=difficulty;
+			this.policy=policy;
+			this.periodLengthMins=periodLengthMins;
+			this.first=first;
+			this.count=count;
+		}
+
+		@Override
+		protected CalibrationStats compute()
+		{
+			if (count > GAMES_PER_TASK)
+			{
+				int half=count/2;
+				GamesTask left=new GamesTask(difficulty,policy,periodLengthMins,first,half);
+				GamesTask right=new GamesTask(difficulty,policy,periodLengthMins,first+half,count-half);
+				left.fork();
+				return right.compute().merge(left.join());
+			}
+
+			CalibrationStats stats=new CalibrationStats();
+			Random rand=new Random(first);
+			for (int i=0;i<count;i++)
+				new SimulatedGame(stats,policy,rand).play(difficulty,periodLengthMins);
+			return stats;
+		}
+	}
+
+	private static final String USAGE=
+			"usage: DifficultyCalibration [--games N] [--minutes N], or [games] [minutes]";
+
+	public static void main(String[] args)
+	{
+		int games=DEFAULT_GAMES;
+		int periodLengthMins=DEFAULT_PERIOD_LENGTH_MINS;
+		try
+		{
+			int positional=0;
+			for (int i=0;i<args.length;i++)
+			{
+				if (args[i].equals("--games") && i+1 < args.length)
+					games=parseCount(args[++i]);
+				else if (args[i].equals("--minutes") && i+1 < args.length)
+					periodLengthMins=parseCount(args[++i]);
+				else if (positional < 2 && !args[i].startsWith("-"))
+				{
+					if (positional++ == 0)
+						games=parseCount(args[i]);
+					else
+						periodLengthMins=parseCount(args[i]);
+				}
+				else
+					throw new IllegalArgumentException("unexpected argument "+args[i]);
+			}
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+
+		ForkJoinPool pool=new ForkJoinPool();
+		System.out.printf("Playing %d games of %d minute quarters per difficulty and policy on %d threads%n",
+				games,periodLengthMins,pool.getParallelism());
+
+		long start=System.nanoTime();
+		long ticks=0;
+		for (Difficulty difficulty : Difficulty.values())
+		{
+			System.out.printf("%n%s (defense moves every %d updates, search depth %d, budget %d ms or %d positions, receiver moves %d%%, field goal %d%%)%n",
+					difficulty,
+					difficulty.aiUpdatesPerMove(),
+					difficulty.searchDepth(),
+					difficulty.searchBudgetMillis(),
+					difficulty.searchBudgetNodes(),
+					difficulty.perReceiverMoves().getPercentage(),
+					difficulty.perFieldGoalIsGood().getPercentage());
+
+			for (BallCarrierPolicy policy : BallCarrierPolicy.values())
+			{
+				CalibrationStats stats=pool.invoke(new GamesTask(difficulty,policy,periodLengthMins,0,games));
+				ticks+=stats.ticks();
+				report(policy,stats);
+			}
+		}
+
+		double secs=(System.nanoTime()-start)/1e9;
+		System.out.printf("%nPlayed %d games, %d ticks, in %.1f s (%.1f M ticks/s)%n",
+				games*Difficulty.values().length*BallCarrierPolicy.values().length,
+				ticks,secs,ticks/secs/1e6);
+		pool.shutdown();
+	}
+
+	/**
+	 * @throws IllegalArgumentException, or its NumberFormatException subclass,
+	 * 		if the value is not a positive number
+	 */
+	private static int parseCount(String value)
+	{
+		int count=Integer.parseInt(value);
+		if (count <= 0)
+			throw new IllegalArgumentException("expected a positive number, got "+value);
+		return count;
+	}
+
+	private static void report(BallCarrierPolicy policy, CalibrationStats stats)
+	{
+		double[] points=stats.pointsPerGame();
+		double[] margin=stats.winningMargin();
+		System.out.printf("  %-7s points/game %5.1f +-%.1f  (p10 %d, p50 %d, p90 %d)  margin %5.1f +-%.1f%n",
+				policy,points[0],points[1],
+				stats.pointsPercentile(10),stats.pointsPercentile(50),stats.pointsPercentile(90),
+				margin[0],margin[1]);
+
+		StringBuilder drives=new StringBuilder();
+		for (DriveOutcome outcome : DriveOutcome.values())
+			drives.append(String.format("  %s %s",outcome.name().toLowerCase(),rate(stats.driveRate(outcome))));
+		System.out.printf("          drives/game %.1f:%s%n",(double)stats.drives()/stats.games(),drives);
+
+		System.out.printf("          tackle rate %s  field goals %s of %d attempts%n",
+				rate(stats.tackleRate()),rate(stats.fieldGoalRate()),stats.fieldGoalAttempts());
+	}
+
+	private static String rate(double[] rate)
+	{
+		return String.format("%.1f%% [%.1f-%.1f]",rate[0]*100,rate[1]*100,rate[2]*100);
+	}
+}
@@ -0,0 +1,84 @@
+package com.redpantssoft.hhfootball;
+
+import com.redpantssoft.hhfootball.GameClock.Period;
+import com.redpantssoft.hhfootball.GameEngine.Info;
+import com.redpantssoft.hhfootball.GameEngine.Sfx;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Replays a recorded game at full speed, to reproduce a problem under a
+ * debugger or to profile the engine with a real game.
+ * <p/>
+ * The game saves the record of the last game to its private storage when
+ * it is paused, it can be pulled from a device with:
+ * <pre>
+ *   adb shell run-as com.redpantssoft.hhfootball cat files/last_game.log > last_game.log
+ * </pre>
+ * and replayed, optionally several times over, and checked against the hash
+ * of the game state recorded with the log, with the tools built as
+ * described in {@link DifficultyCalibration}:
+ * <pre>
+ *   java -cp out/tools com.redpantssoft.hhfootball.ReplayGame last_game.log [repeat]
+ * </pre>
+ */
+public class ReplayGame implements GameEngine.GameEventHandler
+{
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 1)
+		{
+			System.err.println("usage: ReplayGame <input log> [repeat]");
+			System.exit(1);
+		}
+
+		InputLog log;
+		DataInputStream in=new DataInputStream(new BufferedInputStream(new FileInputStream(args[0])));
+		try
+		{
+			log=InputLog.readFrom(in);
+		}
+		finally
+		{
+			in.close();
+		}
+		int repeat=(args.length > 1) ? Integer.parseInt(args[1]) : 1;
+
+		System.out.printf("seed %d, %s, %d minute quarters, %d ticks, %d inputs%n",
+				log.seed(),log.difficulty(),log.periodLengthMins(),log.ticks(),log.size());
+
+		long start=System.nanoTime();
+		GameEngine engine=null;
+		for (int i=0;i<repeat;i++)
+		{
+			engine=GameEngine.replay(log,new ReplayGame());
+			if (engine.stateHash() != log.stateHash())
+				throw new IllegalStateException(String.format(
+						"Replay diverged from the recorded game, state hash %016x, recorded %016x",
+						engine.stateHash(),log.stateHash()));
+		}
+		double secs=(System.nanoTime()-start)/1e9;
+
+		System.out.printf("home %d, visitor %d, %s %.1f secs left, state %s/%s%n",
+				engine.homeScore(),engine.visitorScore(),
+				engine.clock().period(),engine.clock().timeLeftSecs(),
+				engine.state(),engine.gameState());
+		System.out.printf("replayed %d times in %.3f s (%.1f M ticks/s)%n",
+				repeat,secs,(double)log.ticks()*repeat/secs/1e6);
+	}
+
+	public void playSfx(Sfx sfx, boolean loop) {}
+	public void stopSfx(Sfx sfx) {}
+	public void releaseSfx() {}
+	public void vibrate() {}
+	public void showInfo(Info info, boolean autoClear) {}
+	public void clearInfo() {}
+	public void enableKickMeter(int minPower, int maxPower) {}
+	public void updateScoreBoard() {}
+	public void updateDriveStatus() {}
+	public void updateClockDisplay(int tenths, Period period) {}
+	public void updateField(boolean flash) {}
+}